@@ -0,0 +1,78 @@
+package org.s23m.cell.persistence.benchmark;
+
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * Creates benchmark data in which every foreign key refers to a distinct row
+ */
+final class BenchmarkData {
+
+	/**
+	 * The tables, ordered so that rows are deleted before the rows they refer to
+	 */
+	private static final String[] TABLES = {"Edge", "Arrow", "Graph", "Agent", "Identity"};
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Deletes every row, so that each invocation starts from an empty database
+	 */
+	static void deleteAllRows(final JdbcTestSupport support) throws SQLException {
+		try (Connection connection = support.getConnection();
+				Statement statement = connection.createStatement()) {
+			for (final String table : TABLES) {
+				statement.executeUpdate("DELETE FROM " + table);
+			}
+		}
+	}
+
+	static List<Identity> createIdentities(final int count) {
+		final List<Identity> identities = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			identities.add(createIdentity(UUID.randomUUID().toString()));
+		}
+		return identities;
+	}
+
+	/**
+	 * Stores an Edge along with its Arrow, five Graphs and all of the Identities they refer to
+	 *
+	 * @return the URR of the Edge
+	 */
+	static String storeEdge(final JdbcTestSupport support) {
+		final List<Identity> identities = createIdentities(40);
+		support.getIdentityDao().insertAll(identities);
+
+		final List<Graph> graphs = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			final int offset = i * 6;
+			graphs.add(new Graph(identities.get(offset), identities.get(offset + 1), identities.get(offset + 2),
+					identities.get(offset + 3), identities.get(offset + 4), ProperClass.Edge, identities.get(offset + 5), "content"));
+		}
+		support.getGraphDao().insertAll(graphs);
+
+		final Arrow arrow = new Arrow(graphs.get(0), identities.get(30), ProperClass.Edge, graphs.get(1), graphs.get(2));
+		support.getArrowDao().insert(arrow);
+
+		final Edge edge = new Edge(arrow, identities.get(31), identities.get(32), identities.get(33), identities.get(34),
+				identities.get(35), identities.get(36), identities.get(37), identities.get(38), graphs.get(3), graphs.get(4));
+		support.getEdgeDao().insert(edge);
+
+		return edge.getUrr();
+	}
+}
@@ -0,0 +1,113 @@
+package org.s23m.cell.persistence.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * Measures loading an Edge together with its Arrow, Graphs and all referenced Identities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphLoadBenchmark {
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	private String edgeUrr;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		support.initialiseTestDatabase(getClass().getSimpleName());
+		edgeUrr = BenchmarkData.storeEdge(support);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	/**
+	 * Retrieves every row with its own query
+	 */
+	@Benchmark
+	public void pointLookups(final Blackhole blackhole) {
+		final Edge edge = support.getEdgeDao().get(edgeUrr);
+		final Arrow arrow = support.getArrowDao().get(edge.getUrr());
+
+		for (final String urr : graphUrrs(edge, arrow)) {
+			final Graph graph = support.getGraphDao().get(urr);
+			for (final String uuid : identityUuids(graph)) {
+				blackhole.consume(support.getIdentityDao().get(uuid));
+			}
+		}
+		for (final String uuid : identityUuids(edge, arrow)) {
+			blackhole.consume(support.getIdentityDao().get(uuid));
+		}
+	}
+
+	/**
+	 * Retrieves the rows of each table with a single query
+	 */
+	@Benchmark
+	public void bulkLookups(final Blackhole blackhole) {
+		final Edge edge = support.getEdgeDao().get(edgeUrr);
+		final Arrow arrow = support.getArrowDao().get(edge.getUrr());
+		final Map<String, Graph> graphs = support.getGraphDao().getAll(graphUrrs(edge, arrow));
+
+		final Set<String> uuids = new LinkedHashSet<>(identityUuids(edge, arrow));
+		for (final Graph graph : graphs.values()) {
+			uuids.addAll(identityUuids(graph));
+		}
+		final Map<String, Identity> identities = support.getIdentityDao().getAll(uuids);
+		blackhole.consume(identities);
+	}
+
+	private static List<String> graphUrrs(final Edge edge, final Arrow arrow) {
+		return Arrays.asList(arrow.getUrr(), arrow.getFromGraph(), arrow.getToGraph(), edge.getFromEdgeEnd(), edge.getToEdgeEnd());
+	}
+
+	private static List<String> identityUuids(final Edge edge, final Arrow arrow) {
+		return Arrays.asList(arrow.getCategory(),
+				edge.getMinCardinalityValueFromEdgeEnd(), edge.getMinCardinalityValueToEdgeEnd(),
+				edge.getMaxCardinalityValueFromEdgeEnd(), edge.getMaxCardinalityValueToEdgeEnd(),
+				edge.getIsNavigableValueFromEdgeEnd(), edge.getIsNavigableValueToEdgeEnd(),
+				edge.getIsContainerValueFromEdgeEnd(), edge.getIsContainerValueToEdgeEnd());
+	}
+
+	private static List<String> identityUuids(final Graph graph) {
+		final List<String> uuids = new ArrayList<>(Arrays.asList(graph.getUrr(), graph.getUuid(), graph.getCategory(),
+				graph.getContainer(), graph.getIsAbstractValue()));
+		if (graph.getMaxCardinalityValueInContainer() != null) {
+			uuids.add(graph.getMaxCardinalityValueInContainer());
+		}
+		return uuids;
+	}
+}
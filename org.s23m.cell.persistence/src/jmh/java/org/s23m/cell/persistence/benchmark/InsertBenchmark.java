@@ -0,0 +1,68 @@
+package org.s23m.cell.persistence.benchmark;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * Compares inserting rows one statement at a time with inserting them in batches, each into an empty table
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertBenchmark {
+
+	@Param({"10", "100", "1000"})
+	private int rowCount;
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	private List<Identity> identities;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		support.initialiseTestDatabase(getClass().getSimpleName());
+	}
+
+	@Setup(Level.Invocation)
+	public void createRows() throws SQLException {
+		BenchmarkData.deleteAllRows(support);
+		identities = BenchmarkData.createIdentities(rowCount);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	@Benchmark
+	public void singleInserts() {
+		for (final Identity identity : identities) {
+			support.getIdentityDao().insert(identity);
+		}
+	}
+
+	@Benchmark
+	public void batchedInsert() {
+		support.getIdentityDao().insertAll(identities);
+	}
+}
@@ -0,0 +1,106 @@
+package org.s23m.cell.persistence.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * Measures point lookups, bulk lookups and how point lookups scale with the number of concurrent threads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupBenchmark {
+
+	private static final int IDENTITY_COUNT = 10000;
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	private final List<String> identityUuids = new ArrayList<>();
+
+	private String edgeUrr;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		support.initialiseTestDatabase(getClass().getSimpleName());
+
+		final List<Identity> identities = BenchmarkData.createIdentities(IDENTITY_COUNT);
+		support.getIdentityDao().insertAll(identities);
+		for (final Identity identity : identities) {
+			identityUuids.add(identity.getUuid());
+		}
+
+		edgeUrr = BenchmarkData.storeEdge(support);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	@Benchmark
+	public Identity identityGet() {
+		return support.getIdentityDao().get(randomIdentityUuid());
+	}
+
+	@Benchmark
+	public Edge edgeGet() {
+		return support.getEdgeDao().get(edgeUrr);
+	}
+
+	/**
+	 * Looks up as many identities as an Edge refers to
+	 */
+	@Benchmark
+	public Object identityGetAll() {
+		final List<String> uuids = new ArrayList<>(8);
+		for (int i = 0; i < 8; i++) {
+			uuids.add(randomIdentityUuid());
+		}
+		return support.getIdentityDao().getAll(uuids);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public Identity identityGet2Threads() {
+		return identityGet();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Identity identityGet4Threads() {
+		return identityGet();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Identity identityGet8Threads() {
+		return identityGet();
+	}
+
+	private String randomIdentityUuid() {
+		return identityUuids.get(ThreadLocalRandom.current().nextInt(IDENTITY_COUNT));
+	}
+}
@@ -0,0 +1,78 @@
+package org.s23m.cell.persistence.benchmark;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.s23m.cell.Set;
+import org.s23m.cell.persistence.api.jdbc.JdbcPersistenceService;
+import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.platform.api.AgencyTestFoundationTestCase;
+import org.s23m.cell.platform.testfoundation.AgencyTestFoundation;
+
+/**
+ * Measures storing a model of the kernel's test foundation into an empty database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StoreBenchmark {
+
+	@Param({"ithanku", "ernst"})
+	private String model;
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	private JdbcPersistenceService service;
+
+	private Set graph;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		new TestFoundation().bootstrap();
+		support.initialiseTestDatabase(getClass().getSimpleName());
+		service = new JdbcPersistenceService(support.getDataSource(), support.getIdentityDao(), support.getGraphDao(),
+				support.getArrowDao(), support.getEdgeDao());
+		graph = "ernst".equals(model) ? AgencyTestFoundation.ernst : AgencyTestFoundation.ithanku;
+	}
+
+	@Setup(Level.Invocation)
+	public void deleteRows() throws SQLException {
+		BenchmarkData.deleteAllRows(support);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	@Benchmark
+	public void store() {
+		service.store(graph);
+	}
+
+	/**
+	 * Bootstraps the kernel and instantiates the test foundation, as is done before each JUnit test
+	 */
+	private static final class TestFoundation extends AgencyTestFoundationTestCase {
+
+		void bootstrap() throws Exception {
+			setUp();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.s23m.cell.persistence.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.s23m.cell.Set;
+
+/**
+ * Stores sets asynchronously, using another {@link PersistenceService} on a pool of writer threads.
+ *
+ * Stores are queued in a bounded queue. When it is full, {@link #store(Set)} blocks until space is available,
+ * while {@link #store(Set, long, TimeUnit)} gives up after a timeout, so callers can choose between
+ * backpressure and shedding load. A set must not be modified until its store has completed.
+ *
+ * Stores of the same set are always performed by the same writer thread, in the order they were queued,
+ * so a later version of a model can never be overwritten by an earlier one. Stores of different sets run
+ * concurrently; when their contents overlap, the caller should wait for the earlier store's future before
+ * queueing the later one, as their relative order (and row locking order) is otherwise unspecified.
+ */
+public final class AsyncPersistenceService implements AutoCloseable {
+
+	/**
+	 * The default maximum number of queued stores
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	private final AsyncWriter<Set> writer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param delegate performs each store, e.g. using batched DAO writes within a transaction
+	 * @param writerThreadCount the number of concurrent stores, which should not exceed the size of the connection pool
+	 */
+	public AsyncPersistenceService(final PersistenceService delegate, final int writerThreadCount) {
+		this(delegate, writerThreadCount, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param delegate performs each store, e.g. using batched DAO writes within a transaction
+	 * @param writerThreadCount the number of concurrent stores, which should not exceed the size of the connection pool
+	 * @param queueCapacity the maximum number of stores waiting for a writer thread, divided evenly between them
+	 */
+	public AsyncPersistenceService(final PersistenceService delegate, final int writerThreadCount, final int queueCapacity) {
+		this.writer = new AsyncWriter<>(delegate::store, graph -> graph.identity().identifier(), writerThreadCount, queueCapacity,
+				"persistence-writer");
+	}
+
+	/**
+	 * Queues the set to be stored, waiting for space in the queue if necessary
+	 *
+	 * @param graph
+	 * @return completed when the set has been stored, or exceptionally if storing fails
+	 */
+	public CompletableFuture<Void> store(final Set graph) {
+		return writer.submit(graph);
+	}
+
+	/**
+	 * Queues the set to be stored, waiting at most the given time for space in the queue
+	 *
+	 * @param graph
+	 * @param timeout
+	 * @param unit
+	 * @return completed when the set has been stored, or exceptionally with a {@link RejectedExecutionException}
+	 *  if the queue remained full
+	 */
+	public CompletableFuture<Void> store(final Set graph, final long timeout, final TimeUnit unit) {
+		return writer.submit(graph, timeout, unit);
+	}
+
+	/**
+	 * Returns the number of stores which are waiting for a writer thread
+	 */
+	public int getQueuedCount() {
+		return writer.getQueuedCount();
+	}
+
+	/**
+	 * Stops accepting stores, and waits for those already queued to complete
+	 */
+	@Override
+	public void close() {
+		writer.close();
+	}
+}
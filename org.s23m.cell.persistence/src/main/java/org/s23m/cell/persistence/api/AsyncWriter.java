@@ -0,0 +1,232 @@
+package org.s23m.cell.persistence.api;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Performs writes on a fixed number of writer threads, each of which takes them from its own bounded queue.
+ *
+ * Each write is assigned to a writer thread by the hash of its ordering key, so writes with equal keys
+ * are performed one at a time in the order they were submitted, while writes with different keys may
+ * be performed concurrently, in any order.
+ *
+ * When a queue is full, submitting blocks the caller until space is available (or the given timeout elapses),
+ * so that producers cannot get arbitrarily far ahead of the database.
+ *
+ * Each write completes its future on the writer thread which performed it, so dependent stages
+ * should use the *Async methods of {@link CompletableFuture} if they may block.
+ */
+public final class AsyncWriter<T> implements AutoCloseable {
+
+	private final Consumer<? super T> writer;
+
+	private final Function<? super T, ?> orderingKey;
+
+	private final BlockingQueue<Task<T>>[] queues;
+
+	private final Thread[] writerThreads;
+
+	/**
+	 * Held for reading while enqueueing, and for writing while closing, so that nothing is enqueued after the writers stop
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private boolean closed;
+
+	/**
+	 * Constructor, ordering the writes of equal values
+	 *
+	 * @param writer performs a single write
+	 * @param writerThreadCount the number of writer threads, which should not exceed the size of the connection pool
+	 * @param queueCapacity the maximum number of writes waiting to be performed
+	 * @param threadNamePrefix
+	 */
+	public AsyncWriter(final Consumer<? super T> writer, final int writerThreadCount, final int queueCapacity, final String threadNamePrefix) {
+		this(writer, Function.identity(), writerThreadCount, queueCapacity, threadNamePrefix);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer performs a single write
+	 * @param orderingKey identifies the writes which must be performed in submission order, e.g. those of the same model
+	 * @param writerThreadCount the number of writer threads, which should not exceed the size of the connection pool
+	 * @param queueCapacity the maximum number of writes waiting to be performed, divided evenly between the writer threads
+	 * @param threadNamePrefix
+	 */
+	@SuppressWarnings("unchecked")
+	public AsyncWriter(final Consumer<? super T> writer, final Function<? super T, ?> orderingKey, final int writerThreadCount,
+			final int queueCapacity, final String threadNamePrefix) {
+		if (writerThreadCount < 1) {
+			throw new IllegalArgumentException("Writer thread count must be positive: " + writerThreadCount);
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		}
+		this.writer = writer;
+		this.orderingKey = orderingKey;
+		this.queues = new BlockingQueue[writerThreadCount];
+		this.writerThreads = new Thread[writerThreadCount];
+		final int queueCapacityPerThread = Math.max(1, (queueCapacity + writerThreadCount - 1) / writerThreadCount);
+		for (int i = 0; i < writerThreadCount; i++) {
+			final BlockingQueue<Task<T>> queue = new ArrayBlockingQueue<>(queueCapacityPerThread);
+			queues[i] = queue;
+			writerThreads[i] = new Thread(() -> drain(queue), threadNamePrefix + "-" + (i + 1));
+			writerThreads[i].start();
+		}
+	}
+
+	/**
+	 * Queues a write, waiting for space in its writer thread's queue if necessary
+	 *
+	 * @param value
+	 * @return completed when the write has been performed, or exceptionally if it fails or this writer is closed
+	 */
+	public CompletableFuture<Void> submit(final T value) {
+		return enqueue(new Task<>(value), Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Queues a write, waiting at most the given time for space in its writer thread's queue
+	 *
+	 * @param value
+	 * @param timeout
+	 * @param unit
+	 * @return completed when the write has been performed, or exceptionally with a {@link RejectedExecutionException}
+	 *  if the queue remained full
+	 */
+	public CompletableFuture<Void> submit(final T value, final long timeout, final TimeUnit unit) {
+		return enqueue(new Task<>(value), timeout, unit);
+	}
+
+	/**
+	 * Returns the number of writes which have been queued but not yet started
+	 */
+	public int getQueuedCount() {
+		int count = 0;
+		for (final BlockingQueue<Task<T>> queue : queues) {
+			count += queue.size();
+		}
+		return count;
+	}
+
+	public int getWriterThreadCount() {
+		return writerThreads.length;
+	}
+
+	/**
+	 * Stops accepting writes, and waits for those already queued to be performed
+	 */
+	@Override
+	public void close() {
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+
+		boolean interrupted = false;
+		for (final BlockingQueue<Task<T>> queue : queues) {
+			while (true) {
+				try {
+					// queued behind the writer thread's outstanding writes
+					queue.put(Task.stop());
+					break;
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		for (final Thread writerThread : writerThreads) {
+			while (writerThread.isAlive()) {
+				try {
+					writerThread.join();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private CompletableFuture<Void> enqueue(final Task<T> task, final long timeout, final TimeUnit unit) {
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				task.future.completeExceptionally(new RejectedExecutionException("Writer has been closed"));
+			} else if (!queueFor(task.value).offer(task, timeout, unit)) {
+				task.future.completeExceptionally(new RejectedExecutionException("Write queue remained full for " + timeout + " " + unit));
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			task.future.completeExceptionally(e);
+		} finally {
+			closeLock.readLock().unlock();
+		}
+		return task.future;
+	}
+
+	private BlockingQueue<Task<T>> queueFor(final T value) {
+		return queues[Math.floorMod(Objects.hashCode(orderingKey.apply(value)), queues.length)];
+	}
+
+	private void drain(final BlockingQueue<Task<T>> queue) {
+		while (true) {
+			final Task<T> task;
+			try {
+				task = queue.take();
+			} catch (final InterruptedException e) {
+				// writer threads are only stopped by close()
+				continue;
+			}
+			if (task.isStop()) {
+				return;
+			}
+			try {
+				writer.accept(task.value);
+				task.future.complete(null);
+			} catch (final Throwable e) {
+				task.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * A queued write
+	 */
+	private static final class Task<T> {
+
+		private static final Task<?> STOP = new Task<>(null);
+
+		final T value;
+
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		Task(final T value) {
+			this.value = value;
+		}
+
+		@SuppressWarnings("unchecked")
+		static <T> Task<T> stop() {
+			return (Task<T>) STOP;
+		}
+
+		boolean isStop() {
+			return this == STOP;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import org.s23m.cell.persistence.dao.jdbc.LookupExecutor;
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+
+/**
+ * Creates pooled data sources, tuned for the database identified by the JDBC URL (see {@link SqlDialect#fromJdbcUrl(String)}).
+ *
+ * The pool size follows the HikariCP guideline of twice the number of cores plus one, since a larger pool
+ * mostly adds contention within the database. Connection metrics are collected in a {@link PoolMetrics},
+ * obtained using {@link #getMetrics(HikariDataSource)}.
+ */
+public final class DataSourceFactory {
+
+	private static final String H2_MEMORY_URL_PREFIX = "jdbc:h2:mem:";
+
+	private DataSourceFactory() {
+	}
+
+	/**
+	 * Returns the default maximum pool size for this machine
+	 */
+	public static int getDefaultPoolSize() {
+		return Runtime.getRuntime().availableProcessors() * 2 + 1;
+	}
+
+	/**
+	 * Creates a data source with the default pool size
+	 *
+	 * @param jdbcUrl
+	 * @param username
+	 * @param password
+	 */
+	public static HikariDataSource create(final String jdbcUrl, final String username, final String password) {
+		return create(jdbcUrl, username, password, getDefaultPoolSize());
+	}
+
+	/**
+	 * Creates a data source
+	 *
+	 * @param jdbcUrl
+	 * @param username
+	 * @param password
+	 * @param poolSize the maximum number of connections
+	 */
+	public static HikariDataSource create(final String jdbcUrl, final String username, final String password, final int poolSize) {
+		return new HikariDataSource(createConfig(jdbcUrl, username, password, poolSize));
+	}
+
+	static HikariConfig createConfig(final String jdbcUrl, final String username, final String password, final int poolSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+		}
+
+		final HikariConfig config = new HikariConfig();
+		config.setUsername(username);
+		config.setPassword(password);
+		config.setMaximumPoolSize(poolSize);
+		config.setMetricsTrackerFactory(new PoolMetrics());
+
+		final SqlDialect dialect = SqlDialect.fromJdbcUrl(jdbcUrl);
+		config.setJdbcUrl(dialect == SqlDialect.H2 ? configureH2(jdbcUrl) : jdbcUrl);
+		if (dialect != null) {
+			dialect.getDataSourceProperties().forEach(config::addDataSourceProperty);
+		}
+		return config;
+	}
+
+	/**
+	 * Returns the metrics of a data source created by this factory
+	 *
+	 * @param dataSource
+	 */
+	public static PoolMetrics getMetrics(final HikariDataSource dataSource) {
+		final MetricsTrackerFactory factory = dataSource.getMetricsTrackerFactory();
+		if (!(factory instanceof PoolMetrics)) {
+			throw new IllegalArgumentException("Data source was not created by " + DataSourceFactory.class.getSimpleName());
+		}
+		return (PoolMetrics) factory;
+	}
+
+	/**
+	 * Returns an executor running at most as many concurrent lookups as the data source has connections
+	 *
+	 * @param dataSource
+	 */
+	public static LookupExecutor createLookupExecutor(final HikariDataSource dataSource) {
+		return new LookupExecutor(dataSource.getMaximumPoolSize());
+	}
+
+	/*
+	 * H2 takes its settings from the URL; explicitly specified settings are retained
+	 */
+	private static String configureH2(final String jdbcUrl) {
+		final StringBuilder builder = new StringBuilder(jdbcUrl);
+		// a larger cache of parsed statements, since the DAOs issue many distinct templates
+		appendH2Setting(builder, "QUERY_CACHE_SIZE", "64");
+		// wait for row locks held by concurrent writers rather than failing immediately
+		appendH2Setting(builder, "LOCK_TIMEOUT", "10000");
+		if (jdbcUrl.startsWith(H2_MEMORY_URL_PREFIX)) {
+			// keep the database while the pool has no open connections
+			appendH2Setting(builder, "DB_CLOSE_DELAY", "-1");
+		}
+		return builder.toString();
+	}
+
+	private static void appendH2Setting(final StringBuilder url, final String name, final String value) {
+		if (url.toString().toUpperCase().contains(";" + name + "=")) {
+			return;
+		}
+		url.append(';').append(name).append('=').append(value);
+	}
+}
@@ -0,0 +1,103 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import javax.sql.DataSource;
+
+import org.s23m.cell.persistence.dao.jdbc.JdbcAgentDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcArrowDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcPersistenceSession;
+import org.s23m.cell.persistence.dao.jdbc.TracingQueryRunner;
+
+/**
+ * Creates the JDBC DAOs for a data source (e.g. one created by {@link DataSourceFactory}), sharing a
+ * {@link TracingQueryRunner} so that slow statements issued by any of them are logged.
+ */
+public final class JdbcDaoFactory {
+
+	/**
+	 * The default minimum execution time of the statements which are logged
+	 */
+	public static final long DEFAULT_SLOW_STATEMENT_THRESHOLD_MILLIS = 1000;
+
+	private final DataSource dataSource;
+
+	private final TracingQueryRunner queryRunner;
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
+
+	private final JdbcEdgeDao edgeDao;
+
+	private final JdbcAgentDao agentDao;
+
+	/**
+	 * Constructor, logging statements taking at least {@value #DEFAULT_SLOW_STATEMENT_THRESHOLD_MILLIS} ms
+	 *
+	 * @param dataSource
+	 * @param configuration
+	 */
+	public JdbcDaoFactory(final DataSource dataSource, final JdbcDaoConfiguration configuration) {
+		this(dataSource, configuration, DEFAULT_SLOW_STATEMENT_THRESHOLD_MILLIS);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataSource
+	 * @param configuration
+	 * @param slowStatementThresholdMillis the minimum execution time of the statements which are logged
+	 */
+	public JdbcDaoFactory(final DataSource dataSource, final JdbcDaoConfiguration configuration, final long slowStatementThresholdMillis) {
+		this.dataSource = dataSource;
+		this.queryRunner = new TracingQueryRunner(dataSource, slowStatementThresholdMillis);
+		this.identityDao = new JdbcIdentityDao(queryRunner, configuration);
+		this.graphDao = new JdbcGraphDao(queryRunner, configuration);
+		this.arrowDao = new JdbcArrowDao(queryRunner, configuration);
+		this.edgeDao = new JdbcEdgeDao(queryRunner, configuration);
+		this.agentDao = new JdbcAgentDao(queryRunner, configuration);
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Returns the query runner shared by the DAOs, e.g. to obtain the number of slow statements
+	 */
+	public TracingQueryRunner getQueryRunner() {
+		return queryRunner;
+	}
+
+	public JdbcIdentityDao getIdentityDao() {
+		return identityDao;
+	}
+
+	public JdbcGraphDao getGraphDao() {
+		return graphDao;
+	}
+
+	public JdbcArrowDao getArrowDao() {
+		return arrowDao;
+	}
+
+	public JdbcEdgeDao getEdgeDao() {
+		return edgeDao;
+	}
+
+	public JdbcAgentDao getAgentDao() {
+		return agentDao;
+	}
+
+	/**
+	 * Creates a session which writes using the DAOs in a single transaction
+	 */
+	public JdbcPersistenceSession createSession() {
+		return new JdbcPersistenceSession(dataSource, identityDao, graphDao, arrowDao, edgeDao, agentDao);
+	}
+}
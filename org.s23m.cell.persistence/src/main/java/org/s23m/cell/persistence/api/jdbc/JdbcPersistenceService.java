@@ -1,109 +1,95 @@
 package org.s23m.cell.persistence.api.jdbc;
 
+import javax.sql.DataSource;
+
 import org.s23m.cell.Set;
-import org.s23m.cell.api.Query;
-import org.s23m.cell.api.models.S23MSemanticDomains;
 import org.s23m.cell.api.models.SemanticDomain;
 import org.s23m.cell.persistence.api.PersistenceService;
-import org.s23m.cell.persistence.dao.IdentityDao;
-import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.dao.jdbc.JdbcArrowDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.Transactions;
 import org.s23m.cell.platform.api.Instantiation;
 
 /**
- * Basic {@link PersistenceService} implementation
+ * Basic {@link PersistenceService} implementation.
+ *
+ * All rows representing the stored set are collected first, and then written one table at a time
+ * using batched statements, within a single transaction. Rows are upserted, so that models sharing rows
+ * (or the same model) can be stored repeatedly.
  */
 public class JdbcPersistenceService implements PersistenceService {
 
-	private final IdentityDao identityDao;
+	private final DataSource dataSource;
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
 
-	public JdbcPersistenceService(final IdentityDao identityDao) {
+	private final JdbcEdgeDao edgeDao;
+
+	/**
+	 * Constructor, using the DAOs created by the factory
+	 *
+	 * @param daoFactory
+	 */
+	public JdbcPersistenceService(final JdbcDaoFactory daoFactory) {
+		this(daoFactory.getDataSource(), daoFactory.getIdentityDao(), daoFactory.getGraphDao(), daoFactory.getArrowDao(),
+				daoFactory.getEdgeDao());
+	}
+
+	public JdbcPersistenceService(final DataSource dataSource, final JdbcIdentityDao identityDao, final JdbcGraphDao graphDao,
+			final JdbcArrowDao arrowDao, final JdbcEdgeDao edgeDao) {
+		this.dataSource = dataSource;
 		this.identityDao = identityDao;
+		this.graphDao = graphDao;
+		this.arrowDao = arrowDao;
+		this.edgeDao = edgeDao;
 	}
 
 	public void store(final Set graph) {
 
-		// for each set in sequence (iterate through in order):
-		//    persist all identities first
-		//    persist graph itself:
-		//       either persist either edge or arrow (and if edge, persist corresponding arrow)
-
 		// Note: http://blog.ploeh.dk/2014/08/11/cqs-versus-server-generated-ids/
 
+		final ModelRows rows = new ModelRows();
+		collect(graph, rows);
+		write(rows);
+	}
+
+	/**
+	 * Adds the rows representing the provided set, and everything they refer to, to rows
+	 */
+	static void collect(final Set graph, final ModelRows rows) {
 		for (final Set containedInstance : graph.filterInstances()) {
-			storeModel(containedInstance);
+			rows.addStructure(containedInstance);
 		}
 
 		final Set containedSemanticDomains = Instantiation.toSemanticDomain(graph).filterPolymorphic(SemanticDomain.semanticdomain);
 		for (final Set semanticDomain : containedSemanticDomains) {
-			storeSemanticDomain(semanticDomain);
+			collectSemanticDomain(rows, semanticDomain);
 		}
-
 	}
 
-	private void storeModel(final Set containedInstance) {
-		System.out.println("Storing model: " + containedInstance);
-
-	}
-
-	private void storeSemanticDomain(final Set semanticDomain) {
-		System.out.println("Storing semanticDomain: " + semanticDomain);
-
-		// serialise identities
+	private static void collectSemanticDomain(final ModelRows rows, final Set semanticDomain) {
 		final Set orderedSetOfSemanticIdentities = semanticDomain.filterPolymorphic(SemanticDomain.semanticIdentity);
-		for (final Set semanticIdentitySet: orderedSetOfSemanticIdentities) {
-			// store the identity
-			System.out.println("Storing identity: " + semanticIdentitySet.identity());
-			identityDao.insert(new Identity(semanticIdentitySet.identity()));
+		for (final Set semanticIdentitySet : orderedSetOfSemanticIdentities) {
+			rows.addIdentity(semanticIdentitySet.identity());
 		}
 
-		storeStructure(semanticDomain);
-
-		//parent.addSemanticDomain(semanticDomain);
+		rows.addStructure(semanticDomain);
 	}
 
-	private void storeStructure(final Set structure) {
-
-		// process Vertex list
-		for (final Set vertexInstance : structure.filterProperClass(Query.vertex)) {
-			System.out.println("Storing vertex: " + vertexInstance);
-			//final Vertex vertex = builder.vertex(vertexInstance);
-			//container.addVertex(vertex);
-		}
-
-		// process Edge list
-		for (final Set edgeInstance : structure.filterProperClass(Query.edge)) {
-			System.out.println("Storing edge: " + edgeInstance);
-			//final Edge edge = builder.edge(edgeInstance);
-			//container.addEdge(edge);
-		}
-
-		// process Visibility list
-		for (final Set visibilityInstance : structure.filterProperClass(Query.visibility)) {
-			System.out.println("Storing visibility: " + visibilityInstance);
-			//final Visibility visibility = builder.visibility(visibilityInstance);
-			//container.addVisibility(visibility);
-		}
-
-		// process SuperSetReference list
-		for (final Set superSetReferenceInstance : structure.filterProperClass(Query.superSetReference)) {
-			System.out.println("Storing superSetReference: " + superSetReferenceInstance);
-			//final SuperSetReference superSetReference = builder.superSetReference(superSetReferenceInstance);
-			//container.addSuperSetReference(superSetReference);
-		}
-
-		// process Command list
-		for (final Set commandInstance : structure.filter(S23MSemanticDomains.command)) {
-			System.out.println("Storing command: " + commandInstance);
-			//final Command command = builder.command(commandInstance);
-			//container.addCommand(command);
-		}
-
-		// process Query list
-		for (final Set queryInstance : structure.filter(S23MSemanticDomains.query)) {
-			System.out.println("Storing query: " + queryInstance);
-
-			//final org.s23m.cell.communication.xml.model.schemainstance.Query query = builder.query(queryInstance);
-			//container.addQuery(query);
-		}
+	private void write(final ModelRows rows) {
+		Transactions.execute(dataSource, connection -> {
+			// tables are written in foreign key dependency order; rows shared with models stored earlier
+			// (such as the kernel identities and graphs) already exist, so they are upserted
+			identityDao.upsertAll(connection, rows.getIdentities());
+			graphDao.upsertAll(connection, rows.getGraphs());
+			arrowDao.upsertAll(connection, rows.getArrows());
+			edgeDao.upsertAll(connection, rows.getEdges());
+		});
 	}
 }
@@ -0,0 +1,159 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.s23m.cell.Set;
+import org.s23m.cell.api.Query;
+import org.s23m.cell.api.models.S23MSemanticDomains;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * Collects the Identity, Graph, Arrow and Edge rows which represent a set of {@link Set} instances.
+ *
+ * Rows are keyed by their primary key, so a set which is reached more than once is only represented once.
+ * Every row which is referenced by a foreign key is collected along with the referencing row, so the
+ * tables can be written in dependency order (Identity, Graph, Arrow, Edge).
+ */
+final class ModelRows {
+
+	private final Map<String, Identity> identities = new LinkedHashMap<>();
+
+	private final Map<String, Graph> graphs = new LinkedHashMap<>();
+
+	private final Map<String, Arrow> arrows = new LinkedHashMap<>();
+
+	private final Map<String, Edge> edges = new LinkedHashMap<>();
+
+	public Collection<Identity> getIdentities() {
+		return identities.values();
+	}
+
+	public Collection<Graph> getGraphs() {
+		return graphs.values();
+	}
+
+	public Collection<Arrow> getArrows() {
+		return arrows.values();
+	}
+
+	public Collection<Edge> getEdges() {
+		return edges.values();
+	}
+
+	/**
+	 * Adds a row for the provided identity, returning its primary key
+	 */
+	public String addIdentity(final org.s23m.cell.Identity identity) {
+		final String uuid = identity.identifier().toString();
+		if (!identities.containsKey(uuid)) {
+			identities.put(uuid, new Identity(identity));
+		}
+		return uuid;
+	}
+
+	/**
+	 * Adds the rows representing the provided set and the vertices, edges, visibilities and
+	 * super set references it contains
+	 */
+	public void addStructure(final Set structure) {
+		addGraph(structure, ProperClass.Vertex);
+
+		for (final Set vertexInstance : structure.filterProperClass(Query.vertex)) {
+			addGraph(vertexInstance, ProperClass.Vertex);
+		}
+
+		for (final Set edgeInstance : structure.filterProperClass(Query.edge)) {
+			addEdge(edgeInstance);
+		}
+
+		for (final Set visibilityInstance : structure.filterProperClass(Query.visibility)) {
+			addArrow(visibilityInstance, ProperClass.Visibility);
+		}
+
+		for (final Set superSetReferenceInstance : structure.filterProperClass(Query.superSetReference)) {
+			addArrow(superSetReferenceInstance, ProperClass.SuperSetReference);
+		}
+
+		// commands and queries are not persisted
+	}
+
+	/**
+	 * Adds a Graph row for the provided set, returning its primary key (the URR)
+	 */
+	private String addGraph(final Set set, final ProperClass properClass) {
+		final String urr = addRepresentationIdentity(set.identity());
+		if (graphs.containsKey(urr)) {
+			return urr;
+		}
+
+		final String uuid = addIdentity(set.identity());
+		final String category = addIdentity(set.category().identity());
+		final String container = addIdentity(set.container().identity());
+		final String isAbstractValue = addIdentity(set.value(S23MSemanticDomains.isAbstract).identity());
+		final String maxCardinalityValueInContainer;
+		if (properClass == ProperClass.Vertex) {
+			maxCardinalityValueInContainer = addIdentity(set.value(S23MSemanticDomains.maxCardinality).identity());
+		} else {
+			maxCardinalityValueInContainer = null;
+		}
+
+		graphs.put(urr, new Graph(urr, uuid, category, container, isAbstractValue, properClass, maxCardinalityValueInContainer, null));
+		return urr;
+	}
+
+	private void addArrow(final Set set, final ProperClass properClass) {
+		final String urr = addGraph(set, properClass);
+		if (arrows.containsKey(urr)) {
+			return;
+		}
+
+		final String category = addIdentity(set.category().identity());
+		final String fromGraph = addGraph(set.from(), ProperClass.Vertex);
+		final String toGraph = addGraph(set.to(), ProperClass.Vertex);
+
+		arrows.put(urr, new Arrow(urr, category, properClass, fromGraph, toGraph));
+	}
+
+	private void addEdge(final Set set) {
+		addArrow(set, ProperClass.Edge);
+		final String urr = set.identity().uniqueRepresentationReference().toString();
+		if (edges.containsKey(urr)) {
+			return;
+		}
+
+		final Set from = set.fromEdgeEnd();
+		final Set to = set.toEdgeEnd();
+
+		edges.put(urr, new Edge(urr,
+				addIdentity(from.value(S23MSemanticDomains.minCardinality).identity()),
+				addIdentity(to.value(S23MSemanticDomains.minCardinality).identity()),
+				addIdentity(from.value(S23MSemanticDomains.maxCardinality).identity()),
+				addIdentity(to.value(S23MSemanticDomains.maxCardinality).identity()),
+				addIdentity(from.value(S23MSemanticDomains.isNavigable).identity()),
+				addIdentity(to.value(S23MSemanticDomains.isNavigable).identity()),
+				addIdentity(from.value(S23MSemanticDomains.isContainer).identity()),
+				addIdentity(to.value(S23MSemanticDomains.isContainer).identity()),
+				addGraph(from, ProperClass.EdgeEnd),
+				addGraph(to, ProperClass.EdgeEnd)));
+	}
+
+	/**
+	 * The URR of a graph must itself refer to an Identity row, so one is added which
+	 * carries the names of the represented identity
+	 */
+	private String addRepresentationIdentity(final org.s23m.cell.Identity identity) {
+		final String urr = identity.uniqueRepresentationReference().toString();
+		if (!identities.containsKey(urr)) {
+			final Identity represented = new Identity(identity);
+			identities.put(urr, new Identity(urr, represented.getName(), represented.getPluralName(),
+					represented.getCodeName(), represented.getPluralCodeName(), represented.getPayload()));
+		}
+		return urr;
+	}
+}
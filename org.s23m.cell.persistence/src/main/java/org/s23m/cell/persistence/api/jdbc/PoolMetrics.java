@@ -0,0 +1,115 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Connection pool metrics, collected by registering an instance as the {@link MetricsTrackerFactory} of a HikariCP pool.
+ *
+ * Exposes the current connection counts, the number of threads waiting for a connection,
+ * and statistics on the time taken to acquire connections, which together show whether a pool is sized appropriately.
+ */
+public final class PoolMetrics implements MetricsTrackerFactory {
+
+	private final AtomicLong acquireCount = new AtomicLong();
+
+	private final AtomicLong totalAcquireNanos = new AtomicLong();
+
+	private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	private volatile PoolStats poolStats;
+
+	@Override
+	public MetricsTracker create(final String poolName, final PoolStats poolStats) {
+		this.poolStats = poolStats;
+		return new Tracker();
+	}
+
+	public int getActiveConnections() {
+		final PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getActiveConnections();
+	}
+
+	public int getIdleConnections() {
+		final PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getIdleConnections();
+	}
+
+	public int getTotalConnections() {
+		final PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getTotalConnections();
+	}
+
+	/**
+	 * Returns the number of threads waiting for a connection
+	 */
+	public int getWaitingThreads() {
+		final PoolStats stats = poolStats;
+		return stats == null ? 0 : stats.getPendingThreads();
+	}
+
+	/**
+	 * Returns the number of connections acquired from the pool
+	 */
+	public long getAcquireCount() {
+		return acquireCount.get();
+	}
+
+	/**
+	 * Returns the mean time taken to acquire a connection, in microseconds
+	 */
+	public long getMeanAcquireMicros() {
+		final long count = acquireCount.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalAcquireNanos.get() / count);
+	}
+
+	/**
+	 * Returns the longest time taken to acquire a connection, in microseconds
+	 */
+	public long getMaxAcquireMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get());
+	}
+
+	/**
+	 * Returns the number of requests for a connection which timed out
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return new StringJoiner(", ", getClass().getSimpleName() + "[", "]")
+				.add("active = " + getActiveConnections())
+				.add("idle = " + getIdleConnections())
+				.add("total = " + getTotalConnections())
+				.add("waiting = " + getWaitingThreads())
+				.add("acquireCount = " + getAcquireCount())
+				.add("meanAcquireMicros = " + getMeanAcquireMicros())
+				.add("maxAcquireMicros = " + getMaxAcquireMicros())
+				.add("timeoutCount = " + getTimeoutCount())
+				.toString();
+	}
+
+	private final class Tracker extends MetricsTracker {
+
+		@Override
+		public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos) {
+			acquireCount.incrementAndGet();
+			totalAcquireNanos.addAndGet(elapsedAcquiredNanos);
+			maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+		}
+
+		@Override
+		public void recordConnectionTimeout() {
+			timeoutCount.incrementAndGet();
+		}
+	}
+}
@@ -1,8 +1,13 @@
 package org.s23m.cell.persistence.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import org.s23m.cell.persistence.model.Agent;
 
-public interface AgentDao {
+public interface AgentDao extends ChangeFeed<Agent> {
 
 	/**
 	 * Retrieves the {@link Agent} with the given URR
@@ -11,6 +16,42 @@ public interface AgentDao {
 	 */
 	Agent get(String urr);
 
+	/**
+	 * Retrieves the {@link Agent} instances with the given URRs, keyed by URR in the
+	 * requested order. URRs which do not correspond to a row are absent from the result.
+	 *
+	 * @param urrs
+	 */
+	Map<String, Agent> getAll(Collection<String> urrs);
+
+	/**
+	 * Retrieves the {@link Agent} instances with the given email address
+	 *
+	 * @param email
+	 */
+	List<Agent> findByEmail(String email);
+
+	/**
+	 * Retrieves the {@link Agent} instances with the given alias
+	 *
+	 * @param alias
+	 */
+	List<Agent> findByAlias(String alias);
+
+	/**
+	 * Streams every {@link Agent}, without holding them all in memory.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 */
+	Stream<Agent> scanAll();
+
+	/**
+	 * Retrieves at most limit entities following the cursor position, in sequence number order
+	 *
+	 * @param cursor {@link PageCursor#START}, or the next cursor of a previously read page
+	 * @param limit
+	 */
+	Page<Agent> getPage(PageCursor cursor, int limit);
+
 	/**
 	 * Inserts a new row into the database corresponding to the provided {@link Agent}
 	 *
@@ -24,4 +65,36 @@ public interface AgentDao {
 	 * @param entity
 	 */
 	void update(Agent entity);
+
+	/**
+	 * Inserts a row corresponding to the provided {@link Agent}, or updates the existing row with the same key,
+	 * in a single statement
+	 *
+	 * @param entity
+	 */
+	void upsert(Agent entity);
+
+	/**
+	 * Inserts a new row into the database for each of the provided {@link Agent} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void insertAll(Collection<Agent> entities);
+
+	/**
+	 * Updates the rows corresponding to each of the provided {@link Agent} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void updateAll(Collection<Agent> entities);
+
+	/**
+	 * Inserts or updates the rows corresponding to each of the provided {@link Agent} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void upsertAll(Collection<Agent> entities);
 }
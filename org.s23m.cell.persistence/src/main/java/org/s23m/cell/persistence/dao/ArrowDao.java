@@ -1,8 +1,14 @@
 package org.s23m.cell.persistence.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.ProperClass;
 
-public interface ArrowDao {
+public interface ArrowDao extends ChangeFeed<Arrow> {
 
 	/**
 	 * Retrieves the {@link Arrow} with the given URR
@@ -11,6 +17,44 @@ public interface ArrowDao {
 	 */
 	Arrow get(String urr);
 
+	/**
+	 * Retrieves the {@link Arrow} instances with the given URRs, keyed by URR in the
+	 * requested order. URRs which do not correspond to a row are absent from the result.
+	 *
+	 * @param urrs
+	 */
+	Map<String, Arrow> getAll(Collection<String> urrs);
+
+	/**
+	 * Retrieves the {@link Arrow} instances of the given proper class leading from the given graph
+	 *
+	 * @param fromGraph
+	 * @param properClass
+	 */
+	List<Arrow> findOutgoing(String fromGraph, ProperClass properClass);
+
+	/**
+	 * Retrieves the {@link Arrow} instances of the given proper class leading to the given graph
+	 *
+	 * @param toGraph
+	 * @param properClass
+	 */
+	List<Arrow> findIncoming(String toGraph, ProperClass properClass);
+
+	/**
+	 * Streams every {@link Arrow}, without holding them all in memory.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 */
+	Stream<Arrow> scanAll();
+
+	/**
+	 * Retrieves at most limit entities following the cursor position, in sequence number order
+	 *
+	 * @param cursor {@link PageCursor#START}, or the next cursor of a previously read page
+	 * @param limit
+	 */
+	Page<Arrow> getPage(PageCursor cursor, int limit);
+
 	/**
 	 * Inserts a new row into the database corresponding to the provided {@link Arrow}
 	 *
@@ -24,4 +68,36 @@ public interface ArrowDao {
 	 * @param entity
 	 */
 	void update(Arrow entity);
+
+	/**
+	 * Inserts a row corresponding to the provided {@link Arrow}, or updates the existing row with the same key,
+	 * in a single statement
+	 *
+	 * @param entity
+	 */
+	void upsert(Arrow entity);
+
+	/**
+	 * Inserts a new row into the database for each of the provided {@link Arrow} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void insertAll(Collection<Arrow> entities);
+
+	/**
+	 * Updates the rows corresponding to each of the provided {@link Arrow} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void updateAll(Collection<Arrow> entities);
+
+	/**
+	 * Inserts or updates the rows corresponding to each of the provided {@link Arrow} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void upsertAll(Collection<Arrow> entities);
 }
@@ -0,0 +1,55 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.Objects;
+
+/**
+ * The current state of an entity which was inserted or updated, together with the sequence number
+ * assigned by that write
+ */
+public final class Change<T> {
+
+	private final long sequenceNumber;
+
+	private final T entity;
+
+	/**
+	 * Constructor
+	 *
+	 * @param sequenceNumber
+	 * @param entity
+	 */
+	public Change(final long sequenceNumber, final T entity) {
+		this.sequenceNumber = sequenceNumber;
+		this.entity = Objects.requireNonNull(entity, "entity must not be null");
+	}
+
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(sequenceNumber, entity);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final Change<?> other = (Change<?>) obj;
+		return sequenceNumber == other.sequenceNumber && entity.equals(other.entity);
+	}
+
+	@Override
+	public String toString() {
+		return "Change[sequenceNumber = " + sequenceNumber + ", entity = " + entity + "]";
+	}
+}
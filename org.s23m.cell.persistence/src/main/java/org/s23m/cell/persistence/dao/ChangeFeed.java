@@ -0,0 +1,39 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.List;
+
+/**
+ * Incremental feed of the rows of a table which have been inserted or updated.
+ *
+ * Every insert assigns the row a new sequence number, greater than any allocated before, so a consumer
+ * (e.g. a cache or read replica) can catch up by remembering the sequence numbers it has applied and polling for
+ * subsequent ones. Only the latest state of each row is returned: a row updated several times between polls appears
+ * once. Deletions are not reported.
+ *
+ * Updates are reported by assigning the updated row a new sequence number. Where this is not possible
+ * ({@link #isReassigningSequenceNumbers()} does not hold, as on MySQL, whose AUTO_INCREMENT values cannot be reassigned),
+ * an updated row would keep the sequence number of its insert and a consumer would silently miss the update,
+ * so {@link #pollSince(long, int)} throws an {@link UnsupportedOperationException} instead.
+ *
+ * Sequence numbers are allocated in order, but become visible in the order in which their transactions commit.
+ * A poll can therefore return a change while a change with a smaller sequence number is still in flight, and polling
+ * from the largest sequence number returned would skip that change when it commits. Use a {@link ChangePoller},
+ * which polls again from below such gaps until they are filled or can no longer be filled.
+ */
+public interface ChangeFeed<T> {
+
+	/**
+	 * Retrieves at most max changes with a sequence number greater than the one provided, in sequence number order
+	 *
+	 * @param sequenceNumber a sequence number below which all changes have been applied, or 0 to start from the beginning
+	 * @param max
+	 * @throws UnsupportedOperationException if updated rows are not assigned new sequence numbers
+	 */
+	List<Change<T>> pollSince(long sequenceNumber, int max);
+
+	/**
+	 * Returns whether updated rows are assigned a new sequence number, so that updates appear in the feed
+	 * as well as inserts
+	 */
+	boolean isReassigningSequenceNumbers();
+}
@@ -0,0 +1,152 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes a {@link ChangeFeed} without missing the changes of transactions which commit out of sequence number order.
+ *
+ * Whenever a poll skips over sequence numbers, the skipped range is recorded as a gap, since it may belong to
+ * transactions which have not yet committed. Subsequent polls start from below the oldest open gap (the low-water mark
+ * returned by {@link #getSequenceNumber()}), return the changes which fill gaps, and skip the changes already returned.
+ * Sequence numbers are also skipped permanently, by rolled-back inserts and by rows whose sequence number has been
+ * reassigned by an update, so a gap is abandoned once it has been open for longer than the gap timeout, which should
+ * exceed the duration of the longest write transaction.
+ *
+ * Instances are not thread-safe.
+ */
+public final class ChangePoller<T> {
+
+	private final ChangeFeed<T> feed;
+
+	private final long gapTimeoutNanos;
+
+	/**
+	 * The open gaps keyed by their first sequence number
+	 */
+	private final NavigableMap<Long, Gap> gaps = new TreeMap<>();
+
+	/**
+	 * The largest sequence number returned so far
+	 */
+	private long highestSequenceNumber;
+
+	/**
+	 * Constructor
+	 *
+	 * @param feed
+	 * @param sequenceNumber a sequence number below which all changes have been applied, e.g. a low-water mark
+	 *        previously returned by {@link #getSequenceNumber()}, or 0 to start from the beginning
+	 * @param gapTimeout
+	 * @param unit
+	 * @throws UnsupportedOperationException if the feed does not reassign the sequence numbers of updated rows
+	 */
+	public ChangePoller(final ChangeFeed<T> feed, final long sequenceNumber, final long gapTimeout, final TimeUnit unit) {
+		if (sequenceNumber < 0) {
+			throw new IllegalArgumentException("Sequence number must not be negative: " + sequenceNumber);
+		}
+		if (!feed.isReassigningSequenceNumbers()) {
+			throw new UnsupportedOperationException("Change feed does not report updates, as updated rows keep their sequence numbers");
+		}
+		this.feed = feed;
+		this.highestSequenceNumber = sequenceNumber;
+		this.gapTimeoutNanos = unit.toNanos(gapTimeout);
+	}
+
+	/**
+	 * Retrieves at most max changes which have not been returned before, in sequence number order
+	 * within those which fill gaps and those which follow all changes returned before
+	 *
+	 * @param max
+	 */
+	public List<Change<T>> poll(final int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("Maximum number of changes must be positive: " + max);
+		}
+
+		final long now = System.nanoTime();
+		abandonExpiredGaps(now);
+
+		final List<Change<T>> result = new ArrayList<>();
+		long sequenceNumber = getSequenceNumber();
+		boolean exhausted = false;
+		while (!exhausted && result.size() < max) {
+			final List<Change<T>> changes = feed.pollSince(sequenceNumber, max);
+			exhausted = changes.size() < max;
+			for (final Change<T> change : changes) {
+				if (result.size() == max) {
+					break;
+				}
+				final long changeSequenceNumber = change.getSequenceNumber();
+				if (changeSequenceNumber > highestSequenceNumber) {
+					if (changeSequenceNumber > highestSequenceNumber + 1) {
+						gaps.put(highestSequenceNumber + 1, new Gap(changeSequenceNumber - 1, now));
+					}
+					highestSequenceNumber = changeSequenceNumber;
+					result.add(change);
+				} else if (fillGap(changeSequenceNumber)) {
+					result.add(change);
+				}
+				// otherwise the change was returned by an earlier poll
+				sequenceNumber = changeSequenceNumber;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the low-water mark: all changes up to this sequence number have been returned,
+	 * or belong to abandoned gaps. Polling resumes from here after a restart, so changes after it may be returned twice.
+	 */
+	public long getSequenceNumber() {
+		return gaps.isEmpty() ? highestSequenceNumber : gaps.firstKey() - 1;
+	}
+
+	private void abandonExpiredGaps(final long now) {
+		final Iterator<Gap> iterator = gaps.values().iterator();
+		while (iterator.hasNext()) {
+			if (now - iterator.next().openedNanos >= gapTimeoutNanos) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the sequence number from the gap containing it, splitting the gap if necessary
+	 *
+	 * @return whether the sequence number was in a gap
+	 */
+	private boolean fillGap(final long sequenceNumber) {
+		final Map.Entry<Long, Gap> entry = gaps.floorEntry(sequenceNumber);
+		if (entry == null || entry.getValue().last < sequenceNumber) {
+			return false;
+		}
+		final long first = entry.getKey();
+		final Gap gap = entry.getValue();
+		gaps.remove(first);
+		if (first < sequenceNumber) {
+			gaps.put(first, new Gap(sequenceNumber - 1, gap.openedNanos));
+		}
+		if (sequenceNumber < gap.last) {
+			gaps.put(sequenceNumber + 1, new Gap(gap.last, gap.openedNanos));
+		}
+		return true;
+	}
+
+	private static final class Gap {
+
+		private final long last;
+
+		private final long openedNanos;
+
+		Gap(final long last, final long openedNanos) {
+			this.last = last;
+			this.openedNanos = openedNanos;
+		}
+	}
+}
@@ -1,8 +1,13 @@
 package org.s23m.cell.persistence.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import org.s23m.cell.persistence.model.Edge;
 
-public interface EdgeDao {
+public interface EdgeDao extends ChangeFeed<Edge> {
 
 	/**
 	 * Retrieves the {@link Edge} with the given URR
@@ -11,6 +16,49 @@ public interface EdgeDao {
 	 */
 	Edge get(String urr);
 
+	/**
+	 * Retrieves the {@link Edge} instances with the given URRs, keyed by URR in the
+	 * requested order. URRs which do not correspond to a row are absent from the result.
+	 *
+	 * @param urrs
+	 */
+	Map<String, Edge> getAll(Collection<String> urrs);
+
+	/**
+	 * Retrieves the {@link Edge} instances with the given edge end as their from edge end
+	 *
+	 * @param fromEdgeEnd
+	 */
+	List<Edge> findByFromEdgeEnd(String fromEdgeEnd);
+
+	/**
+	 * Retrieves the {@link Edge} instances with the given edge end as their to edge end
+	 *
+	 * @param toEdgeEnd
+	 */
+	List<Edge> findByToEdgeEnd(String toEdgeEnd);
+
+	/**
+	 * Retrieves the {@link Edge} instances with the given edge end at either end
+	 *
+	 * @param edgeEnd
+	 */
+	List<Edge> findByEdgeEnd(String edgeEnd);
+
+	/**
+	 * Streams every {@link Edge}, without holding them all in memory.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 */
+	Stream<Edge> scanAll();
+
+	/**
+	 * Retrieves at most limit entities following the cursor position, in sequence number order
+	 *
+	 * @param cursor {@link PageCursor#START}, or the next cursor of a previously read page
+	 * @param limit
+	 */
+	Page<Edge> getPage(PageCursor cursor, int limit);
+
 	/**
 	 * Inserts a new row into the database corresponding to the provided {@link Edge}
 	 *
@@ -24,4 +72,56 @@ public interface EdgeDao {
 	 * @param entity
 	 */
 	void update(Edge entity);
+
+	/**
+	 * Updates only the columns of the row which differ between the provided states of a {@link Edge}.
+	 * No statement is executed if they are equal.
+	 *
+	 * @param original the state of the row as last read
+	 * @param entity the new state, with the same URR
+	 * @return whether the row was written
+	 */
+	boolean update(Edge original, Edge entity);
+
+	/**
+	 * Inserts a row corresponding to the provided {@link Edge}, or updates the existing row with the same key,
+	 * in a single statement
+	 *
+	 * @param entity
+	 */
+	void upsert(Edge entity);
+
+	/**
+	 * Inserts a new row into the database for each of the provided {@link Edge} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void insertAll(Collection<Edge> entities);
+
+	/**
+	 * Updates the rows corresponding to each of the provided {@link Edge} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void updateAll(Collection<Edge> entities);
+
+	/**
+	 * Updates only the changed columns of each of the provided {@link Edge} instances, sending rows with the same
+	 * changed columns in batches. Unchanged rows are skipped, and rows without an original are written in full.
+	 *
+	 * @param originals the state of the rows as last read, keyed by URR, e.g. as returned by {@link #getAll(Collection)}
+	 * @param entities the new states
+	 * @return the number of rows written
+	 */
+	int updateAll(Map<String, Edge> originals, Collection<Edge> entities);
+
+	/**
+	 * Inserts or updates the rows corresponding to each of the provided {@link Edge} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void upsertAll(Collection<Edge> entities);
 }
@@ -0,0 +1,15 @@
+package org.s23m.cell.persistence.dao;
+
+/**
+ * Loads an edge together with the rows it refers to
+ */
+public interface EdgeResolver {
+
+	/**
+	 * Loads the edge with the given URR, its arrow, the graphs at either end of both, and the identities they refer to
+	 *
+	 * @param urr
+	 * @return null if there is no such edge
+	 */
+	ResolvedEdge resolve(String urr);
+}
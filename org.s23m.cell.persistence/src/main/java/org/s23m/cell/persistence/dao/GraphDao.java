@@ -1,8 +1,13 @@
 package org.s23m.cell.persistence.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import org.s23m.cell.persistence.model.Graph;
 
-public interface GraphDao {
+public interface GraphDao extends ChangeFeed<Graph> {
 
 	/**
 	 * Retrieves the {@link Graph} with the given URR
@@ -11,6 +16,46 @@ public interface GraphDao {
 	 */
 	Graph get(String urr);
 
+	/**
+	 * Retrieves the {@link Graph} instances with the given URRs, keyed by URR in the
+	 * requested order. URRs which do not correspond to a row are absent from the result.
+	 *
+	 * @param urrs
+	 */
+	Map<String, Graph> getAll(Collection<String> urrs);
+
+	/**
+	 * Retrieves the {@link Graph} with the given URR together with all graphs transitively contained in it,
+	 * i.e. whose container is the identity of a graph in the subtree, using a single query.
+	 * Graphs are ordered by depth and then by sequence number, so the root comes first and each graph follows its container.
+	 *
+	 * @param rootUrr
+	 * @param maxDepth the maximum containment depth below the root, where 0 retrieves only the root
+	 */
+	List<Graph> loadSubtree(String rootUrr, int maxDepth);
+
+	/**
+	 * Streams every {@link Graph}, without holding them all in memory.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 */
+	Stream<Graph> scanAll();
+
+	/**
+	 * Streams every {@link Graph} with the given container, retrieving whole rows as {@link #scanAll()} does.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 *
+	 * @param container
+	 */
+	Stream<Graph> streamByContainer(String container);
+
+	/**
+	 * Retrieves at most limit entities following the cursor position, in sequence number order
+	 *
+	 * @param cursor {@link PageCursor#START}, or the next cursor of a previously read page
+	 * @param limit
+	 */
+	Page<Graph> getPage(PageCursor cursor, int limit);
+
 	/**
 	 * Inserts a new row into the database corresponding to the provided {@link Graph}
 	 *
@@ -24,4 +69,56 @@ public interface GraphDao {
 	 * @param entity
 	 */
 	void update(Graph entity);
+
+	/**
+	 * Updates only the columns of the row which differ between the provided states of a {@link Graph}.
+	 * No statement is executed if they are equal.
+	 *
+	 * @param original the state of the row as last read
+	 * @param entity the new state, with the same URR
+	 * @return whether the row was written
+	 */
+	boolean update(Graph original, Graph entity);
+
+	/**
+	 * Inserts a row corresponding to the provided {@link Graph}, or updates the existing row with the same key,
+	 * in a single statement
+	 *
+	 * @param entity
+	 */
+	void upsert(Graph entity);
+
+	/**
+	 * Inserts a new row into the database for each of the provided {@link Graph} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void insertAll(Collection<Graph> entities);
+
+	/**
+	 * Updates the rows corresponding to each of the provided {@link Graph} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void updateAll(Collection<Graph> entities);
+
+	/**
+	 * Updates only the changed columns of each of the provided {@link Graph} instances, sending rows with the same
+	 * changed columns in batches. Unchanged rows are skipped, and rows without an original are written in full.
+	 *
+	 * @param originals the state of the rows as last read, keyed by URR, e.g. as returned by {@link #getAll(Collection)}
+	 * @param entities the new states
+	 * @return the number of rows written
+	 */
+	int updateAll(Map<String, Graph> originals, Collection<Graph> entities);
+
+	/**
+	 * Inserts or updates the rows corresponding to each of the provided {@link Graph} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void upsertAll(Collection<Graph> entities);
 }
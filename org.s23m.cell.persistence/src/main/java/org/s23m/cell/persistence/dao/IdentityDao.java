@@ -1,8 +1,12 @@
 package org.s23m.cell.persistence.dao;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Stream;
+
 import org.s23m.cell.persistence.model.Identity;
 
-public interface IdentityDao {
+public interface IdentityDao extends ChangeFeed<Identity> {
 
 	/**
 	 * Retrieves the {@link Identity} with the given UUID
@@ -11,6 +15,28 @@ public interface IdentityDao {
 	 */
 	Identity get(String uuid);
 
+	/**
+	 * Retrieves the {@link Identity} instances with the given UUIDs, keyed by UUID in the
+	 * requested order. UUIDs which do not correspond to a row are absent from the result.
+	 *
+	 * @param uuids
+	 */
+	Map<String, Identity> getAll(Collection<String> uuids);
+
+	/**
+	 * Streams every {@link Identity}, without holding them all in memory.
+	 * The stream holds database resources, so it must be closed once consumed.
+	 */
+	Stream<Identity> scanAll();
+
+	/**
+	 * Retrieves at most limit entities following the cursor position, in sequence number order
+	 *
+	 * @param cursor {@link PageCursor#START}, or the next cursor of a previously read page
+	 * @param limit
+	 */
+	Page<Identity> getPage(PageCursor cursor, int limit);
+
 	/**
 	 * Inserts a new row into the database corresponding to the provided {@link Identity}
 	 *
@@ -24,4 +50,36 @@ public interface IdentityDao {
 	 * @param entity
 	 */
 	void update(Identity entity);
+
+	/**
+	 * Inserts a row corresponding to the provided {@link Identity}, or updates the existing row with the same key,
+	 * in a single statement
+	 *
+	 * @param entity
+	 */
+	void upsert(Identity entity);
+
+	/**
+	 * Inserts a new row into the database for each of the provided {@link Identity} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void insertAll(Collection<Identity> entities);
+
+	/**
+	 * Updates the rows corresponding to each of the provided {@link Identity} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void updateAll(Collection<Identity> entities);
+
+	/**
+	 * Inserts or updates the rows corresponding to each of the provided {@link Identity} instances,
+	 * sending them in batches
+	 *
+	 * @param entities
+	 */
+	void upsertAll(Collection<Identity> entities);
 }
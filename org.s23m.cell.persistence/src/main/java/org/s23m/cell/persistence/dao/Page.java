@@ -0,0 +1,51 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of entities read in sequence number order, together with the cursor from which the next page is read
+ */
+public final class Page<T> {
+
+	private final List<T> entities;
+
+	private final PageCursor nextCursor;
+
+	private final boolean last;
+
+	/**
+	 * Constructor
+	 *
+	 * @param entities
+	 * @param nextCursor the position following the last entity in this page
+	 * @param last whether there are no further entities
+	 */
+	public Page(final List<T> entities, final PageCursor nextCursor, final boolean last) {
+		this.entities = Collections.unmodifiableList(Objects.requireNonNull(entities, "entities must not be null"));
+		this.nextCursor = Objects.requireNonNull(nextCursor, "nextCursor must not be null");
+		this.last = last;
+	}
+
+	public List<T> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * Returns the cursor from which the next page is read. For the last page, this may be retained
+	 * and used later to read only rows which have been added since.
+	 */
+	public PageCursor getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean isLast() {
+		return last;
+	}
+
+	@Override
+	public String toString() {
+		return "Page[entities = " + entities + ", nextCursor = " + nextCursor + ", last = " + last + "]";
+	}
+}
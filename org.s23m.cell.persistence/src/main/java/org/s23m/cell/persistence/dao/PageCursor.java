@@ -0,0 +1,79 @@
+package org.s23m.cell.persistence.dao;
+
+/**
+ * Position within a table ordered by sequence number, from which a subsequent {@link Page} is read.
+ *
+ * A cursor can be converted to an opaque token (e.g. for inclusion in a URL) and restored from it later,
+ * so that paging can be resumed without the client retaining any other state.
+ */
+public final class PageCursor {
+
+	/**
+	 * The position before the first row
+	 */
+	public static final PageCursor START = new PageCursor(0L);
+
+	private final long sequenceNumber;
+
+	private PageCursor(final long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * Returns the position immediately following the row with the given sequence number
+	 *
+	 * @param sequenceNumber
+	 */
+	public static PageCursor after(final long sequenceNumber) {
+		if (sequenceNumber < 0) {
+			throw new IllegalArgumentException("Sequence number must not be negative: " + sequenceNumber);
+		}
+		return new PageCursor(sequenceNumber);
+	}
+
+	/**
+	 * Restores a cursor from a token previously returned by {@link #toToken()}
+	 *
+	 * @param token
+	 */
+	public static PageCursor fromToken(final String token) {
+		try {
+			return after(Long.parseLong(token, Character.MAX_RADIX));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid page cursor token: '" + token + "'", e);
+		}
+	}
+
+	public String toToken() {
+		return Long.toString(sequenceNumber, Character.MAX_RADIX);
+	}
+
+	/**
+	 * Returns the sequence number of the last row read; subsequent pages contain only larger sequence numbers
+	 */
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(sequenceNumber);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final PageCursor other = (PageCursor) obj;
+		return sequenceNumber == other.sequenceNumber;
+	}
+
+	@Override
+	public String toString() {
+		return "PageCursor[sequenceNumber = " + sequenceNumber + "]";
+	}
+}
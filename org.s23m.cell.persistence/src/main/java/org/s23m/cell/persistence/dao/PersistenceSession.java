@@ -0,0 +1,102 @@
+package org.s23m.cell.persistence.dao;
+
+import org.s23m.cell.persistence.model.Agent;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * A unit of work which buffers inserts and updates in memory until {@link #flush()} is called.
+ *
+ * Writes are keyed by primary key, so repeatedly updating the same row results in a single UPDATE
+ * carrying the latest state, and updating a row which is pending insertion simply changes the values inserted.
+ */
+public interface PersistenceSession {
+
+	/**
+	 * Schedules the provided {@link Identity} for insertion
+	 *
+	 * @param entity
+	 */
+	void insert(Identity entity);
+
+	/**
+	 * Schedules the provided {@link Graph} for insertion
+	 *
+	 * @param entity
+	 */
+	void insert(Graph entity);
+
+	/**
+	 * Schedules the provided {@link Arrow} for insertion
+	 *
+	 * @param entity
+	 */
+	void insert(Arrow entity);
+
+	/**
+	 * Schedules the provided {@link Edge} for insertion
+	 *
+	 * @param entity
+	 */
+	void insert(Edge entity);
+
+	/**
+	 * Schedules the provided {@link Agent} for insertion
+	 *
+	 * @param entity
+	 */
+	void insert(Agent entity);
+
+	/**
+	 * Schedules an update of the row corresponding to the provided {@link Identity}
+	 *
+	 * @param entity
+	 */
+	void update(Identity entity);
+
+	/**
+	 * Schedules an update of the row corresponding to the provided {@link Graph}
+	 *
+	 * @param entity
+	 */
+	void update(Graph entity);
+
+	/**
+	 * Schedules an update of the row corresponding to the provided {@link Arrow}
+	 *
+	 * @param entity
+	 */
+	void update(Arrow entity);
+
+	/**
+	 * Schedules an update of the row corresponding to the provided {@link Edge}
+	 *
+	 * @param entity
+	 */
+	void update(Edge entity);
+
+	/**
+	 * Schedules an update of the row corresponding to the provided {@link Agent}
+	 *
+	 * @param entity
+	 */
+	void update(Agent entity);
+
+	/**
+	 * Writes all pending inserts and updates to the database, respecting foreign key dependencies.
+	 * If writing fails, nothing is written and the pending writes are retained.
+	 */
+	void flush();
+
+	/**
+	 * Discards all pending inserts and updates
+	 */
+	void clear();
+
+	/**
+	 * Returns the number of rows which will be written by the next {@link #flush()}
+	 */
+	int getPendingCount();
+}
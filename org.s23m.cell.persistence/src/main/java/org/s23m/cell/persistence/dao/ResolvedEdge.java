@@ -0,0 +1,63 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * An edge together with its arrow, the graphs it connects and the identities it refers to
+ */
+public final class ResolvedEdge {
+
+	private final Edge edge;
+
+	private final Arrow arrow;
+
+	private final Map<String, Graph> graphs;
+
+	private final Map<String, Identity> identities;
+
+	/**
+	 * Constructor
+	 *
+	 * @param edge
+	 * @param arrow
+	 * @param graphs the ends of the arrow and of the edge, keyed by URR
+	 * @param identities the category of the arrow and the values of the edge ends, keyed by UUID
+	 */
+	public ResolvedEdge(final Edge edge, final Arrow arrow, final Map<String, Graph> graphs, final Map<String, Identity> identities) {
+		this.edge = Objects.requireNonNull(edge, "edge must not be null");
+		this.arrow = Objects.requireNonNull(arrow, "arrow must not be null");
+		this.graphs = Collections.unmodifiableMap(graphs);
+		this.identities = Collections.unmodifiableMap(identities);
+	}
+
+	public Edge getEdge() {
+		return edge;
+	}
+
+	public Arrow getArrow() {
+		return arrow;
+	}
+
+	public Graph getFromEdgeEnd() {
+		return graphs.get(edge.getFromEdgeEnd());
+	}
+
+	public Graph getToEdgeEnd() {
+		return graphs.get(edge.getToEdgeEnd());
+	}
+
+	public Map<String, Graph> getGraphs() {
+		return graphs;
+	}
+
+	public Map<String, Identity> getIdentities() {
+		return identities;
+	}
+}
@@ -0,0 +1,63 @@
+package org.s23m.cell.persistence.dao;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * The rows making up a containment subtree: its graphs, the arrows and edges among them,
+ * and the identities they refer to, each keyed by primary key
+ */
+public final class Subtree {
+
+	private final Map<String, Graph> graphs;
+
+	private final Map<String, Arrow> arrows;
+
+	private final Map<String, Edge> edges;
+
+	private final Map<String, Identity> identities;
+
+	/**
+	 * Constructor
+	 *
+	 * @param graphs ordered by containment depth, starting with the root
+	 * @param arrows
+	 * @param edges
+	 * @param identities
+	 */
+	public Subtree(final Map<String, Graph> graphs, final Map<String, Arrow> arrows, final Map<String, Edge> edges,
+			final Map<String, Identity> identities) {
+		this.graphs = Collections.unmodifiableMap(graphs);
+		this.arrows = Collections.unmodifiableMap(arrows);
+		this.edges = Collections.unmodifiableMap(edges);
+		this.identities = Collections.unmodifiableMap(identities);
+	}
+
+	/**
+	 * Returns the root, or null if the subtree is empty because the root does not exist
+	 */
+	public Graph getRoot() {
+		return graphs.isEmpty() ? null : graphs.values().iterator().next();
+	}
+
+	public Map<String, Graph> getGraphs() {
+		return graphs;
+	}
+
+	public Map<String, Arrow> getArrows() {
+		return arrows;
+	}
+
+	public Map<String, Edge> getEdges() {
+		return edges;
+	}
+
+	public Map<String, Identity> getIdentities() {
+		return identities;
+	}
+}
@@ -0,0 +1,15 @@
+package org.s23m.cell.persistence.dao;
+
+/**
+ * Loads containment subtrees in a small number of set-based queries, rather than one query per row
+ */
+public interface SubtreeLoader {
+
+	/**
+	 * Loads the graph with the given URR, all graphs transitively contained in it, and their associated rows
+	 *
+	 * @param rootUrr
+	 * @param maxDepth the maximum containment depth below the root, where 0 loads only the root
+	 */
+	Subtree load(String rootUrr, int maxDepth);
+}
@@ -0,0 +1,263 @@
+package org.s23m.cell.persistence.dao.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.IdentityDao;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * Read-through cache in front of another {@link IdentityDao}.
+ *
+ * At most maximumSize identities are retained, with the least recently used one being evicted first.
+ * Updated and upserted identities are invalidated, so subsequent lookups read the new state from the underlying DAO.
+ * Lookups which find no row are not cached.
+ */
+public final class CachingIdentityDao implements IdentityDao {
+
+	private final IdentityDao delegate;
+
+	private final int maximumSize;
+
+	private final Map<String, Identity> cache;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Incremented on every invalidation, so that a value loaded concurrently with an update is not cached
+	 */
+	private long generation;
+
+	/**
+	 * Constructor
+	 *
+	 * @param delegate
+	 * @param maximumSize the maximum number of identities retained
+	 */
+	public CachingIdentityDao(final IdentityDao delegate, final int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+		}
+		this.delegate = delegate;
+		this.maximumSize = maximumSize;
+		// access order gives least recently used iteration order
+		this.cache = new LinkedHashMap<String, Identity>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Identity> eldest) {
+				final boolean evict = size() > CachingIdentityDao.this.maximumSize;
+				if (evict) {
+					evictionCount.incrementAndGet();
+				}
+				return evict;
+			}
+		};
+	}
+
+	@Override
+	public Identity get(final String uuid) {
+		final long loadGeneration;
+		synchronized (cache) {
+			final Identity cached = cache.get(uuid);
+			if (cached != null) {
+				hitCount.incrementAndGet();
+				return cached;
+			}
+			loadGeneration = generation;
+		}
+
+		missCount.incrementAndGet();
+		final Identity loaded = delegate.get(uuid);
+		if (loaded != null) {
+			synchronized (cache) {
+				if (generation == loadGeneration) {
+					cache.put(uuid, loaded);
+				}
+			}
+		}
+		return loaded;
+	}
+
+	@Override
+	public Map<String, Identity> getAll(final Collection<String> uuids) {
+		final Collection<String> distinctUuids = new LinkedHashSet<>(uuids);
+		final Map<String, Identity> found = new LinkedHashMap<>();
+		final List<String> missing = new ArrayList<>();
+		final long loadGeneration;
+		synchronized (cache) {
+			for (final String uuid : distinctUuids) {
+				final Identity cached = cache.get(uuid);
+				if (cached != null) {
+					found.put(uuid, cached);
+				} else {
+					missing.add(uuid);
+				}
+			}
+			loadGeneration = generation;
+		}
+		hitCount.addAndGet(found.size());
+		missCount.addAndGet(missing.size());
+
+		if (missing.isEmpty()) {
+			return found;
+		}
+
+		final Map<String, Identity> loaded = delegate.getAll(missing);
+		synchronized (cache) {
+			if (generation == loadGeneration) {
+				cache.putAll(loaded);
+			}
+		}
+		found.putAll(loaded);
+
+		// restore the requested order
+		final Map<String, Identity> result = new LinkedHashMap<>();
+		for (final String uuid : distinctUuids) {
+			final Identity identity = found.get(uuid);
+			if (identity != null) {
+				result.put(uuid, identity);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Scans the underlying DAO directly, without populating the cache
+	 */
+	@Override
+	public Stream<Identity> scanAll() {
+		return delegate.scanAll();
+	}
+
+	/**
+	 * Reads the page from the underlying DAO directly, without populating the cache
+	 */
+	@Override
+	public Page<Identity> getPage(final PageCursor cursor, final int limit) {
+		return delegate.getPage(cursor, limit);
+	}
+
+	@Override
+	public List<Change<Identity>> pollSince(final long sequenceNumber, final int max) {
+		return delegate.pollSince(sequenceNumber, max);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return delegate.isReassigningSequenceNumbers();
+	}
+
+	@Override
+	public void insert(final Identity entity) {
+		delegate.insert(entity);
+	}
+
+	@Override
+	public void update(final Identity entity) {
+		try {
+			delegate.update(entity);
+		} finally {
+			invalidate(entity.getUuid());
+		}
+	}
+
+	@Override
+	public void upsert(final Identity entity) {
+		try {
+			delegate.upsert(entity);
+		} finally {
+			invalidate(entity.getUuid());
+		}
+	}
+
+	@Override
+	public void insertAll(final Collection<Identity> entities) {
+		delegate.insertAll(entities);
+	}
+
+	@Override
+	public void updateAll(final Collection<Identity> entities) {
+		try {
+			delegate.updateAll(entities);
+		} finally {
+			invalidateEntities(entities);
+		}
+	}
+
+	@Override
+	public void upsertAll(final Collection<Identity> entities) {
+		try {
+			delegate.upsertAll(entities);
+		} finally {
+			invalidateEntities(entities);
+		}
+	}
+
+	/**
+	 * Removes the identity with the given UUID from the cache
+	 *
+	 * @param uuid
+	 */
+	public void invalidate(final String uuid) {
+		synchronized (cache) {
+			generation++;
+			cache.remove(uuid);
+		}
+	}
+
+	private void invalidateEntities(final Collection<Identity> entities) {
+		synchronized (cache) {
+			generation++;
+			for (final Identity entity : entities) {
+				cache.remove(entity.getUuid());
+			}
+		}
+	}
+
+	/**
+	 * Removes all identities from the cache
+	 */
+	public void invalidateAll() {
+		synchronized (cache) {
+			generation++;
+			cache.clear();
+		}
+	}
+
+	public int getSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+}
@@ -0,0 +1,136 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.commons.dbutils.QueryRunner;
+
+/**
+ * Inserts entities in chunks of at most batchSize rows, using the fastest form the dialect offers.
+ *
+ * Where the driver rewrites JDBC batches into multi-row statements (see {@link SqlDialect#isDriverRewritingBatchedInserts()}),
+ * each chunk is sent as a JDBC batch of the single-row INSERT template. Otherwise each chunk is sent as a single
+ * multi-row VALUES statement (smaller where the statement parameter limit requires it), and the final rows are sent
+ * as statements whose row counts are decreasing powers of two, so that few distinct templates are prepared.
+ */
+final class BatchInserts<T> {
+
+	/**
+	 * The maximum number of parameters in a single statement, which is the limit of PostgreSQL and the MySQL server
+	 */
+	static final int MAXIMUM_PARAMETERS = 32767;
+
+	private final SqlDialect dialect;
+
+	private final Class<T> entityClass;
+
+	private final String[] columnNames;
+
+	private final Function<T, Object[]> parameterFactory;
+
+	private final int batchSize;
+
+	private final String insertTemplate;
+
+	/**
+	 * The largest number of rows inserted by a single multi-row statement
+	 */
+	private final int maximumRowsPerStatement;
+
+	/**
+	 * Multi-row templates keyed by their row count
+	 */
+	private final Map<Integer, String> templates = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param columnNames the columns in parameter order
+	 * @param parameterFactory creates the statement parameters for an entity
+	 * @param batchSize
+	 */
+	BatchInserts(final SqlDialect dialect, final Class<T> entityClass, final String[] columnNames,
+			final Function<T, Object[]> parameterFactory, final int batchSize) {
+		this.dialect = dialect;
+		this.entityClass = entityClass;
+		this.columnNames = columnNames;
+		this.parameterFactory = parameterFactory;
+		this.batchSize = BatchStatements.validateBatchSize(batchSize);
+		this.insertTemplate = SqlQueryTemplates.createInsertStatementTemplate(entityClass, columnNames);
+		this.maximumRowsPerStatement = Math.max(1, Math.min(batchSize, MAXIMUM_PARAMETERS / columnNames.length));
+	}
+
+	/**
+	 * Inserts the entities, sending each chunk using a connection obtained from the query runner's data source
+	 *
+	 * @param queryRunner
+	 * @param entities
+	 */
+	void insertAll(final QueryRunner queryRunner, final Collection<T> entities) {
+		final String description = "insert " + entityClass.getSimpleName();
+		if (dialect.isDriverRewritingBatchedInserts()) {
+			BatchStatements.execute(queryRunner, insertTemplate, entities, parameterFactory, batchSize, description);
+		} else {
+			insertAll((template, parameters) -> queryRunner.update(template, parameters), entities, description);
+		}
+	}
+
+	/**
+	 * Inserts the entities using the provided connection, which is neither committed nor closed
+	 *
+	 * @param queryRunner
+	 * @param connection
+	 * @param entities
+	 */
+	void insertAll(final QueryRunner queryRunner, final Connection connection, final Collection<T> entities) {
+		final String description = "insert " + entityClass.getSimpleName();
+		if (dialect.isDriverRewritingBatchedInserts()) {
+			BatchStatements.execute(queryRunner, connection, insertTemplate, entities, parameterFactory, batchSize, description);
+		} else {
+			insertAll((template, parameters) -> queryRunner.update(connection, template, parameters), entities, description);
+		}
+	}
+
+	private void insertAll(final StatementExecutor executor, final Collection<T> entities, final String description) {
+		final Iterator<T> iterator = entities.iterator();
+		int remaining = entities.size();
+		while (remaining > 0) {
+			final int rowCount = remaining >= maximumRowsPerStatement ? maximumRowsPerStatement : Integer.highestOneBit(remaining);
+			final Object[] parameters = new Object[rowCount * columnNames.length];
+			for (int i = 0; i < rowCount; i++) {
+				final Object[] row = parameterFactory.apply(iterator.next());
+				System.arraycopy(row, 0, parameters, i * columnNames.length, columnNames.length);
+			}
+			remaining -= rowCount;
+
+			try {
+				final int updates = executor.execute(getTemplate(rowCount), parameters);
+				if (updates != rowCount) {
+					throw new RuntimeException("Failed to " + description + ": " + updates + " of " + rowCount + " rows inserted");
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not " + description + " batch of " + rowCount + " rows", e);
+			}
+		}
+	}
+
+	private String getTemplate(final int rowCount) {
+		if (rowCount == 1) {
+			return insertTemplate;
+		}
+		return templates.computeIfAbsent(rowCount,
+				count -> SqlQueryTemplates.createMultiRowInsertStatementTemplate(entityClass, columnNames, count));
+	}
+
+	@FunctionalInterface
+	private interface StatementExecutor {
+		int execute(String template, Object[] parameters) throws SQLException;
+	}
+}
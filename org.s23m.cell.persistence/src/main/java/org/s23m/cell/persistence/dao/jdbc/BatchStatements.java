@@ -0,0 +1,146 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import org.apache.commons.dbutils.QueryRunner;
+
+/**
+ * Executes a statement template once per entity, sending the parameters to the database in JDBC batches
+ */
+final class BatchStatements {
+
+	/**
+	 * The default maximum number of rows sent to the database in a single batch
+	 */
+	static final int DEFAULT_BATCH_SIZE = 500;
+
+	private BatchStatements() {
+	}
+
+	static int validateBatchSize(final int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		return batchSize;
+	}
+
+	/**
+	 * Executes the template for each entity, in chunks of at most batchSize rows.
+	 * Each chunk is sent using a connection obtained from the query runner's data source.
+	 *
+	 * @param queryRunner
+	 * @param template the statement template to execute
+	 * @param entities
+	 * @param parameterFactory creates the statement parameters for an entity
+	 * @param batchSize
+	 * @param description describes the operation in error messages, e.g. "insert Identity"
+	 */
+	static <T> void execute(final QueryRunner queryRunner, final String template, final Collection<T> entities,
+			final Function<T, Object[]> parameterFactory, final int batchSize, final String description) {
+		execute(parameters -> queryRunner.batch(template, parameters), entities, parameterFactory, batchSize, description);
+	}
+
+	/**
+	 * Executes the template for each entity, in chunks of at most batchSize rows.
+	 * All chunks are sent using the provided connection, which is neither committed nor closed.
+	 *
+	 * @param queryRunner
+	 * @param connection
+	 * @param template the statement template to execute
+	 * @param entities
+	 * @param parameterFactory creates the statement parameters for an entity
+	 * @param batchSize
+	 * @param description describes the operation in error messages, e.g. "insert Identity"
+	 */
+	static <T> void execute(final QueryRunner queryRunner, final Connection connection, final String template,
+			final Collection<T> entities, final Function<T, Object[]> parameterFactory, final int batchSize,
+			final String description) {
+		execute(parameters -> queryRunner.batch(connection, template, parameters), entities, parameterFactory, batchSize, description);
+	}
+
+	/**
+	 * Executes an upsert template for each entity, in chunks of at most batchSize rows.
+	 * Each chunk is sent using a connection obtained from the query runner's data source.
+	 *
+	 * Unlike inserts and updates, the row counts are not checked, since some databases (e.g. MySQL)
+	 * report 2 for a row which was updated and 0 for one which was unchanged.
+	 *
+	 * @param queryRunner
+	 * @param template the statement template to execute
+	 * @param entities
+	 * @param parameterFactory creates the statement parameters for an entity
+	 * @param batchSize
+	 * @param description describes the operation in error messages, e.g. "upsert Identity"
+	 */
+	static <T> void executeUpserts(final QueryRunner queryRunner, final String template, final Collection<T> entities,
+			final Function<T, Object[]> parameterFactory, final int batchSize, final String description) {
+		execute(parameters -> queryRunner.batch(template, parameters), entities, parameterFactory, batchSize, false, description);
+	}
+
+	/**
+	 * Executes an upsert template for each entity, in chunks of at most batchSize rows.
+	 * All chunks are sent using the provided connection, which is neither committed nor closed.
+	 *
+	 * @param queryRunner
+	 * @param connection
+	 * @param template the statement template to execute
+	 * @param entities
+	 * @param parameterFactory creates the statement parameters for an entity
+	 * @param batchSize
+	 * @param description describes the operation in error messages, e.g. "upsert Identity"
+	 */
+	static <T> void executeUpserts(final QueryRunner queryRunner, final Connection connection, final String template,
+			final Collection<T> entities, final Function<T, Object[]> parameterFactory, final int batchSize,
+			final String description) {
+		execute(parameters -> queryRunner.batch(connection, template, parameters), entities, parameterFactory, batchSize, false, description);
+	}
+
+	private static <T> void execute(final ChunkExecutor executor, final Collection<T> entities,
+			final Function<T, Object[]> parameterFactory, final int batchSize, final String description) {
+		execute(executor, entities, parameterFactory, batchSize, true, description);
+	}
+
+	private static <T> void execute(final ChunkExecutor executor, final Collection<T> entities,
+			final Function<T, Object[]> parameterFactory, final int batchSize, final boolean checkUpdateCounts,
+			final String description) {
+
+		final Iterator<T> iterator = entities.iterator();
+		int remaining = entities.size();
+		while (remaining > 0) {
+			final int chunkSize = Math.min(remaining, batchSize);
+			final Object[][] parameters = new Object[chunkSize][];
+			for (int i = 0; i < chunkSize; i++) {
+				parameters[i] = parameterFactory.apply(iterator.next());
+			}
+			remaining -= chunkSize;
+
+			try {
+				final int[] updates = executor.execute(parameters);
+				if (checkUpdateCounts) {
+					checkUpdateCounts(updates, description);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not " + description + " batch of " + chunkSize + " rows", e);
+			}
+		}
+	}
+
+	private static void checkUpdateCounts(final int[] updates, final String description) {
+		for (int i = 0; i < updates.length; i++) {
+			// some drivers (e.g. MySQL with rewritten batches) do not report individual row counts
+			if (updates[i] != 1 && updates[i] != Statement.SUCCESS_NO_INFO) {
+				throw new RuntimeException("Failed to " + description + " at batch position " + i);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface ChunkExecutor {
+		int[] execute(Object[][] parameters) throws SQLException;
+	}
+}
@@ -0,0 +1,192 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Describes the bind parameters of a statement for logging, naming each parameter after the column it is bound to
+ * and masking the values of redacted columns.
+ *
+ * Column names are recovered from the shape of the templates produced by {@link SqlQueryTemplates}:
+ * the column list of an INSERT (or MERGE) for each of its rows, and comparisons of the form "column=?" or "column IN (?,?)" otherwise.
+ */
+final class BindParameters {
+
+	static final String REDACTED = "<redacted>";
+
+	private static final Pattern TABLE = Pattern.compile("\\b(?:FROM|INTO|UPDATE)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern INSERT_COLUMNS = Pattern.compile("^\\s*(?:INSERT|MERGE)\\s+INTO\\s+\\w+\\s*\\(([^)]*)\\)",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern COMPARISON = Pattern.compile("(\\w+)\\s*(?:=|<>|!=|<=|>=|<|>)\\s*\\?");
+
+	private static final Pattern IN_LIST = Pattern.compile("(\\w+)\\s+IN\\s*\\(([?,\\s]+)\\)", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern LIMIT = Pattern.compile("\\b(LIMIT)\\s+\\?", Pattern.CASE_INSENSITIVE);
+
+	private static final int MAXIMUM_VALUE_LENGTH = 64;
+
+	private final Set<String> redactedColumns;
+
+	private final int maximumParameters;
+
+	/**
+	 * The parameter descriptions of each template, which are few and reused for every execution
+	 */
+	private final Map<String, ParameterNames> templates = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param redactedColumns qualified column names, e.g. "Agent.password"
+	 * @param maximumParameters the maximum number of parameters described
+	 */
+	BindParameters(final Collection<String> redactedColumns, final int maximumParameters) {
+		this.redactedColumns = redactedColumns.stream()
+				.map(column -> column.toLowerCase(Locale.ROOT))
+				.collect(Collectors.toSet());
+		this.maximumParameters = maximumParameters;
+	}
+
+	/**
+	 * Returns a description such as "[urr='a', password=<redacted>]", listing at most maximumParameters values
+	 *
+	 * @param sql
+	 * @param parameters may be null
+	 */
+	String describe(final String sql, final Object[] parameters) {
+		if (parameters == null || parameters.length == 0) {
+			return "[]";
+		}
+		final ParameterNames names = templates.computeIfAbsent(sql, this::parse);
+		final StringBuilder builder = new StringBuilder("[");
+		final int described = Math.min(parameters.length, maximumParameters);
+		for (int i = 0; i < described; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			final String name = names.getName(i);
+			if (name != null) {
+				builder.append(name).append('=');
+			}
+			builder.append(names.isRedacted(i) ? REDACTED : format(parameters[i]));
+		}
+		if (parameters.length > described) {
+			builder.append(", ... (").append(parameters.length - described).append(" more)");
+		}
+		return builder.append(']').toString();
+	}
+
+	private ParameterNames parse(final String sql) {
+		final Matcher table = TABLE.matcher(sql);
+		final String tableName = table.find() ? table.group(1) : "";
+		final int parameterCount = (int) sql.chars().filter(c -> c == '?').count();
+
+		final String[] names = new String[parameterCount];
+		final Matcher insert = INSERT_COLUMNS.matcher(sql);
+		if (insert.find()) {
+			final String[] columns = insert.group(1).split(",");
+			// multi-row inserts repeat the column list for each row
+			for (int i = 0; i < parameterCount; i++) {
+				names[i] = columns[i % columns.length].trim();
+			}
+		} else {
+			final Map<Integer, String> namesByOffset = new HashMap<>();
+			nameComparisons(sql, namesByOffset);
+			int index = 0;
+			for (int offset = sql.indexOf('?'); offset >= 0; offset = sql.indexOf('?', offset + 1)) {
+				names[index++] = namesByOffset.get(offset);
+			}
+		}
+
+		final String prefix = tableName.toLowerCase(Locale.ROOT) + ".";
+		final String lowerCaseSql = sql.toLowerCase(Locale.ROOT);
+		final boolean[] redacted = new boolean[parameterCount];
+		boolean redactAll = false;
+		for (final String column : redactedColumns) {
+			if (!column.startsWith(prefix) || !lowerCaseSql.contains(column.substring(prefix.length()))) {
+				continue;
+			}
+			boolean attributed = false;
+			for (int i = 0; i < parameterCount; i++) {
+				if (names[i] != null && column.equals(prefix + names[i].toLowerCase(Locale.ROOT))) {
+					redacted[i] = true;
+					attributed = true;
+				}
+			}
+			// fail safe: mask every value if the template mentions a redacted column we could not attribute
+			redactAll |= !attributed;
+		}
+		return new ParameterNames(names, redacted, redactAll);
+	}
+
+	private static void nameComparisons(final String sql, final Map<Integer, String> namesByOffset) {
+		final Matcher comparison = COMPARISON.matcher(sql);
+		while (comparison.find()) {
+			namesByOffset.put(comparison.end() - 1, comparison.group(1));
+		}
+		final Matcher in = IN_LIST.matcher(sql);
+		while (in.find()) {
+			for (int offset = in.start(2); offset < in.end(2); offset++) {
+				if (sql.charAt(offset) == '?') {
+					namesByOffset.put(offset, in.group(1));
+				}
+			}
+		}
+		final Matcher limit = LIMIT.matcher(sql);
+		while (limit.find()) {
+			namesByOffset.put(limit.end() - 1, limit.group(1));
+		}
+	}
+
+	private static String format(final Object value) {
+		if (value == null) {
+			return "NULL";
+		}
+		if (value instanceof byte[]) {
+			return "<" + ((byte[]) value).length + " bytes>";
+		}
+		if (value instanceof Number || value instanceof Boolean) {
+			return value.toString();
+		}
+		final String text = value.toString();
+		if (text.length() > MAXIMUM_VALUE_LENGTH) {
+			return "'" + text.substring(0, MAXIMUM_VALUE_LENGTH) + "...' (" + text.length() + " chars)";
+		}
+		return "'" + text + "'";
+	}
+
+	/**
+	 * The column name of each parameter of a template, and whether its value is masked
+	 */
+	private static final class ParameterNames {
+
+		private final String[] names;
+
+		private final boolean[] redacted;
+
+		private final boolean redactAll;
+
+		ParameterNames(final String[] names, final boolean[] redacted, final boolean redactAll) {
+			this.names = names;
+			this.redacted = redacted;
+			this.redactAll = redactAll;
+		}
+
+		String getName(final int index) {
+			return index < names.length ? names[index] : null;
+		}
+
+		boolean isRedacted(final int index) {
+			return redactAll || (index < redacted.length && redacted[index]);
+		}
+	}
+}
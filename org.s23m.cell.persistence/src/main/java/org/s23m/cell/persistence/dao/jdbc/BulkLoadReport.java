@@ -0,0 +1,114 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of rows loaded into each table by a {@link BulkLoader}, and how long it took
+ */
+public final class BulkLoadReport {
+
+	private final List<TableLoad> tables;
+
+	private final long elapsedNanos;
+
+	BulkLoadReport(final List<TableLoad> tables, final long elapsedNanos) {
+		this.tables = Collections.unmodifiableList(new ArrayList<>(tables));
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the tables in the order they were loaded
+	 */
+	public List<TableLoad> getTables() {
+		return tables;
+	}
+
+	/**
+	 * Returns the load of the table for the given entity class
+	 *
+	 * @param entityClass
+	 */
+	public TableLoad getTable(final Class<?> entityClass) {
+		for (final TableLoad table : tables) {
+			if (table.getEntityName().equals(entityClass.getSimpleName())) {
+				return table;
+			}
+		}
+		throw new IllegalArgumentException("No table was loaded for " + entityClass.getSimpleName());
+	}
+
+	public long getRowCount() {
+		long rowCount = 0;
+		for (final TableLoad table : tables) {
+			rowCount += table.getRowCount();
+		}
+		return rowCount;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond(getRowCount(), elapsedNanos);
+	}
+
+	@Override
+	public String toString() {
+		final StringJoiner joiner = new StringJoiner(", ", getClass().getSimpleName() + "[", "]");
+		for (final TableLoad table : tables) {
+			joiner.add(table.toString());
+		}
+		return joiner.add(getRowCount() + " rows in " + getElapsedMillis() + " ms (" + getRowsPerSecond() + " rows/s)").toString();
+	}
+
+	static long rowsPerSecond(final long rowCount, final long elapsedNanos) {
+		return elapsedNanos == 0 ? 0 : rowCount * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	/**
+	 * The rows loaded into a single table
+	 */
+	public static final class TableLoad {
+
+		private final String entityName;
+
+		private final long rowCount;
+
+		private final long elapsedNanos;
+
+		TableLoad(final String entityName, final long rowCount, final long elapsedNanos) {
+			this.entityName = entityName;
+			this.rowCount = rowCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public String getEntityName() {
+			return entityName;
+		}
+
+		public long getRowCount() {
+			return rowCount;
+		}
+
+		/**
+		 * Returns the time from the start of the table's dependency tier until its last row was committed
+		 */
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+		}
+
+		public long getRowsPerSecond() {
+			return rowsPerSecond(rowCount, elapsedNanos);
+		}
+
+		@Override
+		public String toString() {
+			return entityName + ": " + rowCount + " rows in " + getElapsedMillis() + " ms (" + getRowsPerSecond() + " rows/s)";
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.sql.DataSource;
+
+import org.s23m.cell.persistence.model.Agent;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads large numbers of rows, typically into an empty database.
+ *
+ * Tables are loaded in foreign key dependency tiers: Identity, then Agent and Graph, then Arrow, then Edge.
+ * The rows of each table in a tier are split into one chunk per connection, and the chunks are inserted concurrently
+ * using batched statements, each in its own transaction. A load is therefore not atomic: if it fails,
+ * the chunks which were committed remain.
+ *
+ * In {@link ConstraintMode#DEFERRED} mode, foreign key checks are switched off for the duration of the load
+ * where the database allows it (H2 and MySQL), and all tables are loaded concurrently. The rows are not checked
+ * when the constraints are switched back on, so callers must ensure they are consistent.
+ * Other databases are loaded in dependency order as usual.
+ */
+public final class BulkLoader {
+
+	/**
+	 * Whether foreign key constraints are checked while loading
+	 */
+	public enum ConstraintMode {
+
+		/**
+		 * Constraints are checked for every row, so tables are loaded in dependency order
+		 */
+		CHECKED,
+
+		/**
+		 * Constraints are switched off where the database allows it, so all tables are loaded at once
+		 */
+		DEFERRED
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkLoader.class);
+
+	private static final AtomicInteger LOADER_NUMBER = new AtomicInteger();
+
+	private final DataSource dataSource;
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcAgentDao agentDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
+
+	private final JdbcEdgeDao edgeDao;
+
+	private final int connectionCount;
+
+	private final ConstraintMode constraintMode;
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataSource
+	 * @param identityDao
+	 * @param agentDao
+	 * @param graphDao
+	 * @param arrowDao
+	 * @param edgeDao
+	 * @param connectionCount the number of connections inserting concurrently,
+	 *  which should not exceed the size of the connection pool
+	 * @param constraintMode
+	 */
+	public BulkLoader(final DataSource dataSource, final JdbcIdentityDao identityDao, final JdbcAgentDao agentDao,
+			final JdbcGraphDao graphDao, final JdbcArrowDao arrowDao, final JdbcEdgeDao edgeDao,
+			final int connectionCount, final ConstraintMode constraintMode) {
+		if (connectionCount < 1) {
+			throw new IllegalArgumentException("Connection count must be positive: " + connectionCount);
+		}
+		this.dataSource = dataSource;
+		this.identityDao = identityDao;
+		this.agentDao = agentDao;
+		this.graphDao = graphDao;
+		this.arrowDao = arrowDao;
+		this.edgeDao = edgeDao;
+		this.connectionCount = connectionCount;
+		this.constraintMode = constraintMode;
+	}
+
+	/**
+	 * Inserts the provided rows
+	 *
+	 * @param identities
+	 * @param agents
+	 * @param graphs
+	 * @param arrows
+	 * @param edges
+	 * @return the number of rows loaded into each table, and the throughput achieved
+	 */
+	public BulkLoadReport load(final Collection<Identity> identities, final Collection<Agent> agents, final Collection<Graph> graphs,
+			final Collection<Arrow> arrows, final Collection<Edge> edges) {
+		final Table<Identity> identityTable = new Table<>(Identity.class, identities, identityDao::insertAll);
+		final Table<Agent> agentTable = new Table<>(Agent.class, agents, agentDao::insertAll);
+		final Table<Graph> graphTable = new Table<>(Graph.class, graphs, graphDao::insertAll);
+		final Table<Arrow> arrowTable = new Table<>(Arrow.class, arrows, arrowDao::insertAll);
+		final Table<Edge> edgeTable = new Table<>(Edge.class, edges, edgeDao::insertAll);
+
+		final ForeignKeyChecks checks = constraintMode == ConstraintMode.DEFERRED ? ForeignKeyChecks.detect(dataSource)
+				: ForeignKeyChecks.ENFORCED;
+		final List<List<Table<?>>> tiers;
+		if (checks == ForeignKeyChecks.ENFORCED) {
+			tiers = Arrays.asList(
+					Collections.<Table<?>>singletonList(identityTable),
+					Arrays.<Table<?>>asList(agentTable, graphTable),
+					Collections.<Table<?>>singletonList(arrowTable),
+					Collections.<Table<?>>singletonList(edgeTable));
+		} else {
+			tiers = Collections.singletonList(Arrays.<Table<?>>asList(identityTable, agentTable, graphTable, arrowTable, edgeTable));
+		}
+
+		final long start = System.nanoTime();
+		final List<BulkLoadReport.TableLoad> loads = new ArrayList<>();
+		checks.disableGlobally(dataSource);
+		try {
+			final ExecutorService executor = Executors.newFixedThreadPool(connectionCount, new LoaderThreadFactory());
+			try {
+				for (final List<Table<?>> tier : tiers) {
+					loadTier(executor, tier, checks, loads);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		} finally {
+			checks.enableGlobally(dataSource);
+		}
+
+		final BulkLoadReport report = new BulkLoadReport(loads, System.nanoTime() - start);
+		LOGGER.info("Loaded {} rows in {} ms ({} rows/s)", report.getRowCount(), report.getElapsedMillis(), report.getRowsPerSecond());
+		return report;
+	}
+
+	public int getConnectionCount() {
+		return connectionCount;
+	}
+
+	public ConstraintMode getConstraintMode() {
+		return constraintMode;
+	}
+
+	private void loadTier(final ExecutorService executor, final List<Table<?>> tier, final ForeignKeyChecks checks,
+			final List<BulkLoadReport.TableLoad> loads) {
+		final long tierStart = System.nanoTime();
+		final CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+		final List<Future<Void>> futures = new ArrayList<>();
+		for (final Table<?> table : tier) {
+			table.submitChunks(completionService, futures, checks);
+		}
+
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				completionService.take().get();
+			}
+		} catch (final InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while loading", e);
+		} catch (final ExecutionException e) {
+			cancel(futures);
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new RuntimeException("Could not load rows", cause);
+		}
+
+		for (final Table<?> table : tier) {
+			final BulkLoadReport.TableLoad load = table.toLoad(tierStart);
+			LOGGER.info("Loaded {}", load);
+			loads.add(load);
+		}
+	}
+
+	private static void cancel(final List<Future<Void>> futures) {
+		for (final Future<Void> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * The rows to be loaded into a single table
+	 */
+	private final class Table<T> {
+
+		private final Class<T> entityClass;
+
+		private final List<T> rows;
+
+		private final BiConsumer<Connection, Collection<T>> insert;
+
+		/**
+		 * The time at which the last chunk was committed
+		 */
+		private final AtomicLong end = new AtomicLong();
+
+		Table(final Class<T> entityClass, final Collection<T> rows, final BiConsumer<Connection, Collection<T>> insert) {
+			this.entityClass = entityClass;
+			this.rows = new ArrayList<>(rows);
+			this.insert = insert;
+		}
+
+		void submitChunks(final CompletionService<Void> completionService, final List<Future<Void>> futures, final ForeignKeyChecks checks) {
+			end.set(System.nanoTime());
+			if (rows.isEmpty()) {
+				return;
+			}
+			final int chunkSize = (rows.size() + connectionCount - 1) / connectionCount;
+			for (int from = 0; from < rows.size(); from += chunkSize) {
+				final List<T> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+				futures.add(completionService.submit(() -> {
+					Transactions.execute(dataSource, connection -> {
+						checks.disable(connection);
+						try {
+							insert.accept(connection, chunk);
+						} finally {
+							checks.enable(connection);
+						}
+					});
+					end.accumulateAndGet(System.nanoTime(), Math::max);
+					return null;
+				}));
+			}
+		}
+
+		BulkLoadReport.TableLoad toLoad(final long tierStart) {
+			return new BulkLoadReport.TableLoad(entityClass.getSimpleName(), rows.size(), end.get() - tierStart);
+		}
+	}
+
+	/**
+	 * How foreign key checks are switched off, according to the database
+	 */
+	private enum ForeignKeyChecks {
+
+		ENFORCED,
+
+		/**
+		 * Referential integrity is a database-wide setting in H2
+		 */
+		H2 {
+			@Override
+			void disableGlobally(final DataSource dataSource) {
+				execute(dataSource, "SET REFERENTIAL_INTEGRITY FALSE");
+			}
+
+			@Override
+			void enableGlobally(final DataSource dataSource) {
+				execute(dataSource, "SET REFERENTIAL_INTEGRITY TRUE");
+			}
+		},
+
+		/**
+		 * Foreign key checks are a session setting in MySQL, so they must be restored before the connection is returned to the pool
+		 */
+		MYSQL {
+			@Override
+			void disable(final Connection connection) {
+				execute(connection, "SET FOREIGN_KEY_CHECKS=0");
+			}
+
+			@Override
+			void enable(final Connection connection) {
+				execute(connection, "SET FOREIGN_KEY_CHECKS=1");
+			}
+		};
+
+		static ForeignKeyChecks detect(final DataSource dataSource) {
+			final String productName;
+			try (Connection connection = dataSource.getConnection()) {
+				productName = connection.getMetaData().getDatabaseProductName();
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not determine database product", e);
+			}
+			final SqlDialect dialect = SqlDialect.fromProductName(productName);
+			if (dialect == SqlDialect.H2) {
+				return H2;
+			}
+			if (dialect == SqlDialect.MYSQL) {
+				return MYSQL;
+			}
+			LOGGER.info("Foreign key checks cannot be switched off for {}; loading in dependency order", productName);
+			return ENFORCED;
+		}
+
+		void disableGlobally(final DataSource dataSource) {
+		}
+
+		void enableGlobally(final DataSource dataSource) {
+		}
+
+		void disable(final Connection connection) {
+		}
+
+		void enable(final Connection connection) {
+		}
+
+		static void execute(final DataSource dataSource, final String sql) {
+			try (Connection connection = dataSource.getConnection()) {
+				execute(connection, sql);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not execute " + sql, e);
+			}
+		}
+
+		static void execute(final Connection connection, final String sql) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(sql);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not execute " + sql, e);
+			}
+		}
+	}
+
+	private static final class LoaderThreadFactory implements ThreadFactory {
+
+		private final int loaderNumber = LOADER_NUMBER.incrementAndGet();
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			return new Thread(runnable, "persistence-bulk-load-" + loaderNumber + "-" + threadNumber.incrementAndGet());
+		}
+	}
+}
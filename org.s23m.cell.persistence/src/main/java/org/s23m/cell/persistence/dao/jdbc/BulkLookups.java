@@ -0,0 +1,94 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.dbutils.QueryRunner;
+
+/**
+ * Retrieves many rows by primary key using chunked IN queries
+ */
+final class BulkLookups {
+
+	private BulkLookups() {
+	}
+
+	/**
+	 * Retrieves the rows with the given keys, sending at most chunkSize keys per query.
+	 * The result is ordered by the requested keys; keys which do not correspond to a row are absent.
+	 *
+	 * @param queryRunner
+	 * @param entityClass
+	 * @param keyColumn the primary key column
+	 * @param keys
+	 * @param handler maps the rows returned by each query
+	 * @param primaryKey extracts the primary key from an entity
+	 * @param keyEncoding
+	 * @param chunkSize
+	 */
+	static <T> Map<String, T> getAll(final QueryRunner queryRunner, final Class<T> entityClass, final String keyColumn,
+			final Collection<String> keys, final ListHandler<T> handler, final Function<T, String> primaryKey, final KeyEncoding keyEncoding,
+			final int chunkSize) {
+		return getAll(queryRunner, entityClass, null, keyColumn, keys, handler, primaryKey, keyEncoding, chunkSize);
+	}
+
+	/**
+	 * Retrieves the provided columns of the rows with the given keys, as for
+	 * {@link #getAll(QueryRunner, Class, String, Collection, ListHandler, Function, KeyEncoding, int)}
+	 *
+	 * @param queryRunner
+	 * @param entityClass
+	 * @param selectColumns the columns to retrieve, or null for all columns
+	 * @param keyColumn the primary key column
+	 * @param keys
+	 * @param handler maps the rows returned by each query
+	 * @param primaryKey extracts the primary key from an entity
+	 * @param keyEncoding
+	 * @param chunkSize
+	 */
+	static <T> Map<String, T> getAll(final QueryRunner queryRunner, final Class<T> entityClass, final String[] selectColumns,
+			final String keyColumn, final Collection<String> keys, final ListHandler<T> handler, final Function<T, String> primaryKey,
+			final KeyEncoding keyEncoding, final int chunkSize) {
+
+		// eliminate duplicates while retaining the requested order
+		final Collection<String> distinctKeys = new LinkedHashSet<>(keys);
+		final Map<String, T> found = new HashMap<>();
+
+		final Iterator<String> iterator = distinctKeys.iterator();
+		int remaining = distinctKeys.size();
+		while (remaining > 0) {
+			final int count = Math.min(remaining, chunkSize);
+			final Object[] parameters = new Object[count];
+			for (int i = 0; i < count; i++) {
+				parameters[i] = keyEncoding.encode(iterator.next());
+			}
+			remaining -= count;
+
+			final String template = SqlQueryTemplates.createSelectByIdsQueryTemplate(entityClass, selectColumns, keyColumn, count);
+			try {
+				final List<T> entities = queryRunner.query(template, handler, parameters);
+				for (final T entity : entities) {
+					found.put(primaryKey.apply(entity), entity);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve " + count + " " + entityClass.getSimpleName() + " rows by " + keyColumn, e);
+			}
+		}
+
+		final Map<String, T> result = new LinkedHashMap<>();
+		for (final String key : distinctKeys) {
+			final T entity = found.get(keyEncoding.normalize(key));
+			if (entity != null) {
+				result.put(key, entity);
+			}
+		}
+		return result;
+	}
+}
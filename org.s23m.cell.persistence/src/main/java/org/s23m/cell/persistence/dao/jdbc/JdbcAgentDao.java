@@ -1,11 +1,20 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.s23m.cell.persistence.dao.AgentDao;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
 import org.s23m.cell.persistence.model.Agent;
 
 public final class JdbcAgentDao implements AgentDao {
@@ -32,7 +41,11 @@ public final class JdbcAgentDao implements AgentDao {
 
 	private static final String SELECT_BY_PK_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Agent.class, URR);
 
-	private static final String UPDATE_TEMPLATE = SqlQueryTemplates.createUpdateStatementTemplate(Agent.class, COLUMN_NAMES);
+	private static final String SELECT_BY_EMAIL_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Agent.class, EMAIL);
+
+	private static final String SELECT_BY_ALIAS_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Agent.class, ALIAS);
+
+	private static final String SELECT_ALL_TEMPLATE = SqlQueryTemplates.createSelectAllQueryTemplate(Agent.class);
 
 	private static final String INSERT_TEMPLATE = SqlQueryTemplates.createInsertStatementTemplate(Agent.class, COLUMN_NAMES);
 
@@ -40,78 +53,265 @@ public final class JdbcAgentDao implements AgentDao {
 
 	private final AgentGetHandler handler;
 
+	private final ListHandler<Agent> listHandler;
+
+	private final int batchSize;
+
+	private final KeyEncoding keyEncoding;
+
+	private final int fetchSize;
+
+	private final Metered metered;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final String upsertTemplate;
+
+	private final String updateTemplate;
+
+	private final BatchInserts<Agent> batchInserts;
+
 	public JdbcAgentDao(final QueryRunner queryRunner) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param batchSize the maximum number of rows sent to the database in a single batch,
+	 *  and the maximum number of keys looked up by a single query
+	 */
+	public JdbcAgentDao(final QueryRunner queryRunner, final int batchSize) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(batchSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param configuration
+	 */
+	public JdbcAgentDao(final QueryRunner queryRunner, final JdbcDaoConfiguration configuration) {
 		this.queryRunner = queryRunner;
-		this.handler = new AgentGetHandler();
+		this.handler = new AgentGetHandler(configuration);
+		this.listHandler = new ListHandler<>(handler);
+		this.batchSize = configuration.getBatchSize();
+		this.keyEncoding = configuration.getKeyEncoding();
+		this.fetchSize = configuration.getFetchSize();
+		this.metered = new Metered(configuration.getMetrics(), Agent.class);
+		this.reassignsSequenceNumbers = configuration.getDialect().isReassigningSequenceNumbers();
+		this.upsertTemplate = SqlQueryTemplates.createUpsertStatementTemplate(configuration.getDialect(), Agent.class, COLUMN_NAMES);
+		this.updateTemplate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(configuration.getDialect(), Agent.class, COLUMN_NAMES);
+		this.batchInserts = new BatchInserts<>(configuration.getDialect(), Agent.class, COLUMN_NAMES, this::createParameters,
+				configuration.getBatchSize());
 	}
 
 	public Agent get(final String urr) {
-		try {
-			return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, urr);
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not retrieve Agent with URR '" + urr + "'", e);
-		}
+		return metered.call(DaoOperation.GET, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, keyEncoding.encode(urr));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Agent with URR '" + urr + "'", e);
+			}
+		}, Metered::countOne);
+	}
+
+	@Override
+	public Map<String, Agent> getAll(final Collection<String> urrs) {
+		return metered.call(DaoOperation.GET_ALL,
+				() -> BulkLookups.getAll(queryRunner, Agent.class, URR, urrs, listHandler, Agent::getUrr, keyEncoding, batchSize), Map::size);
+	}
+
+	@Override
+	public List<Agent> findByEmail(final String email) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_EMAIL_TEMPLATE, listHandler, email);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Agents with email '" + email + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public List<Agent> findByAlias(final String alias) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_ALIAS_TEMPLATE, listHandler, alias);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Agents with alias '" + alias + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public Stream<Agent> scanAll() {
+		return metered.stream(DaoOperation.SCAN,
+				() -> ResultSetStreams.stream(queryRunner, SELECT_ALL_TEMPLATE, handler, fetchSize, "scan Agent rows"));
+	}
+
+	@Override
+	public Page<Agent> getPage(final PageCursor cursor, final int limit) {
+		return metered.call(DaoOperation.GET_PAGE,
+				() -> KeysetPages.getPage(queryRunner, Agent.class, handler, cursor, limit), page -> page.getEntities().size());
+	}
+
+	@Override
+	public List<Change<Agent>> pollSince(final long sequenceNumber, final int max) {
+		return metered.call(DaoOperation.POLL,
+				() -> KeysetPages.pollSince(queryRunner, Agent.class, handler, reassignsSequenceNumbers, sequenceNumber, max), List::size);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
 	}
 
 	@Override
 	public void insert(final Agent agent) {
-		final Object[] parameters = createParameters(agent);
+		metered.run(DaoOperation.INSERT, 1, () -> {
+			final Object[] parameters = createParameters(agent);
 
-		try {
-			final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to insert Agent: " + agent);
+			try {
+				final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to insert Agent: " + agent);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not insert Agent: " + agent, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not insert Agent: " + agent, e);
-		}
+		});
 	}
 
 	@Override
 	public void update(final Agent agent) {
-		final Object[] parameters = createParameters(agent);
+		metered.run(DaoOperation.UPDATE, 1, () -> {
+			final Object[] parameters = createParameters(agent);
 
-		try {
-			final int updates = queryRunner.update(UPDATE_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to update Agent: " + agent);
+			try {
+				final int updates = queryRunner.update(updateTemplate, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to update Agent: " + agent);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not update Agent: " + agent, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not update Agent: " + agent, e);
-		}
+		});
+	}
+
+	@Override
+	public void upsert(final Agent agent) {
+		metered.run(DaoOperation.UPSERT, 1, () -> {
+			final Object[] parameters = createParameters(agent);
+
+			try {
+				queryRunner.update(upsertTemplate, parameters);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not upsert Agent: " + agent, e);
+			}
+		});
+	}
+
+	@Override
+	public void insertAll(final Collection<Agent> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, entities));
+	}
+
+	@Override
+	public void updateAll(final Collection<Agent> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, updateTemplate, entities, this::createParameters, batchSize, "update Agent"));
+	}
+
+	@Override
+	public void upsertAll(final Collection<Agent> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, upsertTemplate, entities, this::createParameters, batchSize, "upsert Agent"));
+	}
+
+	/**
+	 * Inserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 * This allows several tables to be written within a single transaction.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void insertAll(final Connection connection, final Collection<Agent> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, connection, entities));
+	}
+
+	/**
+	 * Updates the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void updateAll(final Connection connection, final Collection<Agent> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, connection, updateTemplate, entities, this::createParameters, batchSize, "update Agent"));
+	}
+
+	/**
+	 * Upserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void upsertAll(final Connection connection, final Collection<Agent> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, connection, upsertTemplate, entities, this::createParameters, batchSize,
+						"upsert Agent"));
 	}
 
 	private Object[] createParameters(final Agent agent) {
 		return new Object[] {
-				agent.getUuid(),
+				keyEncoding.encode(agent.getUuid()),
 				agent.getEmail(),
 				agent.getPassword(),
 				agent.getMobile(),
 				agent.getFirstName(),
 				agent.getLastName(),
 				agent.getAlias(),
-				agent.getUrr()
+				keyEncoding.encode(agent.getUrr())
 		};
 	}
 
-	private static class AgentGetHandler implements ResultSetHandler<Agent> {
+	private static class AgentGetHandler implements ResultSetHandler<Agent>, RowMapper<Agent> {
+
+		private final StringPool stringPool;
+
+		private final KeyEncoding keyEncoding;
+
+		AgentGetHandler(final JdbcDaoConfiguration configuration) {
+			this.stringPool = configuration.getStringPool();
+			this.keyEncoding = configuration.getKeyEncoding();
+		}
 
 		public Agent handle(final ResultSet resultSet) throws SQLException {
 			final boolean hasNext = resultSet.next();
 			if (hasNext) {
-				final String uuid = resultSet.getString(UUID);
-				final String email = resultSet.getString(EMAIL);
-				final String password = resultSet.getString(PASSWORD);
-				final String mobile = resultSet.getString(MOBILE);
-				final String firstName = resultSet.getString(FIRST_NAME);
-				final String lastName = resultSet.getString(LAST_NAME);
-				final String alias = resultSet.getString(ALIAS);
-				final String urr = resultSet.getString(URR);
-
-				return new Agent(urr, uuid, email, password, mobile, firstName, lastName, alias);
+				return mapRow(resultSet);
 			} else {
 				return null;
 			}
 		}
+
+		public Agent mapRow(final ResultSet resultSet) throws SQLException {
+			final String uuid = readKey(resultSet, UUID);
+			final String email = resultSet.getString(EMAIL);
+			final String password = resultSet.getString(PASSWORD);
+			final String mobile = resultSet.getString(MOBILE);
+			final String firstName = resultSet.getString(FIRST_NAME);
+			final String lastName = resultSet.getString(LAST_NAME);
+			final String alias = resultSet.getString(ALIAS);
+			final String urr = readKey(resultSet, URR);
+
+			return new Agent(urr, uuid, email, password, mobile, firstName, lastName, alias);
+		}
+
+		private String readKey(final ResultSet resultSet, final String column) throws SQLException {
+			return stringPool.canonicalize(keyEncoding.read(resultSet, column));
+		}
 	}
 }
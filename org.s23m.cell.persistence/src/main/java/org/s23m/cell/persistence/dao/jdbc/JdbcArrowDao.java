@@ -1,11 +1,20 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.s23m.cell.persistence.dao.ArrowDao;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
 import org.s23m.cell.persistence.model.Arrow;
 import org.s23m.cell.persistence.model.ProperClass;
 
@@ -27,7 +36,13 @@ public final class JdbcArrowDao implements ArrowDao {
 
 	private static final String SELECT_BY_PK_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Arrow.class, URR);
 
-	private static final String UPDATE_TEMPLATE = SqlQueryTemplates.createUpdateStatementTemplate(Arrow.class, COLUMN_NAMES);
+	private static final String SELECT_OUTGOING_TEMPLATE =
+			SqlQueryTemplates.createSelectByColumnsQueryTemplate(Arrow.class, FROM_GRAPH, PROPER_CLASS);
+
+	private static final String SELECT_INCOMING_TEMPLATE =
+			SqlQueryTemplates.createSelectByColumnsQueryTemplate(Arrow.class, TO_GRAPH, PROPER_CLASS);
+
+	private static final String SELECT_ALL_TEMPLATE = SqlQueryTemplates.createSelectAllQueryTemplate(Arrow.class);
 
 	private static final String INSERT_TEMPLATE = SqlQueryTemplates.createInsertStatementTemplate(Arrow.class, COLUMN_NAMES);
 
@@ -35,72 +50,259 @@ public final class JdbcArrowDao implements ArrowDao {
 
 	private final ArrowGetHandler handler;
 
+	private final ListHandler<Arrow> listHandler;
+
+	private final int batchSize;
+
+	private final KeyEncoding keyEncoding;
+
+	private final int fetchSize;
+
+	private final Metered metered;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final String upsertTemplate;
+
+	private final String updateTemplate;
+
+	private final BatchInserts<Arrow> batchInserts;
+
 	public JdbcArrowDao(final QueryRunner queryRunner) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param batchSize the maximum number of rows sent to the database in a single batch,
+	 *  and the maximum number of keys looked up by a single query
+	 */
+	public JdbcArrowDao(final QueryRunner queryRunner, final int batchSize) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(batchSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param configuration
+	 */
+	public JdbcArrowDao(final QueryRunner queryRunner, final JdbcDaoConfiguration configuration) {
 		this.queryRunner = queryRunner;
-		this.handler = new ArrowGetHandler();
+		this.handler = new ArrowGetHandler(configuration);
+		this.listHandler = new ListHandler<>(handler);
+		this.batchSize = configuration.getBatchSize();
+		this.keyEncoding = configuration.getKeyEncoding();
+		this.fetchSize = configuration.getFetchSize();
+		this.metered = new Metered(configuration.getMetrics(), Arrow.class);
+		this.reassignsSequenceNumbers = configuration.getDialect().isReassigningSequenceNumbers();
+		this.upsertTemplate = SqlQueryTemplates.createUpsertStatementTemplate(configuration.getDialect(), Arrow.class, COLUMN_NAMES);
+		this.updateTemplate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(configuration.getDialect(), Arrow.class, COLUMN_NAMES);
+		this.batchInserts = new BatchInserts<>(configuration.getDialect(), Arrow.class, COLUMN_NAMES, this::createParameters,
+				configuration.getBatchSize());
 	}
 
 	public Arrow get(final String urr) {
-		try {
-			return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, urr);
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not retrieve Arrow with URR '" + urr + "'", e);
-		}
+		return metered.call(DaoOperation.GET, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, keyEncoding.encode(urr));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Arrow with URR '" + urr + "'", e);
+			}
+		}, Metered::countOne);
+	}
+
+	@Override
+	public Map<String, Arrow> getAll(final Collection<String> urrs) {
+		return metered.call(DaoOperation.GET_ALL,
+				() -> BulkLookups.getAll(queryRunner, Arrow.class, URR, urrs, listHandler, Arrow::getUrr, keyEncoding, batchSize), Map::size);
+	}
+
+	@Override
+	public List<Arrow> findOutgoing(final String fromGraph, final ProperClass properClass) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_OUTGOING_TEMPLATE, listHandler, keyEncoding.encode(fromGraph), properClass.name());
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve " + properClass + " Arrows from Graph '" + fromGraph + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public List<Arrow> findIncoming(final String toGraph, final ProperClass properClass) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_INCOMING_TEMPLATE, listHandler, keyEncoding.encode(toGraph), properClass.name());
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve " + properClass + " Arrows to Graph '" + toGraph + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public Stream<Arrow> scanAll() {
+		return metered.stream(DaoOperation.SCAN,
+				() -> ResultSetStreams.stream(queryRunner, SELECT_ALL_TEMPLATE, handler, fetchSize, "scan Arrow rows"));
+	}
+
+	@Override
+	public Page<Arrow> getPage(final PageCursor cursor, final int limit) {
+		return metered.call(DaoOperation.GET_PAGE,
+				() -> KeysetPages.getPage(queryRunner, Arrow.class, handler, cursor, limit), page -> page.getEntities().size());
+	}
+
+	@Override
+	public List<Change<Arrow>> pollSince(final long sequenceNumber, final int max) {
+		return metered.call(DaoOperation.POLL,
+				() -> KeysetPages.pollSince(queryRunner, Arrow.class, handler, reassignsSequenceNumbers, sequenceNumber, max), List::size);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
 	}
 
 	@Override
 	public void insert(final Arrow arrow) {
-		final Object[] parameters = createParameters(arrow);
+		metered.run(DaoOperation.INSERT, 1, () -> {
+			final Object[] parameters = createParameters(arrow);
 
-		try {
-			final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to insert Arrow - no primary key provided: " + arrow);
+			try {
+				final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to insert Arrow - no primary key provided: " + arrow);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not insert Arrow: " + arrow, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not insert Arrow: " + arrow, e);
-		}
+		});
 	}
 
 	@Override
 	public void update(final Arrow arrow) {
-		final Object[] parameters = createParameters(arrow);
+		metered.run(DaoOperation.UPDATE, 1, () -> {
+			final Object[] parameters = createParameters(arrow);
 
-		try {
-			final int updates = queryRunner.update(UPDATE_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to update Arrow: " + arrow);
+			try {
+				final int updates = queryRunner.update(updateTemplate, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to update Arrow: " + arrow);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not update Arrow: " + arrow, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not update Arrow: " + arrow, e);
-		}
+		});
+	}
+
+	@Override
+	public void upsert(final Arrow arrow) {
+		metered.run(DaoOperation.UPSERT, 1, () -> {
+			final Object[] parameters = createParameters(arrow);
+
+			try {
+				queryRunner.update(upsertTemplate, parameters);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not upsert Arrow: " + arrow, e);
+			}
+		});
+	}
+
+	@Override
+	public void insertAll(final Collection<Arrow> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, entities));
+	}
+
+	@Override
+	public void updateAll(final Collection<Arrow> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, updateTemplate, entities, this::createParameters, batchSize, "update Arrow"));
+	}
+
+	@Override
+	public void upsertAll(final Collection<Arrow> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, upsertTemplate, entities, this::createParameters, batchSize, "upsert Arrow"));
+	}
+
+	/**
+	 * Inserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 * This allows several tables to be written within a single transaction.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void insertAll(final Connection connection, final Collection<Arrow> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, connection, entities));
+	}
+
+	/**
+	 * Updates the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void updateAll(final Connection connection, final Collection<Arrow> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, connection, updateTemplate, entities, this::createParameters, batchSize, "update Arrow"));
+	}
+
+	/**
+	 * Upserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void upsertAll(final Connection connection, final Collection<Arrow> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, connection, upsertTemplate, entities, this::createParameters, batchSize,
+						"upsert Arrow"));
 	}
 
 	private Object[] createParameters(final Arrow arrow) {
 		return new Object[] {
-				arrow.getCategory(),
+				keyEncoding.encode(arrow.getCategory()),
 				arrow.getProperClass().name(),
-				arrow.getFromGraph(),
-				arrow.getToGraph(),
-				arrow.getUrr()
+				keyEncoding.encode(arrow.getFromGraph()),
+				keyEncoding.encode(arrow.getToGraph()),
+				keyEncoding.encode(arrow.getUrr())
 		};
 	}
 
-	private static class ArrowGetHandler implements ResultSetHandler<Arrow> {
+	private static class ArrowGetHandler implements ResultSetHandler<Arrow>, RowMapper<Arrow> {
+
+		private final StringPool stringPool;
+
+		private final KeyEncoding keyEncoding;
+
+		ArrowGetHandler(final JdbcDaoConfiguration configuration) {
+			this.stringPool = configuration.getStringPool();
+			this.keyEncoding = configuration.getKeyEncoding();
+		}
 
 		public Arrow handle(final ResultSet resultSet) throws SQLException {
 			final boolean hasNext = resultSet.next();
 			if (hasNext) {
-				final String category = resultSet.getString(CATEGORY);
-				final ProperClass properClass = ProperClass.valueOf(resultSet.getString(PROPER_CLASS));
-				final String fromGraph = resultSet.getString(FROM_GRAPH);
-				final String toGraph = resultSet.getString(TO_GRAPH);
-				final String urr = resultSet.getString(URR);
-
-				return new Arrow(urr, category, properClass, fromGraph, toGraph);
+				return mapRow(resultSet);
 			} else {
 				return null;
 			}
 		}
+
+		public Arrow mapRow(final ResultSet resultSet) throws SQLException {
+			final String category = readKey(resultSet, CATEGORY);
+			final ProperClass properClass = ProperClass.valueOf(resultSet.getString(PROPER_CLASS));
+			final String fromGraph = readKey(resultSet, FROM_GRAPH);
+			final String toGraph = readKey(resultSet, TO_GRAPH);
+			final String urr = readKey(resultSet, URR);
+
+			return new Arrow(urr, category, properClass, fromGraph, toGraph);
+		}
+
+		private String readKey(final ResultSet resultSet, final String column) throws SQLException {
+			return stringPool.canonicalize(keyEncoding.read(resultSet, column));
+		}
 	}
 }
@@ -0,0 +1,182 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import org.s23m.cell.persistence.dao.metrics.DaoMetrics;
+
+/**
+ * Options shared by the JDBC DAO implementations. Instances are immutable.
+ */
+public final class JdbcDaoConfiguration {
+
+	/**
+	 * The default number of rows fetched from the database at a time when streaming
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/**
+	 * The default configuration: batches of {@value BatchStatements#DEFAULT_BATCH_SIZE} rows,
+	 * a fetch size of {@value #DEFAULT_FETCH_SIZE} rows, no string pooling, string keys, no metrics, the H2 dialect,
+	 * and large columns stored as text and retrieved with the rest of the row
+	 */
+	public static final JdbcDaoConfiguration DEFAULT = new JdbcDaoConfiguration(BatchStatements.DEFAULT_BATCH_SIZE, DEFAULT_FETCH_SIZE,
+			StringPool.NONE, KeyEncoding.STRING, DaoMetrics.NONE, SqlDialect.H2, false, LargeColumnCodec.TEXT);
+
+	private final int batchSize;
+
+	private final int fetchSize;
+
+	private final StringPool stringPool;
+
+	private final KeyEncoding keyEncoding;
+
+	private final DaoMetrics metrics;
+
+	private final SqlDialect dialect;
+
+	private final boolean lazyLargeColumns;
+
+	private final LargeColumnCodec largeColumnCodec;
+
+	private JdbcDaoConfiguration(final int batchSize, final int fetchSize, final StringPool stringPool, final KeyEncoding keyEncoding,
+			final DaoMetrics metrics, final SqlDialect dialect, final boolean lazyLargeColumns,
+			final LargeColumnCodec largeColumnCodec) {
+		if (fetchSize < 1) {
+			throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+		}
+		this.batchSize = BatchStatements.validateBatchSize(batchSize);
+		this.fetchSize = fetchSize;
+		this.stringPool = Objects.requireNonNull(stringPool, "stringPool must not be null");
+		this.keyEncoding = Objects.requireNonNull(keyEncoding, "keyEncoding must not be null");
+		this.metrics = Objects.requireNonNull(metrics, "metrics must not be null");
+		this.dialect = Objects.requireNonNull(dialect, "dialect must not be null");
+		this.lazyLargeColumns = lazyLargeColumns;
+		this.largeColumnCodec = Objects.requireNonNull(largeColumnCodec, "largeColumnCodec must not be null");
+	}
+
+	/**
+	 * Returns a copy using the provided batch size, which is the maximum number of rows sent
+	 * to the database in a single batch, and the maximum number of keys looked up by a single query
+	 *
+	 * @param batchSize
+	 */
+	public JdbcDaoConfiguration withBatchSize(final int batchSize) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy using the provided fetch size, which is the number of rows fetched
+	 * from the database at a time when streaming.
+	 *
+	 * Note that MySQL Connector/J only honours this when the connection has useCursorFetch=true.
+	 *
+	 * @param fetchSize
+	 */
+	public JdbcDaoConfiguration withFetchSize(final int fetchSize) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy using the provided pool to canonicalize the key and reference values of retrieved rows
+	 *
+	 * @param stringPool
+	 */
+	public JdbcDaoConfiguration withStringPool(final StringPool stringPool) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy using the provided representation of key and reference columns
+	 *
+	 * @param keyEncoding
+	 */
+	public JdbcDaoConfiguration withKeyEncoding(final KeyEncoding keyEncoding) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy reporting every operation to the provided metrics
+	 *
+	 * @param metrics
+	 */
+	public JdbcDaoConfiguration withMetrics(final DaoMetrics metrics) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy generating statements for the provided database, e.g. upserts, updates and batched inserts
+	 *
+	 * @param dialect
+	 */
+	public JdbcDaoConfiguration withDialect(final SqlDialect dialect) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy which either leaves large columns (Graph.contentAsXml and Identity.payload) out of lookups,
+	 * loading each value from the database when it is first accessed, or retrieves them with the rest of the row.
+	 * Scans, pages and change feeds always retrieve whole rows.
+	 * Lazy loading costs a query per accessed value, so it only pays off where most values are not accessed.
+	 *
+	 * @param lazyLargeColumns
+	 */
+	public JdbcDaoConfiguration withLazyLargeColumns(final boolean lazyLargeColumns) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	/**
+	 * Returns a copy using the provided representation of the large columns (Graph.contentAsXml and Identity.payload)
+	 *
+	 * @param largeColumnCodec
+	 */
+	public JdbcDaoConfiguration withLargeColumnCodec(final LargeColumnCodec largeColumnCodec) {
+		return new JdbcDaoConfiguration(batchSize, fetchSize, stringPool, keyEncoding, metrics, dialect, lazyLargeColumns, largeColumnCodec);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	public KeyEncoding getKeyEncoding() {
+		return keyEncoding;
+	}
+
+	public DaoMetrics getMetrics() {
+		return metrics;
+	}
+
+	public SqlDialect getDialect() {
+		return dialect;
+	}
+
+	public boolean isLazyLargeColumns() {
+		return lazyLargeColumns;
+	}
+
+	public LargeColumnCodec getLargeColumnCodec() {
+		return largeColumnCodec;
+	}
+
+	@Override
+	public String toString() {
+		return new StringJoiner(", ", getClass().getSimpleName() + "[", "]")
+				.add("batchSize = " + batchSize)
+				.add("fetchSize = " + fetchSize)
+				.add("stringPool = " + stringPool)
+				.add("keyEncoding = " + keyEncoding)
+				.add("metrics = " + metrics)
+				.add("dialect = " + dialect)
+				.add("lazyLargeColumns = " + lazyLargeColumns)
+				.add("largeColumnCodec = " + largeColumnCodec)
+				.toString();
+	}
+}
@@ -1,11 +1,20 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.dao.Change;
 import org.s23m.cell.persistence.dao.EdgeDao;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
 import org.s23m.cell.persistence.model.Edge;
 
 public final class JdbcEdgeDao implements EdgeDao {
@@ -38,7 +47,14 @@ public final class JdbcEdgeDao implements EdgeDao {
 
 	private static final String SELECT_BY_PK_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Edge.class, URR);
 
-	private static final String UPDATE_TEMPLATE = SqlQueryTemplates.createUpdateStatementTemplate(Edge.class, COLUMN_NAMES);
+	private static final String SELECT_BY_FROM_EDGE_END_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Edge.class, FROM_EDGE_END);
+
+	private static final String SELECT_BY_TO_EDGE_END_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Edge.class, TO_EDGE_END);
+
+	// a union allows each branch to use its own index, which a disjunction would typically prevent
+	private static final String SELECT_BY_EDGE_END_TEMPLATE = SELECT_BY_FROM_EDGE_END_TEMPLATE + " UNION " + SELECT_BY_TO_EDGE_END_TEMPLATE;
+
+	private static final String SELECT_ALL_TEMPLATE = SqlQueryTemplates.createSelectAllQueryTemplate(Edge.class);
 
 	private static final String INSERT_TEMPLATE = SqlQueryTemplates.createInsertStatementTemplate(Edge.class, COLUMN_NAMES);
 
@@ -46,48 +62,263 @@ public final class JdbcEdgeDao implements EdgeDao {
 
 	private final EdgeGetHandler handler;
 
+	private final ListHandler<Edge> listHandler;
+
+	private final int batchSize;
+
+	private final KeyEncoding keyEncoding;
+
+	private final int fetchSize;
+
+	private final Metered metered;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final String upsertTemplate;
+
+	private final String updateTemplate;
+
+	private final BatchInserts<Edge> batchInserts;
+
+	private final PartialUpdates<Edge> partialUpdates;
+
 	public JdbcEdgeDao(final QueryRunner queryRunner) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param batchSize the maximum number of rows sent to the database in a single batch,
+	 *  and the maximum number of keys looked up by a single query
+	 */
+	public JdbcEdgeDao(final QueryRunner queryRunner, final int batchSize) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(batchSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param configuration
+	 */
+	public JdbcEdgeDao(final QueryRunner queryRunner, final JdbcDaoConfiguration configuration) {
 		this.queryRunner = queryRunner;
-		this.handler = new EdgeGetHandler();
+		this.handler = new EdgeGetHandler(configuration);
+		this.listHandler = new ListHandler<>(handler);
+		this.batchSize = configuration.getBatchSize();
+		this.keyEncoding = configuration.getKeyEncoding();
+		this.fetchSize = configuration.getFetchSize();
+		this.metered = new Metered(configuration.getMetrics(), Edge.class);
+		this.reassignsSequenceNumbers = configuration.getDialect().isReassigningSequenceNumbers();
+		this.upsertTemplate = SqlQueryTemplates.createUpsertStatementTemplate(configuration.getDialect(), Edge.class, COLUMN_NAMES);
+		this.updateTemplate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(configuration.getDialect(), Edge.class, COLUMN_NAMES);
+		this.batchInserts = new BatchInserts<>(configuration.getDialect(), Edge.class, COLUMN_NAMES, this::createParameters,
+				configuration.getBatchSize());
+		this.partialUpdates = new PartialUpdates<>(configuration.getDialect(), Edge.class, COLUMN_NAMES, JdbcEdgeDao::createColumnValues,
+				(columnName, value) -> keyEncoding.encode((String) value));
 	}
 
 	public Edge get(final String urr) {
-		try {
-			return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, urr);
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not retrieve Edge with URR '" + urr + "'", e);
-		}
+		return metered.call(DaoOperation.GET, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, keyEncoding.encode(urr));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Edge with URR '" + urr + "'", e);
+			}
+		}, Metered::countOne);
+	}
+
+	@Override
+	public Map<String, Edge> getAll(final Collection<String> urrs) {
+		return metered.call(DaoOperation.GET_ALL,
+				() -> BulkLookups.getAll(queryRunner, Edge.class, URR, urrs, listHandler, Edge::getUrr, keyEncoding, batchSize), Map::size);
+	}
+
+	@Override
+	public List<Edge> findByFromEdgeEnd(final String fromEdgeEnd) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_FROM_EDGE_END_TEMPLATE, listHandler, keyEncoding.encode(fromEdgeEnd));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Edges from edge end '" + fromEdgeEnd + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public List<Edge> findByToEdgeEnd(final String toEdgeEnd) {
+		return metered.call(DaoOperation.FIND, () -> {
+			try {
+				return queryRunner.query(SELECT_BY_TO_EDGE_END_TEMPLATE, listHandler, keyEncoding.encode(toEdgeEnd));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Edges to edge end '" + toEdgeEnd + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public List<Edge> findByEdgeEnd(final String edgeEnd) {
+		return metered.call(DaoOperation.FIND, () -> {
+			final Object encoded = keyEncoding.encode(edgeEnd);
+			try {
+				return queryRunner.query(SELECT_BY_EDGE_END_TEMPLATE, listHandler, encoded, encoded);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Edges touching edge end '" + edgeEnd + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public Stream<Edge> scanAll() {
+		return metered.stream(DaoOperation.SCAN,
+				() -> ResultSetStreams.stream(queryRunner, SELECT_ALL_TEMPLATE, handler, fetchSize, "scan Edge rows"));
+	}
+
+	@Override
+	public Page<Edge> getPage(final PageCursor cursor, final int limit) {
+		return metered.call(DaoOperation.GET_PAGE,
+				() -> KeysetPages.getPage(queryRunner, Edge.class, handler, cursor, limit), page -> page.getEntities().size());
+	}
+
+	@Override
+	public List<Change<Edge>> pollSince(final long sequenceNumber, final int max) {
+		return metered.call(DaoOperation.POLL,
+				() -> KeysetPages.pollSince(queryRunner, Edge.class, handler, reassignsSequenceNumbers, sequenceNumber, max), List::size);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
 	}
 
 	@Override
 	public void insert(final Edge edge) {
-		final Object[] parameters = createParameters(edge);
+		metered.run(DaoOperation.INSERT, 1, () -> {
+			final Object[] parameters = createParameters(edge);
 
-		try {
-			final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to insert Edge: " + edge);
+			try {
+				final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to insert Edge: " + edge);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not insert Edge: " + edge, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not insert Edge: " + edge, e);
-		}
+		});
 	}
 
 	@Override
 	public void update(final Edge edge) {
-		final Object[] parameters = createParameters(edge);
+		metered.run(DaoOperation.UPDATE, 1, () -> {
+			final Object[] parameters = createParameters(edge);
 
-		try {
-			final int updates = queryRunner.update(UPDATE_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to update Edge: " + edge);
+			try {
+				final int updates = queryRunner.update(updateTemplate, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to update Edge: " + edge);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not update Edge: " + edge, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not update Edge: " + edge, e);
-		}
+		});
+	}
+
+	@Override
+	public boolean update(final Edge original, final Edge edge) {
+		return metered.call(DaoOperation.UPDATE, () -> partialUpdates.update(queryRunner, original, edge), updated -> updated ? 1 : 0);
+	}
+
+	@Override
+	public void upsert(final Edge edge) {
+		metered.run(DaoOperation.UPSERT, 1, () -> {
+			final Object[] parameters = createParameters(edge);
+
+			try {
+				queryRunner.update(upsertTemplate, parameters);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not upsert Edge: " + edge, e);
+			}
+		});
+	}
+
+	@Override
+	public void insertAll(final Collection<Edge> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, entities));
+	}
+
+	@Override
+	public void updateAll(final Collection<Edge> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, updateTemplate, entities, this::createParameters, batchSize, "update Edge"));
+	}
+
+	@Override
+	public int updateAll(final Map<String, Edge> originals, final Collection<Edge> entities) {
+		return metered.call(DaoOperation.UPDATE_BATCH, () -> partialUpdates.updateAll(queryRunner, originals, entities, batchSize), written -> written);
+	}
+
+	@Override
+	public void upsertAll(final Collection<Edge> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, upsertTemplate, entities, this::createParameters, batchSize, "upsert Edge"));
+	}
+
+	/**
+	 * Inserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 * This allows several tables to be written within a single transaction.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void insertAll(final Connection connection, final Collection<Edge> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, connection, entities));
+	}
+
+	/**
+	 * Updates the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void updateAll(final Connection connection, final Collection<Edge> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, connection, updateTemplate, entities, this::createParameters, batchSize, "update Edge"));
+	}
+
+	/**
+	 * Upserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void upsertAll(final Connection connection, final Collection<Edge> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, connection, upsertTemplate, entities, this::createParameters, batchSize,
+						"upsert Edge"));
 	}
 
 	private Object[] createParameters(final Edge edge) {
+		return new Object[] {
+				keyEncoding.encode(edge.getMinCardinalityValueFromEdgeEnd()),
+				keyEncoding.encode(edge.getMinCardinalityValueToEdgeEnd()),
+				keyEncoding.encode(edge.getMaxCardinalityValueFromEdgeEnd()),
+				keyEncoding.encode(edge.getMaxCardinalityValueToEdgeEnd()),
+				keyEncoding.encode(edge.getIsNavigableValueFromEdgeEnd()),
+				keyEncoding.encode(edge.getIsNavigableValueToEdgeEnd()),
+				keyEncoding.encode(edge.getIsContainerValueFromEdgeEnd()),
+				keyEncoding.encode(edge.getIsContainerValueToEdgeEnd()),
+				keyEncoding.encode(edge.getFromEdgeEnd()),
+				keyEncoding.encode(edge.getToEdgeEnd()),
+				keyEncoding.encode(edge.getUrr())
+		};
+	}
+
+	/**
+	 * Returns the unencoded column values compared by partial updates, in the order of {@link #createParameters(Edge)}
+	 */
+	private static Object[] createColumnValues(final Edge edge) {
 		return new Object[] {
 				edge.getMinCardinalityValueFromEdgeEnd(),
 				edge.getMinCardinalityValueToEdgeEnd(),
@@ -103,30 +334,47 @@ public final class JdbcEdgeDao implements EdgeDao {
 		};
 	}
 
-	private static class EdgeGetHandler implements ResultSetHandler<Edge> {
+	private static class EdgeGetHandler implements ResultSetHandler<Edge>, RowMapper<Edge> {
+
+		private final StringPool stringPool;
+
+		private final KeyEncoding keyEncoding;
+
+		EdgeGetHandler(final JdbcDaoConfiguration configuration) {
+			this.stringPool = configuration.getStringPool();
+			this.keyEncoding = configuration.getKeyEncoding();
+		}
 
 		public Edge handle(final ResultSet resultSet) throws SQLException {
 			final boolean hasNext = resultSet.next();
 			if (hasNext) {
-				final String urr = resultSet.getString(URR);
-				final String minCardinalityValueFromEdgeEnd = resultSet.getString(MIN_CARDINALITY_VALUE_FROM_EDGE_END);
-				final String minCardinalityValueToEdgeEnd = resultSet.getString(MIN_CARDINALITY_VALUE_TO_EDGE_END);
-				final String maxCardinalityValueFromEdgeEnd = resultSet.getString(MAX_CARDINALITY_VALUE_FROM_EDGE_END);
-				final String maxCardinalityValueToEdgeEnd = resultSet.getString(MAX_CARDINALITY_VALUE_TO_EDGE_END);
-				final String isNavigableValueFromEdgeEnd = resultSet.getString(IS_NAVIGABLE_VALUE_FROM_EDGE_END);
-				final String isNavigableValueToEdgeEnd = resultSet.getString(IS_NAVIGABLE_VALUE_TO_EDGE_END);
-				final String isContainerValueFromEdgeEnd = resultSet.getString(IS_CONTAINER_VALUE_FROM_EDGE_END);
-				final String isContainerValueToEdgeEnd = resultSet.getString(IS_CONTAINER_VALUE_TO_EDGE_END);
-				final String fromEdgeEnd = resultSet.getString(FROM_EDGE_END);
-				final String toEdgeEnd = resultSet.getString(TO_EDGE_END);
-
-				return new Edge(urr, minCardinalityValueFromEdgeEnd, minCardinalityValueToEdgeEnd,
-						maxCardinalityValueFromEdgeEnd, maxCardinalityValueToEdgeEnd,
-						isNavigableValueFromEdgeEnd, isNavigableValueToEdgeEnd, isContainerValueFromEdgeEnd,
-						isContainerValueToEdgeEnd, fromEdgeEnd, toEdgeEnd);
+				return mapRow(resultSet);
 			} else {
 				return null;
 			}
 		}
+
+		public Edge mapRow(final ResultSet resultSet) throws SQLException {
+			final String urr = readKey(resultSet, URR);
+			final String minCardinalityValueFromEdgeEnd = readKey(resultSet, MIN_CARDINALITY_VALUE_FROM_EDGE_END);
+			final String minCardinalityValueToEdgeEnd = readKey(resultSet, MIN_CARDINALITY_VALUE_TO_EDGE_END);
+			final String maxCardinalityValueFromEdgeEnd = readKey(resultSet, MAX_CARDINALITY_VALUE_FROM_EDGE_END);
+			final String maxCardinalityValueToEdgeEnd = readKey(resultSet, MAX_CARDINALITY_VALUE_TO_EDGE_END);
+			final String isNavigableValueFromEdgeEnd = readKey(resultSet, IS_NAVIGABLE_VALUE_FROM_EDGE_END);
+			final String isNavigableValueToEdgeEnd = readKey(resultSet, IS_NAVIGABLE_VALUE_TO_EDGE_END);
+			final String isContainerValueFromEdgeEnd = readKey(resultSet, IS_CONTAINER_VALUE_FROM_EDGE_END);
+			final String isContainerValueToEdgeEnd = readKey(resultSet, IS_CONTAINER_VALUE_TO_EDGE_END);
+			final String fromEdgeEnd = readKey(resultSet, FROM_EDGE_END);
+			final String toEdgeEnd = readKey(resultSet, TO_EDGE_END);
+
+			return new Edge(urr, minCardinalityValueFromEdgeEnd, minCardinalityValueToEdgeEnd,
+					maxCardinalityValueFromEdgeEnd, maxCardinalityValueToEdgeEnd,
+					isNavigableValueFromEdgeEnd, isNavigableValueToEdgeEnd, isContainerValueFromEdgeEnd,
+					isContainerValueToEdgeEnd, fromEdgeEnd, toEdgeEnd);
+		}
+
+		private String readKey(final ResultSet resultSet, final String column) throws SQLException {
+			return stringPool.canonicalize(keyEncoding.read(resultSet, column));
+		}
 	}
 }
@@ -0,0 +1,72 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import static org.s23m.cell.persistence.dao.jdbc.LookupExecutor.join;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.s23m.cell.persistence.dao.EdgeResolver;
+import org.s23m.cell.persistence.dao.ResolvedEdge;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * {@link EdgeResolver} which performs its lookups in two rounds: the edge and its arrow, and then
+ * the graphs and identities they refer to. The lookups within each round run concurrently on the provided {@link LookupExecutor}.
+ */
+public final class JdbcEdgeResolver implements EdgeResolver {
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
+
+	private final JdbcEdgeDao edgeDao;
+
+	private final LookupExecutor executor;
+
+	/**
+	 * Constructor
+	 *
+	 * @param identityDao
+	 * @param graphDao
+	 * @param arrowDao
+	 * @param edgeDao
+	 * @param executor runs the lookups of each round
+	 */
+	public JdbcEdgeResolver(final JdbcIdentityDao identityDao, final JdbcGraphDao graphDao, final JdbcArrowDao arrowDao,
+			final JdbcEdgeDao edgeDao, final LookupExecutor executor) {
+		this.identityDao = identityDao;
+		this.graphDao = graphDao;
+		this.arrowDao = arrowDao;
+		this.edgeDao = edgeDao;
+		this.executor = executor;
+	}
+
+	@Override
+	public ResolvedEdge resolve(final String urr) {
+		final CompletableFuture<Edge> edgeLookup = executor.submit(() -> edgeDao.get(urr));
+		final CompletableFuture<Arrow> arrowLookup = executor.submit(() -> arrowDao.get(urr));
+		final Edge edge = join(edgeLookup);
+		final Arrow arrow = join(arrowLookup);
+		if (edge == null || arrow == null) {
+			return null;
+		}
+
+		final Collection<String> graphUrrs = new LinkedHashSet<>(Arrays.asList(
+				arrow.getFromGraph(), arrow.getToGraph(), edge.getFromEdgeEnd(), edge.getToEdgeEnd()));
+		final Collection<String> identityUuids = new LinkedHashSet<>();
+		identityUuids.add(arrow.getCategory());
+		JdbcSubtreeLoader.addReferences(identityUuids, edge);
+
+		final CompletableFuture<Map<String, Graph>> graphLookup = executor.submit(() -> graphDao.getAll(graphUrrs));
+		final CompletableFuture<Map<String, Identity>> identityLookup = executor.submit(() -> identityDao.getAll(identityUuids));
+		return new ResolvedEdge(edge, arrow, join(graphLookup), join(identityLookup));
+	}
+}
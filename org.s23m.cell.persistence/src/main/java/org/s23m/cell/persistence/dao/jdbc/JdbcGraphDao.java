@@ -1,12 +1,24 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.io.Reader;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.dao.Change;
 import org.s23m.cell.persistence.dao.GraphDao;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
 import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.LargeValue;
 import org.s23m.cell.persistence.model.ProperClass;
 
 public final class JdbcGraphDao implements GraphDao {
@@ -31,9 +43,28 @@ public final class JdbcGraphDao implements GraphDao {
 			URR
 	};
 
-	private static final String SELECT_BY_PK_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Graph.class, URR);
+	/**
+	 * The columns retrieved by lookups when contentAsXml is loaded lazily
+	 */
+	private static final String[] PROJECTED_COLUMN_NAMES = {
+			UUID,
+			CATEGORY,
+			CONTAINER,
+			IS_ABSTRACT_VALUE,
+			MAX_CARDINALITY_VALUE_IN_CONTAINER,
+			PROPER_CLASS,
+			URR
+	};
+
+	private static final String SELECT_ALL_TEMPLATE = SqlQueryTemplates.createSelectAllQueryTemplate(Graph.class);
 
-	private static final String UPDATE_TEMPLATE = SqlQueryTemplates.createUpdateStatementTemplate(Graph.class, COLUMN_NAMES);
+	/**
+	 * Retrieves whole rows, since loading a deferred value while the stream holds a connection would need a second one
+	 */
+	private static final String SELECT_BY_CONTAINER_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Graph.class, null, CONTAINER);
+
+	private static final String SELECT_CONTENT_AS_XML_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Graph.class,
+			new String[] {CONTENT_AS_XML}, URR);
 
 	private static final String INSERT_TEMPLATE = SqlQueryTemplates.createInsertStatementTemplate(Graph.class, COLUMN_NAMES);
 
@@ -41,78 +72,353 @@ public final class JdbcGraphDao implements GraphDao {
 
 	private final GraphGetHandler handler;
 
+	private final GraphGetHandler lookupHandler;
+
+	private final ListHandler<Graph> listHandler;
+
+	private final String[] selectColumns;
+
+	private final String selectByPkTemplate;
+
+	private final String selectSubtreeTemplate;
+
+	private final int batchSize;
+
+	private final KeyEncoding keyEncoding;
+
+	private final int fetchSize;
+
+	private final Metered metered;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final LargeColumnCodec largeColumnCodec;
+
+	private final String upsertTemplate;
+
+	private final String updateTemplate;
+
+	private final BatchInserts<Graph> batchInserts;
+
+	private final PartialUpdates<Graph> partialUpdates;
+
 	public JdbcGraphDao(final QueryRunner queryRunner) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param batchSize the maximum number of rows sent to the database in a single batch,
+	 *  and the maximum number of keys looked up by a single query
+	 */
+	public JdbcGraphDao(final QueryRunner queryRunner, final int batchSize) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(batchSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param configuration
+	 */
+	public JdbcGraphDao(final QueryRunner queryRunner, final JdbcDaoConfiguration configuration) {
 		this.queryRunner = queryRunner;
-		this.handler = new GraphGetHandler();
+		this.batchSize = configuration.getBatchSize();
+		this.keyEncoding = configuration.getKeyEncoding();
+		this.largeColumnCodec = configuration.getLargeColumnCodec();
+		this.handler = new GraphGetHandler(configuration, null);
+		if (configuration.isLazyLargeColumns()) {
+			this.lookupHandler = new GraphGetHandler(configuration, this::deferContentAsXml);
+			this.selectColumns = PROJECTED_COLUMN_NAMES;
+		} else {
+			this.lookupHandler = handler;
+			this.selectColumns = null;
+		}
+		this.listHandler = new ListHandler<>(lookupHandler);
+		this.selectByPkTemplate = SqlQueryTemplates.createSelectByIdQueryTemplate(Graph.class, selectColumns, URR);
+		this.selectSubtreeTemplate = SqlQueryTemplates.createSelectSubtreeQueryTemplate(configuration.getDialect(), Graph.class, selectColumns,
+				URR, UUID, CONTAINER);
+		this.fetchSize = configuration.getFetchSize();
+		this.metered = new Metered(configuration.getMetrics(), Graph.class);
+		this.reassignsSequenceNumbers = configuration.getDialect().isReassigningSequenceNumbers();
+		this.upsertTemplate = SqlQueryTemplates.createUpsertStatementTemplate(configuration.getDialect(), Graph.class, COLUMN_NAMES);
+		this.updateTemplate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(configuration.getDialect(), Graph.class, COLUMN_NAMES);
+		this.batchInserts = new BatchInserts<>(configuration.getDialect(), Graph.class, COLUMN_NAMES, this::createParameters,
+				configuration.getBatchSize());
+		this.partialUpdates = new PartialUpdates<>(configuration.getDialect(), Graph.class, COLUMN_NAMES, JdbcGraphDao::createColumnValues,
+				this::encodeColumn);
 	}
 
 	public Graph get(final String urr) {
-		try {
-			return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, urr);
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not retrieve Graph with URR '" + urr + "'", e);
-		}
+		return metered.call(DaoOperation.GET, () -> {
+			try {
+				return queryRunner.query(selectByPkTemplate, lookupHandler, keyEncoding.encode(urr));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Graph with URR '" + urr + "'", e);
+			}
+		}, Metered::countOne);
+	}
+
+	@Override
+	public Map<String, Graph> getAll(final Collection<String> urrs) {
+		return metered.call(DaoOperation.GET_ALL,
+				() -> BulkLookups.getAll(queryRunner, Graph.class, selectColumns, URR, urrs, listHandler, Graph::getUrr, keyEncoding, batchSize), Map::size);
+	}
+
+	@Override
+	public List<Graph> loadSubtree(final String rootUrr, final int maxDepth) {
+		return metered.call(DaoOperation.FIND, () -> {
+			if (maxDepth < 0) {
+				throw new IllegalArgumentException("Maximum depth must not be negative: " + maxDepth);
+			}
+			try {
+				return queryRunner.query(selectSubtreeTemplate, listHandler, keyEncoding.encode(rootUrr), maxDepth);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Graph subtree of '" + rootUrr + "'", e);
+			}
+		}, List::size);
+	}
+
+	@Override
+	public Stream<Graph> scanAll() {
+		return metered.stream(DaoOperation.SCAN,
+				() -> ResultSetStreams.stream(queryRunner, SELECT_ALL_TEMPLATE, handler, fetchSize, "scan Graph rows"));
+	}
+
+	@Override
+	public Stream<Graph> streamByContainer(final String container) {
+		return metered.stream(DaoOperation.SCAN, () -> ResultSetStreams.stream(queryRunner, SELECT_BY_CONTAINER_TEMPLATE, handler,
+				fetchSize, "stream Graph rows with container '" + container + "'", keyEncoding.encode(container)));
+	}
+
+	@Override
+	public Page<Graph> getPage(final PageCursor cursor, final int limit) {
+		return metered.call(DaoOperation.GET_PAGE,
+				() -> KeysetPages.getPage(queryRunner, Graph.class, handler, cursor, limit), page -> page.getEntities().size());
+	}
+
+	@Override
+	public List<Change<Graph>> pollSince(final long sequenceNumber, final int max) {
+		return metered.call(DaoOperation.POLL,
+				() -> KeysetPages.pollSince(queryRunner, Graph.class, handler, reassignsSequenceNumbers, sequenceNumber, max), List::size);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
+	}
+
+	/**
+	 * Opens a reader over the contentAsXml of the Graph with the given URR, streaming it from the database
+	 * rather than holding it in memory. The reader holds a connection, so it must be closed by the caller.
+	 *
+	 * @param urr
+	 * @return the reader, or null if the Graph has no content
+	 */
+	public Reader openContentAsXml(final String urr) {
+		return LargeColumns.open(queryRunner, SELECT_CONTENT_AS_XML_TEMPLATE, keyEncoding.encode(urr), largeColumnCodec,
+				"contentAsXml of Graph '" + urr + "'");
 	}
 
 	@Override
 	public void insert(final Graph graph) {
-		final Object[] parameters = createParameters(graph);
+		metered.run(DaoOperation.INSERT, 1, () -> {
+			final Object[] parameters = createParameters(graph);
 
-		try {
-			final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to insert Graph: " + graph);
+			try {
+				final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to insert Graph: " + graph);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not insert Graph: " + graph, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not insert Graph: " + graph, e);
-		}
+		});
 	}
 
 	@Override
 	public void update(final Graph graph) {
-		final Object[] parameters = createParameters(graph);
+		metered.run(DaoOperation.UPDATE, 1, () -> {
+			final Object[] parameters = createParameters(graph);
 
-		try {
-			final int updates = queryRunner.update(UPDATE_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to update Graph: " + graph);
+			try {
+				final int updates = queryRunner.update(updateTemplate, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to update Graph: " + graph);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not update Graph: " + graph, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not update Graph: " + graph, e);
-		}
+		});
+	}
+
+	@Override
+	public boolean update(final Graph original, final Graph graph) {
+		return metered.call(DaoOperation.UPDATE, () -> partialUpdates.update(queryRunner, original, graph), updated -> updated ? 1 : 0);
+	}
+
+	@Override
+	public void upsert(final Graph graph) {
+		metered.run(DaoOperation.UPSERT, 1, () -> {
+			final Object[] parameters = createParameters(graph);
+
+			try {
+				queryRunner.update(upsertTemplate, parameters);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not upsert Graph: " + graph, e);
+			}
+		});
+	}
+
+	@Override
+	public void insertAll(final Collection<Graph> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, entities));
+	}
+
+	@Override
+	public void updateAll(final Collection<Graph> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, updateTemplate, entities, this::createParameters, batchSize, "update Graph"));
+	}
+
+	@Override
+	public int updateAll(final Map<String, Graph> originals, final Collection<Graph> entities) {
+		return metered.call(DaoOperation.UPDATE_BATCH, () -> partialUpdates.updateAll(queryRunner, originals, entities, batchSize), written -> written);
+	}
+
+	@Override
+	public void upsertAll(final Collection<Graph> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, upsertTemplate, entities, this::createParameters, batchSize, "upsert Graph"));
+	}
+
+	/**
+	 * Inserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 * This allows several tables to be written within a single transaction.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void insertAll(final Connection connection, final Collection<Graph> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, connection, entities));
+	}
+
+	/**
+	 * Updates the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void updateAll(final Connection connection, final Collection<Graph> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, connection, updateTemplate, entities, this::createParameters, batchSize, "update Graph"));
+	}
+
+	/**
+	 * Upserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void upsertAll(final Connection connection, final Collection<Graph> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, connection, upsertTemplate, entities, this::createParameters, batchSize,
+						"upsert Graph"));
 	}
 
 	private Object[] createParameters(final Graph graph) {
+		return new Object[] {
+				keyEncoding.encode(graph.getUuid()),
+				keyEncoding.encode(graph.getCategory()),
+				keyEncoding.encode(graph.getContainer()),
+				keyEncoding.encode(graph.getIsAbstractValue()),
+				keyEncoding.encode(graph.getMaxCardinalityValueInContainer()),
+				graph.getProperClass().name(),
+				largeColumnCodec.encode(graph.getContentAsXml()),
+				keyEncoding.encode(graph.getUrr())
+		};
+	}
+
+	/**
+	 * Returns the unencoded column values compared by partial updates, in the order of {@link #createParameters(Graph)}
+	 */
+	private static Object[] createColumnValues(final Graph graph) {
 		return new Object[] {
 				graph.getUuid(),
 				graph.getCategory(),
 				graph.getContainer(),
 				graph.getIsAbstractValue(),
 				graph.getMaxCardinalityValueInContainer(),
-				graph.getProperClass().name(),
-				graph.getContentAsXml(),
+				graph.getProperClass(),
+				graph.getContentAsXmlValue(),
 				graph.getUrr()
 		};
 	}
 
-	private static class GraphGetHandler implements ResultSetHandler<Graph> {
+	private Object encodeColumn(final String columnName, final Object value) {
+		switch (columnName) {
+		case PROPER_CLASS:
+			return ((ProperClass) value).name();
+		case CONTENT_AS_XML:
+			return largeColumnCodec.encode(((LargeValue) value).get());
+		default:
+			return keyEncoding.encode((String) value);
+		}
+	}
+
+	private LargeValue deferContentAsXml(final String urr) {
+		return LargeColumns.deferred(queryRunner, SELECT_CONTENT_AS_XML_TEMPLATE, keyEncoding.encode(urr), largeColumnCodec,
+				"contentAsXml of Graph '" + urr + "'");
+	}
+
+	private static class GraphGetHandler implements ResultSetHandler<Graph>, RowMapper<Graph> {
+
+		private final StringPool stringPool;
+
+		private final KeyEncoding keyEncoding;
+
+		private final LargeColumnCodec largeColumnCodec;
+
+		/**
+		 * Creates a lazily loaded contentAsXml from the URR, or null if the column is retrieved
+		 */
+		private final Function<String, LargeValue> deferredContentAsXml;
+
+		GraphGetHandler(final JdbcDaoConfiguration configuration, final Function<String, LargeValue> deferredContentAsXml) {
+			this.stringPool = configuration.getStringPool();
+			this.keyEncoding = configuration.getKeyEncoding();
+			this.largeColumnCodec = configuration.getLargeColumnCodec();
+			this.deferredContentAsXml = deferredContentAsXml;
+		}
 
 		public Graph handle(final ResultSet resultSet) throws SQLException {
 			final boolean hasNext = resultSet.next();
 			if (hasNext) {
-				final String uuid = resultSet.getString(UUID);
-				final String category = resultSet.getString(CATEGORY);
-				final String container = resultSet.getString(CONTAINER);
-				final String isAbstractValue = resultSet.getString(IS_ABSTRACT_VALUE);
-				final String maxCardinalityValueInContainer = resultSet.getString(MAX_CARDINALITY_VALUE_IN_CONTAINER);
-				final ProperClass properClass = ProperClass.valueOf(resultSet.getString(PROPER_CLASS));
-				final String contentAsXml = resultSet.getString(CONTENT_AS_XML);
-				final String urr = resultSet.getString(URR);
-
-				return new Graph(urr, uuid, category, container, isAbstractValue, properClass, maxCardinalityValueInContainer, contentAsXml);
+				return mapRow(resultSet);
 			} else {
 				return null;
 			}
 		}
+
+		public Graph mapRow(final ResultSet resultSet) throws SQLException {
+			final String uuid = readKey(resultSet, UUID);
+			final String category = readKey(resultSet, CATEGORY);
+			final String container = readKey(resultSet, CONTAINER);
+			final String isAbstractValue = readKey(resultSet, IS_ABSTRACT_VALUE);
+			final String maxCardinalityValueInContainer = readKey(resultSet, MAX_CARDINALITY_VALUE_IN_CONTAINER);
+			final ProperClass properClass = ProperClass.valueOf(resultSet.getString(PROPER_CLASS));
+			final String urr = readKey(resultSet, URR);
+			final LargeValue contentAsXml = deferredContentAsXml == null ? LargeValue.of(largeColumnCodec.read(resultSet, CONTENT_AS_XML))
+					: deferredContentAsXml.apply(urr);
+
+			return Graph.withContentAsXmlValue(urr, uuid, category, container, isAbstractValue, properClass, maxCardinalityValueInContainer,
+					contentAsXml);
+		}
+
+		private String readKey(final ResultSet resultSet, final String column) throws SQLException {
+			return stringPool.canonicalize(keyEncoding.read(resultSet, column));
+		}
 	}
 }
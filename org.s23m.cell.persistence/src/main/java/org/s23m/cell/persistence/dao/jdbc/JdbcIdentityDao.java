@@ -1,12 +1,24 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.io.Reader;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.dao.Change;
 import org.s23m.cell.persistence.dao.IdentityDao;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
 import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.LargeValue;
 
 public final class JdbcIdentityDao implements IdentityDao {
 
@@ -26,9 +38,21 @@ public final class JdbcIdentityDao implements IdentityDao {
 			UUID
 	};
 
-	private static final String SELECT_BY_PK_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Identity.class, UUID);
+	/**
+	 * The columns retrieved by lookups when the payload is loaded lazily
+	 */
+	private static final String[] PROJECTED_COLUMN_NAMES = {
+			NAME,
+			PLURAL_NAME,
+			CODE_NAME,
+			PLURAL_CODE_NAME,
+			UUID
+	};
+
+	private static final String SELECT_ALL_TEMPLATE = SqlQueryTemplates.createSelectAllQueryTemplate(Identity.class);
 
-	private static final String UPDATE_TEMPLATE = SqlQueryTemplates.createUpdateStatementTemplate(Identity.class, COLUMN_NAMES);
+	private static final String SELECT_PAYLOAD_TEMPLATE = SqlQueryTemplates.createSelectByIdQueryTemplate(Identity.class,
+			new String[] {PAYLOAD}, UUID);
 
 	private static final String INSERT_TEMPLATE = SqlQueryTemplates.createInsertStatementTemplate(Identity.class, COLUMN_NAMES);
 
@@ -44,45 +68,222 @@ public final class JdbcIdentityDao implements IdentityDao {
 
 	private final IdentityGetHandler handler;
 
+	private final IdentityGetHandler lookupHandler;
+
+	private final ListHandler<Identity> listHandler;
+
+	private final String[] selectColumns;
+
+	private final String selectByPkTemplate;
+
+	private final int batchSize;
+
+	private final KeyEncoding keyEncoding;
+
+	private final int fetchSize;
+
+	private final Metered metered;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final LargeColumnCodec largeColumnCodec;
+
+	private final String upsertTemplate;
+
+	private final String updateTemplate;
+
+	private final BatchInserts<Identity> batchInserts;
+
 	public JdbcIdentityDao(final QueryRunner queryRunner) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param batchSize the maximum number of rows sent to the database in a single batch,
+	 *  and the maximum number of keys looked up by a single query
+	 */
+	public JdbcIdentityDao(final QueryRunner queryRunner, final int batchSize) {
+		this(queryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(batchSize));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param queryRunner
+	 * @param configuration
+	 */
+	public JdbcIdentityDao(final QueryRunner queryRunner, final JdbcDaoConfiguration configuration) {
 		this.queryRunner = queryRunner;
-		this.handler = new IdentityGetHandler();
+		this.batchSize = configuration.getBatchSize();
+		this.keyEncoding = configuration.getKeyEncoding();
+		this.largeColumnCodec = configuration.getLargeColumnCodec();
+		this.handler = new IdentityGetHandler(configuration, null);
+		if (configuration.isLazyLargeColumns()) {
+			this.lookupHandler = new IdentityGetHandler(configuration, this::deferPayload);
+			this.selectColumns = PROJECTED_COLUMN_NAMES;
+		} else {
+			this.lookupHandler = handler;
+			this.selectColumns = null;
+		}
+		this.listHandler = new ListHandler<>(lookupHandler);
+		this.selectByPkTemplate = SqlQueryTemplates.createSelectByIdQueryTemplate(Identity.class, selectColumns, UUID);
+		this.fetchSize = configuration.getFetchSize();
+		this.metered = new Metered(configuration.getMetrics(), Identity.class);
+		this.reassignsSequenceNumbers = configuration.getDialect().isReassigningSequenceNumbers();
+		this.upsertTemplate = SqlQueryTemplates.createUpsertStatementTemplate(configuration.getDialect(), Identity.class, COLUMN_NAMES);
+		this.updateTemplate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(configuration.getDialect(), Identity.class, COLUMN_NAMES);
+		this.batchInserts = new BatchInserts<>(configuration.getDialect(), Identity.class, COLUMN_NAMES, this::createParameters,
+				configuration.getBatchSize());
 	}
 
 	public Identity get(final String uuid) {
-		try {
-			return queryRunner.query(SELECT_BY_PK_TEMPLATE, handler, uuid);
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not retrieve Identity with uuid '" + uuid + "'", e);
-		}
+		return metered.call(DaoOperation.GET, () -> {
+			try {
+				return queryRunner.query(selectByPkTemplate, lookupHandler, keyEncoding.encode(uuid));
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not retrieve Identity with uuid '" + uuid + "'", e);
+			}
+		}, Metered::countOne);
+	}
+
+	@Override
+	public Map<String, Identity> getAll(final Collection<String> uuids) {
+		return metered.call(DaoOperation.GET_ALL,
+				() -> BulkLookups.getAll(queryRunner, Identity.class, selectColumns, UUID, uuids, listHandler, Identity::getUuid, keyEncoding, batchSize), Map::size);
+	}
+
+	@Override
+	public Stream<Identity> scanAll() {
+		return metered.stream(DaoOperation.SCAN,
+				() -> ResultSetStreams.stream(queryRunner, SELECT_ALL_TEMPLATE, handler, fetchSize, "scan Identity rows"));
+	}
+
+	@Override
+	public Page<Identity> getPage(final PageCursor cursor, final int limit) {
+		return metered.call(DaoOperation.GET_PAGE,
+				() -> KeysetPages.getPage(queryRunner, Identity.class, handler, cursor, limit), page -> page.getEntities().size());
+	}
+
+	@Override
+	public List<Change<Identity>> pollSince(final long sequenceNumber, final int max) {
+		return metered.call(DaoOperation.POLL,
+				() -> KeysetPages.pollSince(queryRunner, Identity.class, handler, reassignsSequenceNumbers, sequenceNumber, max), List::size);
+	}
+
+	@Override
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
+	}
+
+	/**
+	 * Opens a reader over the payload of the Identity with the given UUID, streaming it from the database
+	 * rather than holding it in memory. The reader holds a connection, so it must be closed by the caller.
+	 *
+	 * @param uuid
+	 * @return the reader, or null if the Identity has no payload
+	 */
+	public Reader openPayload(final String uuid) {
+		return LargeColumns.open(queryRunner, SELECT_PAYLOAD_TEMPLATE, keyEncoding.encode(uuid), largeColumnCodec,
+				"payload of Identity '" + uuid + "'");
 	}
 
 	@Override
 	public void insert(final Identity identity) {
-		final Object[] parameters = createParameters(identity);
+		metered.run(DaoOperation.INSERT, 1, () -> {
+			final Object[] parameters = createParameters(identity);
 
-		try {
-			final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to insert Identity: " + identity);
+			try {
+				final int updates = queryRunner.update(INSERT_TEMPLATE, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to insert Identity: " + identity);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not insert Identity: " + identity, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not insert Identity: " + identity, e);
-		}
+		});
 	}
 
 	@Override
 	public void update(final Identity identity) {
-		final Object[] parameters = createParameters(identity);
+		metered.run(DaoOperation.UPDATE, 1, () -> {
+			final Object[] parameters = createParameters(identity);
 
-		try {
-			final int updates = queryRunner.update(UPDATE_TEMPLATE, parameters);
-			if (updates != 1) {
-				throw new RuntimeException("Failed to update Identity: " + identity);
+			try {
+				final int updates = queryRunner.update(updateTemplate, parameters);
+				if (updates != 1) {
+					throw new RuntimeException("Failed to update Identity: " + identity);
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not update Identity: " + identity, e);
 			}
-		} catch (final SQLException e) {
-			throw new RuntimeException("Could not update Identity: " + identity, e);
-		}
+		});
+	}
+
+	@Override
+	public void upsert(final Identity identity) {
+		metered.run(DaoOperation.UPSERT, 1, () -> {
+			final Object[] parameters = createParameters(identity);
+
+			try {
+				queryRunner.update(upsertTemplate, parameters);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not upsert Identity: " + identity, e);
+			}
+		});
+	}
+
+	@Override
+	public void insertAll(final Collection<Identity> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, entities));
+	}
+
+	@Override
+	public void updateAll(final Collection<Identity> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, updateTemplate, entities, this::createParameters, batchSize, "update Identity"));
+	}
+
+	@Override
+	public void upsertAll(final Collection<Identity> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, upsertTemplate, entities, this::createParameters, batchSize, "upsert Identity"));
+	}
+
+	/**
+	 * Inserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 * This allows several tables to be written within a single transaction.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void insertAll(final Connection connection, final Collection<Identity> entities) {
+		metered.run(DaoOperation.INSERT_BATCH, entities.size(), () -> batchInserts.insertAll(queryRunner, connection, entities));
+	}
+
+	/**
+	 * Updates the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void updateAll(final Connection connection, final Collection<Identity> entities) {
+		metered.run(DaoOperation.UPDATE_BATCH, entities.size(),
+				() -> BatchStatements.execute(queryRunner, connection, updateTemplate, entities, this::createParameters, batchSize, "update Identity"));
+	}
+
+	/**
+	 * Upserts the provided entities in batches using the given connection, which is neither committed nor closed.
+	 *
+	 * @param connection
+	 * @param entities
+	 */
+	public void upsertAll(final Connection connection, final Collection<Identity> entities) {
+		metered.run(DaoOperation.UPSERT_BATCH, entities.size(),
+				() -> BatchStatements.executeUpserts(queryRunner, connection, upsertTemplate, entities, this::createParameters, batchSize,
+						"upsert Identity"));
 	}
 
 	private Object[] createParameters(final Identity identity) {
@@ -102,8 +303,8 @@ public final class JdbcIdentityDao implements IdentityDao {
 				pluralName,
 				codeName,
 				pluralCodeName,
-				identity.getPayload(),
-				identity.getUuid()
+				largeColumnCodec.encode(identity.getPayload()),
+				keyEncoding.encode(identity.getUuid())
 		};
 	}
 
@@ -113,22 +314,53 @@ public final class JdbcIdentityDao implements IdentityDao {
 		}
 	}
 
-	private static class IdentityGetHandler implements ResultSetHandler<Identity> {
+	private LargeValue deferPayload(final String uuid) {
+		return LargeColumns.deferred(queryRunner, SELECT_PAYLOAD_TEMPLATE, keyEncoding.encode(uuid), largeColumnCodec,
+				"payload of Identity '" + uuid + "'");
+	}
+
+	private static class IdentityGetHandler implements ResultSetHandler<Identity>, RowMapper<Identity> {
+
+		private final StringPool stringPool;
+
+		private final KeyEncoding keyEncoding;
+
+		private final LargeColumnCodec largeColumnCodec;
+
+		/**
+		 * Creates a lazily loaded payload from the UUID, or null if the column is retrieved
+		 */
+		private final Function<String, LargeValue> deferredPayload;
+
+		IdentityGetHandler(final JdbcDaoConfiguration configuration, final Function<String, LargeValue> deferredPayload) {
+			this.stringPool = configuration.getStringPool();
+			this.keyEncoding = configuration.getKeyEncoding();
+			this.largeColumnCodec = configuration.getLargeColumnCodec();
+			this.deferredPayload = deferredPayload;
+		}
 
 		public Identity handle(final ResultSet resultSet) throws SQLException {
 			final boolean hasNext = resultSet.next();
 			if (hasNext) {
-				final String uuid = resultSet.getString(UUID);
-				final String name = resultSet.getString(NAME);
-				final String pluralName = resultSet.getString(PLURAL_NAME);
-				final String codeName = resultSet.getString(CODE_NAME);
-				final String pluralCodeName = resultSet.getString(PLURAL_CODE_NAME);
-				final String payload = resultSet.getString(PAYLOAD);
-
-				return new Identity(uuid, name, pluralName, codeName, pluralCodeName, payload);
+				return mapRow(resultSet);
 			} else {
 				return null;
 			}
 		}
+
+		public Identity mapRow(final ResultSet resultSet) throws SQLException {
+			final String uuid = readKey(resultSet, UUID);
+			final String name = resultSet.getString(NAME);
+			final String pluralName = resultSet.getString(PLURAL_NAME);
+			final String codeName = resultSet.getString(CODE_NAME);
+			final String pluralCodeName = resultSet.getString(PLURAL_CODE_NAME);
+			final LargeValue payload = deferredPayload == null ? LargeValue.of(largeColumnCodec.read(resultSet, PAYLOAD)) : deferredPayload.apply(uuid);
+
+			return Identity.withPayloadValue(uuid, name, pluralName, codeName, pluralCodeName, payload);
+		}
+
+		private String readKey(final ResultSet resultSet, final String column) throws SQLException {
+			return stringPool.canonicalize(keyEncoding.read(resultSet, column));
+		}
 	}
 }
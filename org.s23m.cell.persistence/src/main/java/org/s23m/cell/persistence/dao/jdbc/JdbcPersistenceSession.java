@@ -0,0 +1,199 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.s23m.cell.persistence.dao.PersistenceSession;
+import org.s23m.cell.persistence.model.Agent;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+
+/**
+ * {@link PersistenceSession} which flushes using batched statements within a single transaction.
+ *
+ * Inserts are written first, in foreign key dependency order (Identity, Agent, Graph, Arrow, Edge),
+ * followed by updates in the same order, so that updated rows may refer to newly inserted ones.
+ *
+ * Instances are not thread-safe.
+ */
+public final class JdbcPersistenceSession implements PersistenceSession {
+
+	private final DataSource dataSource;
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
+
+	private final JdbcEdgeDao edgeDao;
+
+	private final JdbcAgentDao agentDao;
+
+	private final PendingWrites<Identity> identities = new PendingWrites<>(Identity.class, Identity::getUuid);
+
+	private final PendingWrites<Graph> graphs = new PendingWrites<>(Graph.class, Graph::getUrr);
+
+	private final PendingWrites<Arrow> arrows = new PendingWrites<>(Arrow.class, Arrow::getUrr);
+
+	private final PendingWrites<Edge> edges = new PendingWrites<>(Edge.class, Edge::getUrr);
+
+	private final PendingWrites<Agent> agents = new PendingWrites<>(Agent.class, Agent::getUrr);
+
+	public JdbcPersistenceSession(final DataSource dataSource, final JdbcIdentityDao identityDao, final JdbcGraphDao graphDao,
+			final JdbcArrowDao arrowDao, final JdbcEdgeDao edgeDao, final JdbcAgentDao agentDao) {
+		this.dataSource = dataSource;
+		this.identityDao = identityDao;
+		this.graphDao = graphDao;
+		this.arrowDao = arrowDao;
+		this.edgeDao = edgeDao;
+		this.agentDao = agentDao;
+	}
+
+	@Override
+	public void insert(final Identity entity) {
+		identities.insert(entity);
+	}
+
+	@Override
+	public void insert(final Graph entity) {
+		graphs.insert(entity);
+	}
+
+	@Override
+	public void insert(final Arrow entity) {
+		arrows.insert(entity);
+	}
+
+	@Override
+	public void insert(final Edge entity) {
+		edges.insert(entity);
+	}
+
+	@Override
+	public void insert(final Agent entity) {
+		agents.insert(entity);
+	}
+
+	@Override
+	public void update(final Identity entity) {
+		identities.update(entity);
+	}
+
+	@Override
+	public void update(final Graph entity) {
+		graphs.update(entity);
+	}
+
+	@Override
+	public void update(final Arrow entity) {
+		arrows.update(entity);
+	}
+
+	@Override
+	public void update(final Edge entity) {
+		edges.update(entity);
+	}
+
+	@Override
+	public void update(final Agent entity) {
+		agents.update(entity);
+	}
+
+	@Override
+	public void flush() {
+		if (getPendingCount() == 0) {
+			return;
+		}
+
+		Transactions.execute(dataSource, connection -> {
+			identityDao.insertAll(connection, identities.getInserts());
+			agentDao.insertAll(connection, agents.getInserts());
+			graphDao.insertAll(connection, graphs.getInserts());
+			arrowDao.insertAll(connection, arrows.getInserts());
+			edgeDao.insertAll(connection, edges.getInserts());
+
+			identityDao.updateAll(connection, identities.getUpdates());
+			agentDao.updateAll(connection, agents.getUpdates());
+			graphDao.updateAll(connection, graphs.getUpdates());
+			arrowDao.updateAll(connection, arrows.getUpdates());
+			edgeDao.updateAll(connection, edges.getUpdates());
+		});
+
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		identities.clear();
+		graphs.clear();
+		arrows.clear();
+		edges.clear();
+		agents.clear();
+	}
+
+	@Override
+	public int getPendingCount() {
+		return identities.size() + graphs.size() + arrows.size() + edges.size() + agents.size();
+	}
+
+	/**
+	 * The pending inserts and updates for a single table, keyed by primary key
+	 */
+	private static final class PendingWrites<T> {
+
+		private final Class<T> entityClass;
+
+		private final Function<T, String> primaryKey;
+
+		private final Map<String, T> inserts = new LinkedHashMap<>();
+
+		private final Map<String, T> updates = new LinkedHashMap<>();
+
+		PendingWrites(final Class<T> entityClass, final Function<T, String> primaryKey) {
+			this.entityClass = entityClass;
+			this.primaryKey = primaryKey;
+		}
+
+		void insert(final T entity) {
+			final String key = primaryKey.apply(entity);
+			if (inserts.containsKey(key) || updates.containsKey(key)) {
+				throw new IllegalStateException(entityClass.getSimpleName() + " '" + key + "' has already been written in this session");
+			}
+			inserts.put(key, entity);
+		}
+
+		void update(final T entity) {
+			final String key = primaryKey.apply(entity);
+			if (inserts.containsKey(key)) {
+				// insert the latest state instead
+				inserts.put(key, entity);
+			} else {
+				updates.put(key, entity);
+			}
+		}
+
+		Collection<T> getInserts() {
+			return inserts.values();
+		}
+
+		Collection<T> getUpdates() {
+			return updates.values();
+		}
+
+		int size() {
+			return inserts.size() + updates.size();
+		}
+
+		void clear() {
+			inserts.clear();
+			updates.clear();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import static org.s23m.cell.persistence.dao.jdbc.LookupExecutor.join;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.s23m.cell.persistence.dao.GraphDao;
+import org.s23m.cell.persistence.dao.Subtree;
+import org.s23m.cell.persistence.dao.SubtreeLoader;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * {@link SubtreeLoader} which retrieves the graphs using a single recursive query ({@link GraphDao#loadSubtree(String, int)}),
+ * and then the arrows, edges and identities of the subtree using chunked bulk lookups.
+ * The arrows and edges are looked up concurrently on the provided {@link LookupExecutor}, followed by the identities.
+ */
+public final class JdbcSubtreeLoader implements SubtreeLoader {
+
+	private final JdbcIdentityDao identityDao;
+
+	private final JdbcGraphDao graphDao;
+
+	private final JdbcArrowDao arrowDao;
+
+	private final JdbcEdgeDao edgeDao;
+
+	private final LookupExecutor executor;
+
+	public JdbcSubtreeLoader(final JdbcIdentityDao identityDao, final JdbcGraphDao graphDao, final JdbcArrowDao arrowDao,
+			final JdbcEdgeDao edgeDao) {
+		this(identityDao, graphDao, arrowDao, edgeDao, LookupExecutor.DIRECT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param identityDao
+	 * @param graphDao
+	 * @param arrowDao
+	 * @param edgeDao
+	 * @param executor runs the arrow and edge lookups
+	 */
+	public JdbcSubtreeLoader(final JdbcIdentityDao identityDao, final JdbcGraphDao graphDao, final JdbcArrowDao arrowDao,
+			final JdbcEdgeDao edgeDao, final LookupExecutor executor) {
+		this.identityDao = identityDao;
+		this.graphDao = graphDao;
+		this.arrowDao = arrowDao;
+		this.edgeDao = edgeDao;
+		this.executor = executor;
+	}
+
+	@Override
+	public Subtree load(final String rootUrr, final int maxDepth) {
+		final Map<String, Graph> graphs = new LinkedHashMap<>();
+		final List<String> arrowUrrs = new ArrayList<>();
+		final Collection<String> identityUuids = new LinkedHashSet<>();
+		for (final Graph graph : graphDao.loadSubtree(rootUrr, maxDepth)) {
+			graphs.put(graph.getUrr(), graph);
+			if (graph.getProperClass() != ProperClass.Vertex) {
+				arrowUrrs.add(graph.getUrr());
+			}
+			addReferences(identityUuids, graph);
+		}
+
+		// every edge is an arrow, so both can be looked up by the arrow URRs without waiting for the arrows
+		final CompletableFuture<Map<String, Arrow>> arrowLookup = executor.submit(() -> arrowDao.getAll(arrowUrrs));
+		final CompletableFuture<Map<String, Edge>> edgeLookup = executor.submit(() -> edgeDao.getAll(arrowUrrs));
+		final Map<String, Arrow> arrows = join(arrowLookup);
+		final Map<String, Edge> edges = join(edgeLookup);
+		for (final Arrow arrow : arrows.values()) {
+			identityUuids.add(arrow.getCategory());
+		}
+		for (final Edge edge : edges.values()) {
+			addReferences(identityUuids, edge);
+		}
+
+		final Map<String, Identity> identities = identityDao.getAll(identityUuids);
+		return new Subtree(graphs, arrows, edges, identities);
+	}
+
+	private static void addReferences(final Collection<String> identityUuids, final Graph graph) {
+		identityUuids.add(graph.getUrr());
+		identityUuids.add(graph.getUuid());
+		identityUuids.add(graph.getCategory());
+		identityUuids.add(graph.getContainer());
+		identityUuids.add(graph.getIsAbstractValue());
+		if (graph.getMaxCardinalityValueInContainer() != null) {
+			identityUuids.add(graph.getMaxCardinalityValueInContainer());
+		}
+	}
+
+	static void addReferences(final Collection<String> identityUuids, final Edge edge) {
+		identityUuids.add(edge.getMinCardinalityValueFromEdgeEnd());
+		identityUuids.add(edge.getMinCardinalityValueToEdgeEnd());
+		identityUuids.add(edge.getMaxCardinalityValueFromEdgeEnd());
+		identityUuids.add(edge.getMaxCardinalityValueToEdgeEnd());
+		identityUuids.add(edge.getIsNavigableValueFromEdgeEnd());
+		identityUuids.add(edge.getIsNavigableValueToEdgeEnd());
+		identityUuids.add(edge.getIsContainerValueFromEdgeEnd());
+		identityUuids.add(edge.getIsContainerValueToEdgeEnd());
+	}
+}
@@ -0,0 +1,103 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+/**
+ * How key and reference columns are represented in the database
+ */
+public enum KeyEncoding {
+
+	/**
+	 * Keys are stored in varchar(36) columns, as in sql/common_ddl.sql. Any string may be used as a key.
+	 */
+	STRING("varchar(36)") {
+		@Override
+		Object encode(final String key) {
+			return key;
+		}
+
+		@Override
+		String read(final ResultSet resultSet, final String column) throws SQLException {
+			return resultSet.getString(column);
+		}
+
+		@Override
+		String normalize(final String key) {
+			return key;
+		}
+	},
+
+	/**
+	 * Keys are stored as 16 bytes in BINARY(16) columns (for H2 and MySQL).
+	 * Keys must be UUIDs, and are read back in their standard lower case string form.
+	 */
+	BINARY("BINARY(16)") {
+		@Override
+		Object encode(final String key) {
+			return key == null ? null : UuidKey.fromString(key).toBytes();
+		}
+
+		@Override
+		String read(final ResultSet resultSet, final String column) throws SQLException {
+			final byte[] bytes = resultSet.getBytes(column);
+			return bytes == null ? null : UuidKey.fromBytes(bytes).toString();
+		}
+
+		@Override
+		String normalize(final String key) {
+			return UuidKey.fromString(key).toString();
+		}
+	},
+
+	/**
+	 * Keys are stored in native UUID columns (for PostgreSQL and H2).
+	 * Keys must be UUIDs, and are read back in their standard lower case string form.
+	 */
+	UUID("UUID") {
+		@Override
+		Object encode(final String key) {
+			return key == null ? null : UuidKey.fromString(key).toUUID();
+		}
+
+		@Override
+		String read(final ResultSet resultSet, final String column) throws SQLException {
+			final Object value = resultSet.getObject(column);
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		String normalize(final String key) {
+			return UuidKey.fromString(key).toString();
+		}
+	};
+
+	private final String columnType;
+
+	KeyEncoding(final String columnType) {
+		this.columnType = columnType;
+	}
+
+	/**
+	 * Returns the type of the key and reference columns, with which {@link SchemaScripts} creates the tables
+	 */
+	String getColumnType() {
+		return columnType;
+	}
+
+	/**
+	 * Converts a (nullable) key into a statement parameter
+	 */
+	abstract Object encode(String key);
+
+	/**
+	 * Reads a (nullable) key from the current row
+	 */
+	abstract String read(ResultSet resultSet, String column) throws SQLException;
+
+	/**
+	 * Converts a key into the form in which it is read back from the database
+	 */
+	abstract String normalize(String key);
+}
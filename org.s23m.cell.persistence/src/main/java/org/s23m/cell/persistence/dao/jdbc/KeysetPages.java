@@ -0,0 +1,123 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+
+/**
+ * Reads pages of rows ordered by sequence number, seeking past the previous page rather than
+ * using an offset, so that the cost of reading a page does not depend on how far into the table it is.
+ */
+final class KeysetPages {
+
+	private KeysetPages() {
+	}
+
+	/**
+	 * Reads at most limit rows following the cursor position
+	 *
+	 * @param queryRunner
+	 * @param entityClass
+	 * @param rowMapper
+	 * @param cursor
+	 * @param limit the maximum number of entities in the page
+	 */
+	static <T> Page<T> getPage(final QueryRunner queryRunner, final Class<T> entityClass, final RowMapper<T> rowMapper,
+			final PageCursor cursor, final int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Page limit must be positive: " + limit);
+		}
+
+		final String template = SqlQueryTemplates.createSelectPageQueryTemplate(entityClass);
+		try {
+			// read one additional row to determine whether this is the last page
+			return queryRunner.query(template, new PageHandler<>(rowMapper, cursor, limit), cursor.getSequenceNumber(), limit + 1);
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not retrieve " + entityClass.getSimpleName() + " rows after " + cursor, e);
+		}
+	}
+
+	/**
+	 * Reads at most max rows with a sequence number greater than the one provided. Rows written by transactions
+	 * which have not yet committed are not visible, even if their sequence numbers are smaller than those returned
+	 * (see {@link org.s23m.cell.persistence.dao.ChangeFeed}).
+	 *
+	 * @param queryRunner
+	 * @param entityClass
+	 * @param rowMapper
+	 * @param reassignsSequenceNumbers whether updated rows are assigned a new sequence number; if not,
+	 *  polling is refused, since the consumer would silently miss updates
+	 * @param sequenceNumber
+	 * @param max
+	 */
+	static <T> List<Change<T>> pollSince(final QueryRunner queryRunner, final Class<T> entityClass, final RowMapper<T> rowMapper,
+			final boolean reassignsSequenceNumbers, final long sequenceNumber, final int max) {
+		if (!reassignsSequenceNumbers) {
+			throw new UnsupportedOperationException("The " + entityClass.getSimpleName()
+					+ " change feed is not supported by this dialect, as updated rows keep their sequence numbers");
+		}
+		if (max < 1) {
+			throw new IllegalArgumentException("Maximum number of changes must be positive: " + max);
+		}
+
+		final String template = SqlQueryTemplates.createSelectPageQueryTemplate(entityClass);
+		try {
+			return queryRunner.query(template, new ChangeHandler<>(rowMapper), sequenceNumber, max);
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not retrieve " + entityClass.getSimpleName() + " changes since " + sequenceNumber, e);
+		}
+	}
+
+	private static final class ChangeHandler<T> implements ResultSetHandler<List<Change<T>>> {
+
+		private final RowMapper<T> rowMapper;
+
+		ChangeHandler(final RowMapper<T> rowMapper) {
+			this.rowMapper = rowMapper;
+		}
+
+		@Override
+		public List<Change<T>> handle(final ResultSet resultSet) throws SQLException {
+			final List<Change<T>> changes = new ArrayList<>();
+			while (resultSet.next()) {
+				final T entity = rowMapper.mapRow(resultSet);
+				changes.add(new Change<>(resultSet.getLong(SqlQueryTemplates.SEQUENCE_NUMBER), entity));
+			}
+			return changes;
+		}
+	}
+
+	private static final class PageHandler<T> implements ResultSetHandler<Page<T>> {
+
+		private final RowMapper<T> rowMapper;
+
+		private final PageCursor cursor;
+
+		private final int limit;
+
+		PageHandler(final RowMapper<T> rowMapper, final PageCursor cursor, final int limit) {
+			this.rowMapper = rowMapper;
+			this.cursor = cursor;
+			this.limit = limit;
+		}
+
+		@Override
+		public Page<T> handle(final ResultSet resultSet) throws SQLException {
+			final List<T> entities = new ArrayList<>();
+			long lastSequenceNumber = cursor.getSequenceNumber();
+			while (entities.size() < limit && resultSet.next()) {
+				entities.add(rowMapper.mapRow(resultSet));
+				lastSequenceNumber = resultSet.getLong(SqlQueryTemplates.SEQUENCE_NUMBER);
+			}
+			final boolean last = !resultSet.next();
+			return new Page<>(entities, PageCursor.after(lastSequenceNumber), last);
+		}
+	}
+}
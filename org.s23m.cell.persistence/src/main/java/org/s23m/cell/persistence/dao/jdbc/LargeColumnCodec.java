@@ -0,0 +1,219 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * How the large text columns (Graph.contentAsXml and Identity.payload) are represented in the database
+ *
+ * {@link #TEXT} stores them as TEXT columns, as in sql/common_ddl.sql.
+ * A compressed codec stores them in BLOB columns, with which {@link SchemaScripts} creates the tables: each value is
+ * a format marker byte followed by either its UTF-8 bytes ({@value #STORED}) or their DEFLATE compressed form ({@value #DEFLATED}).
+ * Values shorter than the threshold, or which do not shrink, are stored uncompressed.
+ * Existing TEXT columns can be converted using {@link LargeColumnCompression}.
+ */
+public final class LargeColumnCodec {
+
+	/**
+	 * The default number of characters below which values are not compressed
+	 */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
+	/**
+	 * Stores values as text
+	 */
+	public static final LargeColumnCodec TEXT = new LargeColumnCodec(-1);
+
+	/**
+	 * Compresses values of at least {@value #DEFAULT_COMPRESSION_THRESHOLD} characters
+	 */
+	public static final LargeColumnCodec COMPRESSED = compressed(DEFAULT_COMPRESSION_THRESHOLD);
+
+	/**
+	 * The marker of a value stored as UTF-8
+	 */
+	static final byte STORED = 0;
+
+	/**
+	 * The marker of a value stored as DEFLATE compressed UTF-8
+	 */
+	static final byte DEFLATED = 1;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The number of characters below which values are not compressed, or -1 for text columns
+	 */
+	private final int threshold;
+
+	private LargeColumnCodec(final int threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Returns a codec storing values in BLOB columns, compressing those of at least the given number of characters
+	 *
+	 * @param threshold
+	 */
+	public static LargeColumnCodec compressed(final int threshold) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Compression threshold must not be negative: " + threshold);
+		}
+		return new LargeColumnCodec(threshold);
+	}
+
+	/**
+	 * Returns whether values are stored in BLOB columns
+	 */
+	public boolean isCompressed() {
+		return threshold >= 0;
+	}
+
+	/**
+	 * Returns the type of the large columns, with which {@link SchemaScripts} creates the tables
+	 */
+	String getColumnType() {
+		return isCompressed() ? "BLOB" : "TEXT";
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Converts a (nullable) value into a statement parameter
+	 */
+	Object encode(final String value) {
+		if (value == null || !isCompressed()) {
+			return value;
+		}
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (value.length() >= threshold) {
+			final byte[] deflated = deflate(bytes);
+			if (deflated != null) {
+				return deflated;
+			}
+		}
+		final byte[] stored = new byte[bytes.length + 1];
+		stored[0] = STORED;
+		System.arraycopy(bytes, 0, stored, 1, bytes.length);
+		return stored;
+	}
+
+	/**
+	 * Reads a (nullable) value from the current row
+	 */
+	String read(final ResultSet resultSet, final String column) throws SQLException {
+		return isCompressed() ? decode(resultSet.getBytes(column)) : resultSet.getString(column);
+	}
+
+	/**
+	 * Reads a (nullable) value from the current row
+	 */
+	String read(final ResultSet resultSet, final int column) throws SQLException {
+		return isCompressed() ? decode(resultSet.getBytes(column)) : resultSet.getString(column);
+	}
+
+	/**
+	 * Opens a reader over a (nullable) value of the current row, decompressing it incrementally
+	 */
+	Reader openReader(final ResultSet resultSet, final int column) throws SQLException {
+		if (!isCompressed()) {
+			return resultSet.getCharacterStream(column);
+		}
+		final InputStream stream = resultSet.getBinaryStream(column);
+		if (stream == null) {
+			return null;
+		}
+		try {
+			final int marker = stream.read();
+			switch (marker) {
+			case STORED:
+				return new InputStreamReader(stream, StandardCharsets.UTF_8);
+			case DEFLATED:
+				return new InputStreamReader(new InflaterInputStream(stream), StandardCharsets.UTF_8);
+			default:
+				stream.close();
+				throw new IllegalStateException("Unknown large column format: " + marker);
+			}
+		} catch (final IOException e) {
+			throw new SQLException("Could not read large column", e);
+		}
+	}
+
+	static String decode(final byte[] encoded) {
+		if (encoded == null) {
+			return null;
+		}
+		if (encoded.length == 0) {
+			throw new IllegalStateException("Large column is missing its format marker");
+		}
+		switch (encoded[0]) {
+		case STORED:
+			return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+		case DEFLATED:
+			return new String(inflate(encoded), StandardCharsets.UTF_8);
+		default:
+			throw new IllegalStateException("Unknown large column format: " + encoded[0]);
+		}
+	}
+
+	/**
+	 * Returns the marker followed by the compressed bytes, or null if they are no smaller than the stored form
+	 */
+	private static byte[] deflate(final byte[] bytes) {
+		final Deflater deflater = new Deflater();
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2 + 1);
+			output.write(DEFLATED);
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			while (!deflater.finished()) {
+				output.write(buffer, 0, deflater.deflate(buffer));
+				if (output.size() > bytes.length) {
+					return null;
+				}
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(final byte[] encoded) {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(encoded, 1, encoded.length - 1);
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(encoded.length * 4);
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			while (!inflater.finished()) {
+				final int count = inflater.inflate(buffer);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalStateException("Compressed large column is truncated");
+				}
+				output.write(buffer, 0, count);
+			}
+			return output.toByteArray();
+		} catch (final DataFormatException e) {
+			throw new IllegalStateException("Compressed large column is corrupt", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return isCompressed() ? "LargeColumnCodec[threshold = " + threshold + "]" : "LargeColumnCodec[TEXT]";
+	}
+}
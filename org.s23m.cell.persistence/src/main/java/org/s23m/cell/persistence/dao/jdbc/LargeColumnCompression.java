@@ -0,0 +1,174 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts the TEXT large columns (Graph.contentAsXml and Identity.payload) of an existing database into the
+ * BLOB columns created by {@link SchemaScripts} for a compressed codec, encoding each value using a compressed {@link LargeColumnCodec}.
+ *
+ * Each column is converted by adding a BLOB column alongside it, filling it in batches (each in its own transaction),
+ * then dropping the TEXT column and renaming the BLOB column in its place. These statements are built from table and
+ * column names rather than templates, so identifiers are quoted using {@link SqlDialect#quoteIdentifier(String)}.
+ * Sequence numbers are left unchanged, since the values themselves do not change. Writes must be suspended while the migration runs.
+ * If the migration is interrupted, running it again resumes it, including when only the rename of a column remains;
+ * columns which are already binary are skipped.
+ */
+public final class LargeColumnCompression {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LargeColumnCompression.class);
+
+	/**
+	 * The suffix of the BLOB column added alongside each TEXT column during its conversion
+	 */
+	private static final String CONVERTED_COLUMN_SUFFIX = "Compressed";
+
+	private final DataSource dataSource;
+
+	private final SqlDialect dialect;
+
+	private final LargeColumnCodec codec;
+
+	private final int batchSize;
+
+	private final QueryRunner queryRunner = new QueryRunner();
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataSource
+	 * @param dialect
+	 * @param codec the compressed codec with which the DAOs will be configured
+	 * @param batchSize the number of rows converted in each transaction
+	 */
+	public LargeColumnCompression(final DataSource dataSource, final SqlDialect dialect, final LargeColumnCodec codec, final int batchSize) {
+		if (!codec.isCompressed()) {
+			throw new IllegalArgumentException("Codec does not compress: " + codec);
+		}
+		this.dataSource = dataSource;
+		this.dialect = dialect;
+		this.codec = codec;
+		this.batchSize = BatchStatements.validateBatchSize(batchSize);
+	}
+
+	/**
+	 * Converts both large columns
+	 *
+	 * @return the number of non-null values converted
+	 */
+	public long migrate() {
+		return migrate(Identity.class, "uuid", "payload") + migrate(Graph.class, "urr", "contentAsXml");
+	}
+
+	private long migrate(final Class<?> entityClass, final String keyColumn, final String column) {
+		final String table = entityClass.getSimpleName();
+		final String convertedColumn = column + CONVERTED_COLUMN_SUFFIX;
+
+		final String quotedTable = dialect.quoteIdentifier(table);
+		final String quotedKeyColumn = dialect.quoteIdentifier(keyColumn);
+		final String quotedColumn = dialect.quoteIdentifier(column);
+		final String quotedConvertedColumn = dialect.quoteIdentifier(convertedColumn);
+
+		final Integer columnType = findColumnType(table, column);
+		if (columnType == null) {
+			if (findColumnType(table, convertedColumn) == null) {
+				throw new IllegalStateException("Column " + table + "." + column + " does not exist");
+			}
+			// an earlier run was interrupted after dropping the TEXT column, so only the rename remains
+			execute(dialect.createRenameColumnStatement(quotedTable, quotedConvertedColumn, quotedColumn, blobType()));
+			LOGGER.info("Completed the conversion of {}.{}", table, column);
+			return 0;
+		}
+		if (isBinary(columnType)) {
+			LOGGER.info("{}.{} is already binary", table, column);
+			return 0;
+		}
+		if (findColumnType(table, convertedColumn) == null) {
+			execute("ALTER TABLE " + quotedTable + " ADD COLUMN " + quotedConvertedColumn + " " + blobType());
+		}
+
+		// rows which are not yet converted, so that each batch continues where the last one (or an earlier run) stopped
+		final String selectTemplate = "SELECT " + quotedKeyColumn + ", " + quotedColumn + " FROM " + quotedTable + " WHERE " + quotedColumn
+				+ " IS NOT NULL AND " + quotedConvertedColumn + " IS NULL ORDER BY " + quotedKeyColumn + " LIMIT ?";
+		final String updateTemplate = "UPDATE " + quotedTable + " SET " + quotedConvertedColumn + "=? WHERE " + quotedKeyColumn + "=?";
+		final ResultSetHandler<List<Object[]>> handler = resultSet -> {
+			final List<Object[]> rows = new ArrayList<>();
+			while (resultSet.next()) {
+				rows.add(new Object[] {codec.encode(resultSet.getString(2)), resultSet.getObject(1)});
+			}
+			return rows;
+		};
+
+		long converted = 0;
+		final AtomicInteger batchCount = new AtomicInteger();
+		do {
+			Transactions.execute(dataSource, connection -> {
+				try {
+					final List<Object[]> rows = queryRunner.query(connection, selectTemplate, handler, batchSize);
+					batchCount.set(rows.size());
+					if (!rows.isEmpty()) {
+						queryRunner.batch(connection, updateTemplate, rows.toArray(new Object[rows.size()][]));
+					}
+				} catch (final SQLException e) {
+					throw new RuntimeException("Could not convert " + table + "." + column, e);
+				}
+			});
+			converted += batchCount.get();
+		} while (batchCount.get() == batchSize);
+
+		execute("ALTER TABLE " + quotedTable + " DROP COLUMN " + quotedColumn);
+		execute(dialect.createRenameColumnStatement(quotedTable, quotedConvertedColumn, quotedColumn, blobType()));
+		LOGGER.info("Converted {} values of {}.{}", converted, table, column);
+		return converted;
+	}
+
+	private String blobType() {
+		return dialect.translateDdl(codec.getColumnType());
+	}
+
+	/**
+	 * Returns the JDBC type of the column, or null if it does not exist
+	 */
+	private Integer findColumnType(final String table, final String column) {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			try (ResultSet resultSet = statement.executeQuery("SELECT " + dialect.quoteIdentifier(column) + " FROM " + dialect.quoteIdentifier(table)
+					+ " WHERE 1=0")) {
+				return resultSet.getMetaData().getColumnType(1);
+			} catch (final SQLException e) {
+				return null;
+			}
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not inspect " + table, e);
+		}
+	}
+
+	private static boolean isBinary(final int columnType) {
+		return columnType == Types.BLOB || columnType == Types.BINARY || columnType == Types.VARBINARY
+				|| columnType == Types.LONGVARBINARY;
+	}
+
+	private void execute(final String sql) {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not execute " + sql, e);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.model.LargeValue;
+
+/**
+ * Retrieves a single large text column of a row on demand, either whole or as a stream
+ */
+final class LargeColumns {
+
+	private LargeColumns() {
+	}
+
+	/**
+	 * Returns a value which retrieves the column of the row with the given key when first accessed
+	 *
+	 * @param queryRunner
+	 * @param template a query selecting only the column, whose single parameter is the key
+	 * @param key the encoded key
+	 * @param codec
+	 * @param description describes the column in error messages, e.g. "payload of Identity 'x'"
+	 */
+	static LargeValue deferred(final QueryRunner queryRunner, final String template, final Object key, final LargeColumnCodec codec,
+			final String description) {
+		return LargeValue.deferred(() -> read(queryRunner, template, key, codec, description),
+				() -> open(queryRunner, template, key, codec, description));
+	}
+
+	/**
+	 * Retrieves the column of the row with the given key
+	 *
+	 * @param queryRunner
+	 * @param template a query selecting only the column, whose single parameter is the key
+	 * @param key the encoded key
+	 * @param codec
+	 * @param description describes the column in error messages
+	 */
+	static String read(final QueryRunner queryRunner, final String template, final Object key, final LargeColumnCodec codec,
+			final String description) {
+		final ResultSetHandler<String> handler = resultSet -> {
+			if (!resultSet.next()) {
+				throw new RuntimeException("Could not load " + description + ": the row no longer exists");
+			}
+			return codec.read(resultSet, 1);
+		};
+		try {
+			return queryRunner.query(template, handler, key);
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not load " + description, e);
+		}
+	}
+
+	/**
+	 * Opens a reader over the column of the row with the given key. Where the driver supports it (e.g. H2),
+	 * the value is streamed from its CLOB or BLOB rather than being materialized, and compressed values are
+	 * decompressed as they are read. The connection is held until the reader is closed.
+	 *
+	 * @param queryRunner provides the connection, and traces the query if it is a {@link TracingQueryRunner}
+	 * @param template a query selecting only the column, whose single parameter is the key
+	 * @param key the encoded key
+	 * @param codec
+	 * @param description describes the column in error messages
+	 * @return the reader, or null if the column is null
+	 */
+	static Reader open(final QueryRunner queryRunner, final String template, final Object key, final LargeColumnCodec codec,
+			final String description) {
+		Connection connection = null;
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		try {
+			connection = queryRunner.getDataSource().getConnection();
+			statement = connection.prepareStatement(template, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setObject(1, key);
+			final long start = System.nanoTime();
+			resultSet = statement.executeQuery();
+			TracingQueryRunner.traceStreamed(queryRunner, template, new Object[] {key}, start);
+			if (!resultSet.next()) {
+				throw new RuntimeException("Could not open " + description + ": the row no longer exists");
+			}
+			final Reader reader = codec.openReader(resultSet, 1);
+			if (reader == null) {
+				DbUtils.closeQuietly(connection, statement, resultSet);
+				return null;
+			}
+			return new ColumnReader(reader, connection, statement, resultSet);
+		} catch (final SQLException | RuntimeException e) {
+			DbUtils.closeQuietly(connection, statement, resultSet);
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new RuntimeException("Could not open " + description, e);
+		}
+	}
+
+	/**
+	 * Releases the database resources behind a column when it is closed
+	 */
+	private static final class ColumnReader extends FilterReader {
+
+		private final Connection connection;
+
+		private final PreparedStatement statement;
+
+		private final ResultSet resultSet;
+
+		ColumnReader(final Reader reader, final Connection connection, final PreparedStatement statement, final ResultSet resultSet) {
+			super(reader);
+			this.connection = connection;
+			this.statement = statement;
+			this.resultSet = resultSet;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				DbUtils.closeQuietly(connection, statement, resultSet);
+			}
+		}
+	}
+}
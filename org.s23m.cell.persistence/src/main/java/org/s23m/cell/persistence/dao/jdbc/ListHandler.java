@@ -0,0 +1,29 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Maps every row of a {@link ResultSet} to an entity
+ */
+final class ListHandler<T> implements ResultSetHandler<List<T>> {
+
+	private final RowMapper<T> rowMapper;
+
+	ListHandler(final RowMapper<T> rowMapper) {
+		this.rowMapper = rowMapper;
+	}
+
+	@Override
+	public List<T> handle(final ResultSet resultSet) throws SQLException {
+		final List<T> result = new ArrayList<>();
+		while (resultSet.next()) {
+			result.add(rowMapper.mapRow(resultSet));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,130 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent blocking lookups concurrently, so that the latency of a fan-out is that of its slowest lookup
+ * rather than the sum of them all.
+ *
+ * At most maxConcurrency lookups run at a time, each on its own thread and holding its own connection.
+ * maxConcurrency should therefore not exceed the size of the connection pool, so that lookups do not
+ * wait for connections held by other lookups. Lookups must not themselves wait for other lookups on the same executor.
+ *
+ * {@link #DIRECT} runs each lookup on the calling thread as it is submitted.
+ */
+public final class LookupExecutor implements AutoCloseable {
+
+	/**
+	 * Runs lookups one at a time on the calling thread
+	 */
+	public static final LookupExecutor DIRECT = new LookupExecutor();
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final ThreadPoolExecutor executor;
+
+	private LookupExecutor() {
+		this.executor = null;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxConcurrency the maximum number of lookups running at a time,
+	 *  typically the maximum size of the connection pool
+	 */
+	public LookupExecutor(final int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Maximum concurrency must be positive: " + maxConcurrency);
+		}
+		this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), new LookupThreadFactory());
+		// idle threads are released, since fan-outs are typically bursty
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Starts a lookup
+	 *
+	 * @param lookup
+	 * @return its result, which should be obtained using {@link #join(CompletableFuture)}
+	 */
+	public <T> CompletableFuture<T> submit(final Supplier<T> lookup) {
+		if (executor == null) {
+			final CompletableFuture<T> result = new CompletableFuture<>();
+			try {
+				result.complete(lookup.get());
+			} catch (final RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+			return result;
+		}
+		return CompletableFuture.supplyAsync(lookup, executor);
+	}
+
+	/**
+	 * Waits for a lookup to complete, rethrowing the exception thrown by the lookup if it failed
+	 *
+	 * @param future
+	 */
+	public static <T> T join(final CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of lookups running at a time, which is 1 for {@link #DIRECT}
+	 */
+	public int getMaxConcurrency() {
+		return executor == null ? 1 : executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Stops accepting lookups. Those already submitted still complete.
+	 */
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return executor == null ? "LookupExecutor[DIRECT]" : "LookupExecutor[maxConcurrency = " + getMaxConcurrency() + "]";
+	}
+
+	private static final class LookupThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+		private final int poolNumber = POOL_NUMBER.incrementAndGet();
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "persistence-lookup-" + poolNumber + "-" + threadNumber.incrementAndGet());
+			// lookups never need to complete for the JVM to exit
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
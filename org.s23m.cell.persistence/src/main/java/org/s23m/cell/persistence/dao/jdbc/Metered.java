@@ -0,0 +1,130 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.s23m.cell.persistence.dao.metrics.DaoMetrics;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
+
+/**
+ * Times the operations of a single DAO, reporting them to the configured {@link DaoMetrics}
+ */
+final class Metered {
+
+	private final DaoMetrics metrics;
+
+	private final Class<?> entityClass;
+
+	Metered(final DaoMetrics metrics, final Class<?> entityClass) {
+		this.metrics = metrics;
+		this.entityClass = entityClass;
+	}
+
+	/**
+	 * Performs an operation which returns a result
+	 *
+	 * @param operation
+	 * @param work
+	 * @param rowCount determines the number of rows retrieved from the result
+	 */
+	<T> T call(final DaoOperation operation, final Supplier<T> work, final ToIntFunction<? super T> rowCount) {
+		if (metrics == DaoMetrics.NONE) {
+			return work.get();
+		}
+
+		final long start = System.nanoTime();
+		final T result;
+		try {
+			result = work.get();
+		} catch (final RuntimeException e) {
+			metrics.record(entityClass, operation, 0, System.nanoTime() - start, true);
+			throw e;
+		}
+		metrics.record(entityClass, operation, rowCount.applyAsInt(result), System.nanoTime() - start, false);
+		return result;
+	}
+
+	/**
+	 * Performs an operation which writes the given number of rows
+	 *
+	 * @param operation
+	 * @param rows
+	 * @param work
+	 */
+	void run(final DaoOperation operation, final int rows, final Runnable work) {
+		call(operation, () -> {
+			work.run();
+			return null;
+		}, result -> rows);
+	}
+
+	/**
+	 * Opens a stream of rows. The operation is recorded when the stream is closed, with the number of rows
+	 * consumed and the time elapsed since the query was executed, and as failed if reading a row failed.
+	 *
+	 * @param operation
+	 * @param work opens the stream
+	 */
+	<T> Stream<T> stream(final DaoOperation operation, final Supplier<Stream<T>> work) {
+		if (metrics == DaoMetrics.NONE) {
+			return work.get();
+		}
+
+		final long start = System.nanoTime();
+		final Stream<T> stream;
+		try {
+			stream = work.get();
+		} catch (final RuntimeException e) {
+			metrics.record(entityClass, operation, 0, System.nanoTime() - start, true);
+			throw e;
+		}
+		final CountingSpliterator<T> rows = new CountingSpliterator<>(stream.spliterator());
+		return StreamSupport.stream(rows, false)
+				.onClose(stream::close)
+				.onClose(() -> metrics.record(entityClass, operation, rows.count, System.nanoTime() - start, rows.failed));
+	}
+
+	/**
+	 * Row count of a lookup which returns null when no row is found
+	 */
+	static int countOne(final Object result) {
+		return result == null ? 0 : 1;
+	}
+
+	/**
+	 * Counts the rows read from a stream, and whether reading one failed
+	 */
+	private static final class CountingSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+		private final Spliterator<T> rows;
+
+		int count;
+
+		boolean failed;
+
+		CountingSpliterator(final Spliterator<T> rows) {
+			super(rows.estimateSize(), rows.characteristics());
+			this.rows = rows;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super T> action) {
+			final boolean advanced;
+			try {
+				advanced = rows.tryAdvance(action);
+			} catch (final RuntimeException e) {
+				failed = true;
+				throw e;
+			}
+			if (advanced) {
+				count++;
+			}
+			return advanced;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.s23m.cell.persistence.model.LargeValue;
+
+/**
+ * Updates only the columns of a row which differ from a previously loaded snapshot.
+ *
+ * Columns are compared before being encoded as statement parameters, and only the changed columns are encoded,
+ * so that unchanged large columns are neither loaded nor compressed. A {@link LargeValue} which is not loaded
+ * on either side, or which is the same instance on both sides, is unchanged.
+ * An UPDATE template is generated for each combination of changed columns the first time it is needed.
+ */
+final class PartialUpdates<T> {
+
+	private final SqlDialect dialect;
+
+	private final Class<T> entityClass;
+
+	private final String[] columnNames;
+
+	private final Function<T, Object[]> columnValues;
+
+	private final ColumnEncoder columnEncoder;
+
+	/**
+	 * Templates keyed by the mask of changed columns
+	 */
+	private final Map<Long, String> templates = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param columnNames the columns in parameter order, with the primary key last
+	 * @param columnValues returns the unencoded value of each column of an entity, with large columns as {@link LargeValue}s
+	 * @param columnEncoder converts the value of a column into a statement parameter
+	 */
+	PartialUpdates(final SqlDialect dialect, final Class<T> entityClass, final String[] columnNames,
+			final Function<T, Object[]> columnValues, final ColumnEncoder columnEncoder) {
+		if (columnNames.length > Long.SIZE) {
+			throw new IllegalArgumentException("Too many columns: " + columnNames.length);
+		}
+		this.dialect = dialect;
+		this.entityClass = entityClass;
+		this.columnNames = columnNames;
+		this.columnValues = columnValues;
+		this.columnEncoder = columnEncoder;
+	}
+
+	/**
+	 * Writes the columns of entity which differ from original
+	 *
+	 * @param queryRunner
+	 * @param original the state of the row as last read
+	 * @param entity the new state
+	 * @return whether a statement was executed, i.e. whether any column had changed
+	 */
+	boolean update(final QueryRunner queryRunner, final T original, final T entity) {
+		final Object[] values = columnValues.apply(entity);
+		final long mask = changedColumns(original, values);
+		if (mask == 0) {
+			return false;
+		}
+
+		try {
+			final int updates = queryRunner.update(getTemplate(mask), encode(values, mask));
+			if (updates != 1) {
+				throw new RuntimeException("Failed to update " + entityClass.getSimpleName() + ": " + entity);
+			}
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not update " + entityClass.getSimpleName() + ": " + entity, e);
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the columns of each entity which differ from its original, sending rows with the same changed columns
+	 * in batches. Entities without an original are written in full.
+	 *
+	 * @param queryRunner
+	 * @param originals the state of the rows as last read, keyed by primary key
+	 * @param entities the new states
+	 * @param batchSize
+	 * @return the number of rows written
+	 */
+	int updateAll(final QueryRunner queryRunner, final Map<String, T> originals, final Collection<T> entities, final int batchSize) {
+		final Map<Long, List<Object[]>> parametersByMask = new LinkedHashMap<>();
+		final int keyIndex = columnNames.length - 1;
+		for (final T entity : entities) {
+			final Object[] values = columnValues.apply(entity);
+			final T original = originals.get((String) values[keyIndex]);
+			final long mask = original == null ? allColumns() : changedColumns(original, values);
+			if (mask != 0) {
+				parametersByMask.computeIfAbsent(mask, m -> new ArrayList<>()).add(encode(values, mask));
+			}
+		}
+
+		int written = 0;
+		final String description = "update " + entityClass.getSimpleName();
+		for (final Map.Entry<Long, List<Object[]>> entry : parametersByMask.entrySet()) {
+			BatchStatements.execute(queryRunner, getTemplate(entry.getKey()), entry.getValue(), Function.identity(), batchSize, description);
+			written += entry.getValue().size();
+		}
+		return written;
+	}
+
+	private long changedColumns(final T original, final Object[] values) {
+		final Object[] originalValues = columnValues.apply(original);
+		final int keyIndex = columnNames.length - 1;
+		if (!Objects.equals(originalValues[keyIndex], values[keyIndex])) {
+			throw new IllegalArgumentException("Original " + entityClass.getSimpleName() + " has a different key: " + original);
+		}
+
+		long mask = 0;
+		for (int i = 0; i < keyIndex; i++) {
+			if (isChanged(originalValues[i], values[i])) {
+				mask |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	private static boolean isChanged(final Object originalValue, final Object value) {
+		if (originalValue == value) {
+			return false;
+		}
+		if (originalValue instanceof LargeValue) {
+			final LargeValue originalLargeValue = (LargeValue) originalValue;
+			final LargeValue largeValue = (LargeValue) value;
+			if (!originalLargeValue.isLoaded()) {
+				// both still reflect the row, whereas a loaded replacement is written rather than compared with a load of the original
+				return largeValue.isLoaded();
+			}
+			// a replacement which is not loaded must be loaded to be written anyway
+			return !Objects.equals(originalLargeValue.get(), largeValue.get());
+		}
+		return !Objects.equals(originalValue, value);
+	}
+
+	private long allColumns() {
+		return (1L << (columnNames.length - 1)) - 1;
+	}
+
+	private String getTemplate(final long mask) {
+		return templates.computeIfAbsent(mask, m -> SqlQueryTemplates.createSequencedUpdateStatementTemplate(dialect, entityClass, columnNames, m));
+	}
+
+	private Object[] encode(final Object[] values, final long mask) {
+		final Object[] parameters = new Object[Long.bitCount(mask) + 1];
+		final int keyIndex = columnNames.length - 1;
+		int selected = 0;
+		for (int i = 0; i < keyIndex; i++) {
+			if ((mask & (1L << i)) != 0) {
+				parameters[selected++] = columnEncoder.encode(columnNames[i], values[i]);
+			}
+		}
+		parameters[selected] = columnEncoder.encode(columnNames[keyIndex], values[keyIndex]);
+		return parameters;
+	}
+
+	/**
+	 * Converts the value of a column into a statement parameter, e.g. by encoding a key or compressing a large value
+	 */
+	@FunctionalInterface
+	interface ColumnEncoder {
+		Object encode(String columnName, Object value);
+	}
+}
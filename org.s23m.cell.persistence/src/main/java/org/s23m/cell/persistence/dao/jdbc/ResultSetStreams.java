@@ -0,0 +1,122 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+
+/**
+ * Exposes the rows of a query as a lazily populated {@link Stream}, backed by a forward-only,
+ * read-only result set. Rows are fetched from the database in groups of the configured fetch size,
+ * so arbitrarily large results can be processed in constant memory.
+ *
+ * The connection is held until the stream is closed, so streams must be closed by the caller
+ * (e.g. using try-with-resources).
+ */
+final class ResultSetStreams {
+
+	private ResultSetStreams() {
+	}
+
+	/**
+	 * Executes the query and returns a stream of its mapped rows
+	 *
+	 * @param queryRunner provides the connection, and traces the query if it is a {@link TracingQueryRunner}
+	 * @param template the query to execute
+	 * @param rowMapper
+	 * @param fetchSize the number of rows fetched from the database at a time
+	 * @param description describes the query in error messages, e.g. "scan Identity"
+	 * @param parameters the query parameters
+	 */
+	static <T> Stream<T> stream(final QueryRunner queryRunner, final String template, final RowMapper<T> rowMapper,
+			final int fetchSize, final String description, final Object... parameters) {
+
+		Connection connection = null;
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		try {
+			connection = queryRunner.getDataSource().getConnection();
+			final boolean autoCommit = connection.getAutoCommit();
+			// some drivers (e.g. PostgreSQL) only fetch incrementally outside of auto-commit mode
+			connection.setAutoCommit(false);
+			connection.setReadOnly(true);
+
+			statement = connection.prepareStatement(template, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			for (int i = 0; i < parameters.length; i++) {
+				statement.setObject(i + 1, parameters[i]);
+			}
+			final long start = System.nanoTime();
+			resultSet = statement.executeQuery();
+			TracingQueryRunner.traceStreamed(queryRunner, template, parameters, start);
+
+			final Cursor<T> cursor = new Cursor<>(connection, autoCommit, statement, resultSet, rowMapper, description);
+			return StreamSupport.stream(cursor, false).onClose(cursor::close);
+		} catch (final SQLException e) {
+			DbUtils.closeQuietly(connection, statement, resultSet);
+			throw new RuntimeException("Could not " + description, e);
+		}
+	}
+
+	private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+		private final Connection connection;
+
+		private final boolean autoCommit;
+
+		private final PreparedStatement statement;
+
+		private final ResultSet resultSet;
+
+		private final RowMapper<T> rowMapper;
+
+		private final String description;
+
+		Cursor(final Connection connection, final boolean autoCommit, final PreparedStatement statement, final ResultSet resultSet,
+				final RowMapper<T> rowMapper, final String description) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.connection = connection;
+			this.autoCommit = autoCommit;
+			this.statement = statement;
+			this.resultSet = resultSet;
+			this.rowMapper = rowMapper;
+			this.description = description;
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super T> action) {
+			try {
+				if (!resultSet.next()) {
+					return false;
+				}
+				action.accept(rowMapper.mapRow(resultSet));
+				return true;
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not " + description, e);
+			}
+		}
+
+		void close() {
+			try {
+				DbUtils.closeQuietly(resultSet);
+				DbUtils.closeQuietly(statement);
+				// nothing has been written, so ending the transaction either way is equivalent
+				connection.rollback();
+				connection.setReadOnly(false);
+				connection.setAutoCommit(autoCommit);
+			} catch (final SQLException e) {
+				throw new RuntimeException("Could not release connection after " + description, e);
+			} finally {
+				DbUtils.closeQuietly(connection);
+			}
+		}
+	}
+}
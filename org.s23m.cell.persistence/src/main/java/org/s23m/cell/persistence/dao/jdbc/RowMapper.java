@@ -0,0 +1,18 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Creates an entity from the current row of a {@link ResultSet}
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+	/**
+	 * Maps the current row, without moving the cursor
+	 *
+	 * @param resultSet
+	 */
+	T mapRow(ResultSet resultSet) throws SQLException;
+}
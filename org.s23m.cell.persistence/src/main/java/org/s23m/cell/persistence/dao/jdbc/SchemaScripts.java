@@ -0,0 +1,140 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs the schema scripts under sql/ against a database, translated into its dialect.
+ *
+ * Each script is split into statements which are executed one at a time, since the MySQL and PostgreSQL drivers
+ * do not accept several statements in one execution by default.
+ */
+public final class SchemaScripts {
+
+	/**
+	 * The tables, with the text key and large column types which {@link #createSchema} replaces
+	 */
+	public static final String COMMON_TABLES = "sql/common_ddl.sql";
+
+	/**
+	 * The secondary indexes, run after the tables
+	 */
+	public static final String INDEXES = "sql/index_ddl.sql";
+
+	/**
+	 * Every varchar(36) column holds a key, except properClass which holds a ProperClass name
+	 */
+	private static final Pattern KEY_COLUMN_TYPE = Pattern.compile("(?<!properClass )\\bvarchar\\(36\\)");
+
+	private static final Pattern LARGE_COLUMN_TYPE = Pattern.compile("\\bTEXT\\b");
+
+	private SchemaScripts() {
+	}
+
+	/**
+	 * Creates the tables, with the key and large column types of the configuration, the secondary indexes,
+	 * and the sequence number columns of the dialect of the configuration
+	 *
+	 * @param dataSource
+	 * @param configuration
+	 */
+	public static void createSchema(final DataSource dataSource, final JdbcDaoConfiguration configuration) {
+		final SqlDialect dialect = configuration.getDialect();
+		createTables(dataSource, dialect, configuration.getKeyEncoding(), configuration.getLargeColumnCodec());
+		execute(dataSource, dialect, INDEXES, dialect.getDdlResource());
+	}
+
+	private static void createTables(final DataSource dataSource, final SqlDialect dialect, final KeyEncoding keyEncoding,
+			final LargeColumnCodec largeColumnCodec) {
+		final String ddl = translateTables(read(COMMON_TABLES), keyEncoding, largeColumnCodec);
+		execute(dataSource, COMMON_TABLES, dialect.translateDdl(ddl));
+	}
+
+	/**
+	 * Replaces the key and large column types of a table script written for {@link KeyEncoding#STRING} and {@link LargeColumnCodec#TEXT}
+	 */
+	private static String translateTables(final String ddl, final KeyEncoding keyEncoding, final LargeColumnCodec largeColumnCodec) {
+		final String withKeys = KEY_COLUMN_TYPE.matcher(ddl).replaceAll(Matcher.quoteReplacement(keyEncoding.getColumnType()));
+		return LARGE_COLUMN_TYPE.matcher(withKeys).replaceAll(Matcher.quoteReplacement(largeColumnCodec.getColumnType()));
+	}
+
+	/**
+	 * Runs the provided scripts in turn
+	 *
+	 * @param dataSource
+	 * @param dialect
+	 * @param resources the class path locations of the scripts
+	 */
+	public static void execute(final DataSource dataSource, final SqlDialect dialect, final String... resources) {
+		for (final String resource : resources) {
+			execute(dataSource, resource, dialect.translateDdl(read(resource)));
+		}
+	}
+
+	private static void execute(final DataSource dataSource, final String resource, final String script) {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			for (final String sql : split(script)) {
+				try {
+					statement.execute(sql);
+				} catch (final SQLException e) {
+					throw new RuntimeException("Could not execute " + resource + ": " + sql, e);
+				}
+			}
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not execute " + resource, e);
+		}
+	}
+
+	/**
+	 * Splits a script into its statements, which are separated by semicolons, omitting comment lines
+	 *
+	 * @param script
+	 */
+	static List<String> split(final String script) {
+		final StringBuilder withoutComments = new StringBuilder(script.length());
+		for (final String line : script.split("\r?\n")) {
+			if (!line.trim().startsWith("--")) {
+				withoutComments.append(line).append('\n');
+			}
+		}
+
+		final List<String> statements = new ArrayList<>();
+		for (final String statement : withoutComments.toString().split(";")) {
+			if (!statement.trim().isEmpty()) {
+				statements.add(statement.trim());
+			}
+		}
+		return statements;
+	}
+
+	private static String read(final String resource) {
+		final InputStream stream = SchemaScripts.class.getClassLoader().getResourceAsStream(resource);
+		if (stream == null) {
+			throw new IllegalArgumentException("No such script: " + resource);
+		}
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+			final StringBuilder builder = new StringBuilder();
+			final char[] buffer = new char[4096];
+			int count;
+			while ((count = reader.read(buffer)) != -1) {
+				builder.append(buffer, 0, count);
+			}
+			return builder.toString();
+		} catch (final IOException e) {
+			throw new RuntimeException("Could not read " + resource, e);
+		}
+	}
+}
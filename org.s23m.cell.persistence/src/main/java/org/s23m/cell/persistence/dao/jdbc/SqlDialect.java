@@ -0,0 +1,265 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The databases for which dialect-specific statements, schema scripts and connection settings are generated
+ */
+public enum SqlDialect {
+
+	/**
+	 * H2 executes each row of a JDBC batch separately, which costs a round trip per row in server mode,
+	 * so inserts are sent as multi-row VALUES statements instead
+	 */
+	H2("jdbc:h2:", "H2", "sql/h2_ddl.sql", '"', false, true) {
+		@Override
+		String foldIdentifier(final String identifier) {
+			return identifier.toUpperCase(Locale.ROOT);
+		}
+	},
+
+	/**
+	 * Connector/J rewrites JDBC batches into multi-row statements when rewriteBatchedStatements is set.
+	 * AUTO_INCREMENT values cannot be reassigned, so updates do not advance sequence numbers and the change feeds are refused.
+	 */
+	MYSQL("jdbc:mysql:", "MySQL", "sql/mysql_ddl.sql", '`', true, false) {
+		@Override
+		String castToText(final String expression) {
+			// MySQL has no unbounded character type in CAST, and sizes recursive query columns by their initial value
+			return "CAST(" + expression + " AS CHAR(65535))";
+		}
+
+		@Override
+		String createUpsertStatement(final Class<?> entityClass, final String[] columnNames) {
+			return SqlQueryTemplates.createInsertStatementTemplate(entityClass, columnNames) + " ON DUPLICATE KEY UPDATE "
+					+ valueColumns(columnNames).map(column -> column + "=VALUES(" + column + ")").collect(Collectors.joining(","));
+		}
+
+		@Override
+		String createRenameColumnStatement(final String table, final String from, final String to, final String columnType) {
+			// CHANGE restates the column definition
+			return "ALTER TABLE " + table + " CHANGE " + from + " " + to + " " + columnType;
+		}
+
+		@Override
+		Map<String, String> createDataSourceProperties() {
+			// see https://github.com/brettwooldridge/HikariCP/wiki/MySQL-Configuration
+			final Map<String, String> properties = new LinkedHashMap<>();
+			// cache prepared statements on the client, and prepare them on the server
+			properties.put("cachePrepStmts", "true");
+			properties.put("prepStmtCacheSize", "250");
+			properties.put("prepStmtCacheSqlLimit", "2048");
+			properties.put("useServerPrepStmts", "true");
+			// send each batch as multi-row statements rather than one statement per row
+			properties.put("rewriteBatchedStatements", "true");
+			// honour the fetch size when streaming, rather than reading entire result sets into memory
+			properties.put("useCursorFetch", "true");
+			return properties;
+		}
+	},
+
+	/**
+	 * The PostgreSQL driver rewrites batched inserts into multi-row statements when reWriteBatchedInserts is set.
+	 * It has no BINARY or BLOB types, so schema scripts use its native UUID type for binary keys
+	 * (see {@link KeyEncoding#UUID}) and BYTEA for binary values instead.
+	 */
+	POSTGRESQL("jdbc:postgresql:", "PostgreSQL", "sql/postgresql_ddl.sql", '"', true, true) {
+		@Override
+		Map<String, String> createDataSourceProperties() {
+			final Map<String, String> properties = new LinkedHashMap<>();
+			// send each batch of inserts as multi-row statements rather than one statement per row
+			properties.put("reWriteBatchedInserts", "true");
+			// use server-side prepared statements from the first execution, since the DAOs reuse a small set of templates
+			properties.put("prepareThreshold", "1");
+			return properties;
+		}
+
+		@Override
+		String castToText(final String expression) {
+			// the columns of a recursive query must have the same type as the values computed from them, which are TEXT
+			return "CAST(" + expression + " AS TEXT)";
+		}
+
+		@Override
+		String createUpsertStatement(final Class<?> entityClass, final String[] columnNames) {
+			return SqlQueryTemplates.createInsertStatementTemplate(entityClass, columnNames) + " ON CONFLICT (" + keyColumn(columnNames)
+					+ ") DO UPDATE SET " + valueColumns(columnNames).map(column -> column + "=EXCLUDED." + column).collect(Collectors.joining(","))
+					+ "," + SqlQueryTemplates.SEQUENCE_NUMBER + "=DEFAULT";
+		}
+
+		@Override
+		String createRenameColumnStatement(final String table, final String from, final String to, final String columnType) {
+			return "ALTER TABLE " + table + " RENAME COLUMN " + from + " TO " + to;
+		}
+
+		@Override
+		String translateDdl(final String ddl) {
+			return ddl.replaceAll("(?i)\\bBINARY\\(16\\)", "UUID").replaceAll("(?i)\\bBLOB\\b", "BYTEA");
+		}
+
+		@Override
+		String foldIdentifier(final String identifier) {
+			return identifier.toLowerCase(Locale.ROOT);
+		}
+	};
+
+	private final String urlPrefix;
+
+	private final String productName;
+
+	private final String ddlResource;
+
+	private final char identifierQuote;
+
+	private final boolean driverRewritesBatchedInserts;
+
+	private final boolean reassignsSequenceNumbers;
+
+	private final Map<String, String> dataSourceProperties;
+
+	SqlDialect(final String urlPrefix, final String productName, final String ddlResource, final char identifierQuote,
+			final boolean driverRewritesBatchedInserts, final boolean reassignsSequenceNumbers) {
+		this.urlPrefix = urlPrefix;
+		this.productName = productName;
+		this.ddlResource = ddlResource;
+		this.identifierQuote = identifierQuote;
+		this.driverRewritesBatchedInserts = driverRewritesBatchedInserts;
+		this.reassignsSequenceNumbers = reassignsSequenceNumbers;
+		this.dataSourceProperties = Collections.unmodifiableMap(createDataSourceProperties());
+	}
+
+	/**
+	 * Returns the dialect of the database identified by a JDBC URL
+	 *
+	 * @param jdbcUrl
+	 * @return the dialect, or null if the database is not supported
+	 */
+	public static SqlDialect fromJdbcUrl(final String jdbcUrl) {
+		for (final SqlDialect dialect : values()) {
+			if (jdbcUrl.startsWith(dialect.urlPrefix)) {
+				return dialect;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the dialect of the database with the given product name, as reported by DatabaseMetaData
+	 *
+	 * @param productName
+	 * @return the dialect, or null if the database is not supported
+	 */
+	public static SqlDialect fromProductName(final String productName) {
+		for (final SqlDialect dialect : values()) {
+			if (dialect.productName.equals(productName)) {
+				return dialect;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the script which adds the dialect-specific sequence number columns, to be run after the table and index scripts
+	 */
+	public String getDdlResource() {
+		return ddlResource;
+	}
+
+	/**
+	 * Returns the driver properties with which data sources for this database should be created
+	 */
+	public Map<String, String> getDataSourceProperties() {
+		return dataSourceProperties;
+	}
+
+	/**
+	 * Returns whether the driver (configured using {@link #getDataSourceProperties()}) sends JDBC batches of inserts
+	 * as multi-row statements. If not, the DAOs send multi-row VALUES statements themselves.
+	 */
+	public boolean isDriverRewritingBatchedInserts() {
+		return driverRewritesBatchedInserts;
+	}
+
+	/**
+	 * Returns whether updated rows can be assigned a new sequence number, so that updates appear in the change feed
+	 */
+	public boolean isReassigningSequenceNumbers() {
+		return reassignsSequenceNumbers;
+	}
+
+	/**
+	 * Quotes an identifier which is written unquoted in the generated statements and schema scripts,
+	 * so that it still refers to the same table or column
+	 *
+	 * @param identifier
+	 */
+	public String quoteIdentifier(final String identifier) {
+		final String quote = String.valueOf(identifierQuote);
+		return quote + foldIdentifier(identifier).replace(quote, quote + quote) + quote;
+	}
+
+	/**
+	 * Converts an expression into a character string of unbounded length
+	 */
+	String castToText(final String expression) {
+		return "CAST(" + expression + " AS VARCHAR)";
+	}
+
+	/**
+	 * Creates a statement which inserts a row, or updates the row with the same key, taking the parameters of
+	 * {@link SqlQueryTemplates#createInsertStatementTemplate(Class, String[])}.
+	 * Where the database allows it, updated rows are assigned a new sequence number.
+	 *
+	 * @param entityClass
+	 * @param columnNames the columns in parameter order, with the key last
+	 */
+	String createUpsertStatement(final Class<?> entityClass, final String[] columnNames) {
+		// columns omitted from MERGE keep their values, so the sequence number is assigned explicitly
+		return "MERGE INTO " + entityClass.getSimpleName() + " (" + String.join(",", columnNames) + "," + SqlQueryTemplates.SEQUENCE_NUMBER
+				+ ") KEY (" + keyColumn(columnNames) + ") VALUES (" + String.join(",", Collections.nCopies(columnNames.length, "?")) + ",DEFAULT)";
+	}
+
+	/**
+	 * Creates a statement which renames a column, keeping its values
+	 *
+	 * @param table
+	 * @param from
+	 * @param to
+	 * @param columnType the type of the column, in this dialect
+	 */
+	String createRenameColumnStatement(final String table, final String from, final String to, final String columnType) {
+		return "ALTER TABLE " + table + " ALTER COLUMN " + from + " RENAME TO " + to;
+	}
+
+	/**
+	 * Converts a schema script written for H2 and MySQL, such as sql/common_ddl.sql, into this dialect
+	 */
+	String translateDdl(final String ddl) {
+		return ddl;
+	}
+
+	/**
+	 * Converts an identifier into the case in which the database stores unquoted identifiers
+	 */
+	String foldIdentifier(final String identifier) {
+		return identifier;
+	}
+
+	Map<String, String> createDataSourceProperties() {
+		return Collections.emptyMap();
+	}
+
+	private static String keyColumn(final String[] columnNames) {
+		return columnNames[columnNames.length - 1];
+	}
+
+	private static Stream<String> valueColumns(final String[] columnNames) {
+		return Arrays.stream(columnNames, 0, columnNames.length - 1);
+	}
+}
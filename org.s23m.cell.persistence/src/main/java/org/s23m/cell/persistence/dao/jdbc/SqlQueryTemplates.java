@@ -1,5 +1,6 @@
 package org.s23m.cell.persistence.dao.jdbc;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -8,13 +9,31 @@ import java.util.stream.Collectors;
 
 public final class SqlQueryTemplates {
 
+	/**
+	 * The column added by h2_ddl.sql (and the other dialect-specific scripts) which orders the rows of each table
+	 */
+	public static final String SEQUENCE_NUMBER = "sequenceNumber";
+
 	private static final String EQUALS_PARAMETER = "=?";
 
 	/**
 	 * Creates a SELECT statement which looks up the record by the provided identifier.
 	 */
 	public static String createSelectByIdQueryTemplate(final Class<?> entityClass, final String identifierColumn) {
-		final StringBuilder builder = new StringBuilder("SELECT * FROM ");
+		return createSelectByIdQueryTemplate(entityClass, null, identifierColumn);
+	}
+
+	/**
+	 * Creates a SELECT statement which retrieves the provided columns of the record with the provided identifier.
+	 *
+	 * @param entityClass
+	 * @param selectColumns the columns to retrieve, or null for all columns
+	 * @param identifierColumn
+	 */
+	public static String createSelectByIdQueryTemplate(final Class<?> entityClass, final String[] selectColumns, final String identifierColumn) {
+		final StringBuilder builder = new StringBuilder("SELECT ");
+		builder.append(selectList(selectColumns, ""));
+		builder.append(" FROM ");
 		builder.append(entityClass.getSimpleName());
 		builder.append(" WHERE ");
 		builder.append(identifierColumn);
@@ -22,6 +41,127 @@ public final class SqlQueryTemplates {
 		return builder.toString();
 	}
 
+	/**
+	 * Creates a SELECT statement which looks up the records matching all of the provided columns.
+	 */
+	public static String createSelectByColumnsQueryTemplate(final Class<?> entityClass, final String... columns) {
+		final StringBuilder builder = new StringBuilder("SELECT * FROM ");
+		builder.append(entityClass.getSimpleName());
+		builder.append(" WHERE ");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				builder.append(" AND ");
+			}
+			builder.append(columns[i]);
+			builder.append(EQUALS_PARAMETER);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Creates a SELECT statement which retrieves all records.
+	 */
+	public static String createSelectAllQueryTemplate(final Class<?> entityClass) {
+		return "SELECT * FROM " + entityClass.getSimpleName();
+	}
+
+	/**
+	 * Creates a SELECT statement which looks up the records matching any of the provided number of identifiers.
+	 */
+	public static String createSelectByIdsQueryTemplate(final Class<?> entityClass, final String identifierColumn, final int identifierCount) {
+		return createSelectByIdsQueryTemplate(entityClass, null, identifierColumn, identifierCount);
+	}
+
+	/**
+	 * Creates a SELECT statement which retrieves the provided columns of the records matching any of the provided number of identifiers.
+	 *
+	 * @param entityClass
+	 * @param selectColumns the columns to retrieve, or null for all columns
+	 * @param identifierColumn
+	 * @param identifierCount
+	 */
+	public static String createSelectByIdsQueryTemplate(final Class<?> entityClass, final String[] selectColumns, final String identifierColumn,
+			final int identifierCount) {
+		final StringBuilder builder = new StringBuilder("SELECT ");
+		builder.append(selectList(selectColumns, ""));
+		builder.append(" FROM ");
+		builder.append(entityClass.getSimpleName());
+		builder.append(" WHERE ");
+		builder.append(identifierColumn);
+		builder.append(" IN (");
+		builder.append(String.join(",", Collections.nCopies(identifierCount, "?")));
+		builder.append(")");
+		return builder.toString();
+	}
+
+	/**
+	 * Creates a recursive SELECT statement which retrieves a record together with the records transitively
+	 * referring to it, ordered by depth and then by sequence number. The parameters are the identifier of the root, and the maximum depth.
+	 *
+	 * The referenced column need not be unique, and the references may form cycles, so a record can be reached by
+	 * several paths. Each path records the identifiers along it, and is not extended to a record already on it,
+	 * so cycles end however large the maximum depth. Each record is retrieved once, at the smallest depth at which it is reached.
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param identifierColumn the column identifying the root record
+	 * @param referencedColumn the column of a parent record referred to by its children
+	 * @param referenceColumn the column of a child record referring to its parent
+	 */
+	public static String createSelectSubtreeQueryTemplate(final SqlDialect dialect, final Class<?> entityClass,
+			final String identifierColumn, final String referencedColumn, final String referenceColumn) {
+		return createSelectSubtreeQueryTemplate(dialect, entityClass, null, identifierColumn, referencedColumn, referenceColumn);
+	}
+
+	/**
+	 * Creates a recursive SELECT statement which retrieves the provided columns of a record together with the records
+	 * transitively referring to it, as for {@link #createSelectSubtreeQueryTemplate(SqlDialect, Class, String, String, String)}.
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param selectColumns the columns to retrieve, or null for all columns
+	 * @param identifierColumn the column identifying the root record, which must be its primary key
+	 * @param referencedColumn the column of a parent record referred to by its children
+	 * @param referenceColumn the column of a child record referring to its parent
+	 */
+	public static String createSelectSubtreeQueryTemplate(final SqlDialect dialect, final Class<?> entityClass, final String[] selectColumns,
+			final String identifierColumn, final String referencedColumn, final String referenceColumn) {
+		final String table = entityClass.getSimpleName();
+		final StringBuilder builder = new StringBuilder("WITH RECURSIVE Descendant(");
+		builder.append(identifierColumn).append(", ").append(referencedColumn).append(", depth, path) AS (");
+		// the root, with the path "/root/"
+		builder.append("SELECT ").append(identifierColumn).append(", ").append(referencedColumn).append(", 0, ");
+		builder.append(dialect.castToText("CONCAT('/', " + identifierColumn + ", '/')")).append(" FROM ").append(table);
+		builder.append(" WHERE ").append(identifierColumn).append(EQUALS_PARAMETER);
+		// its children, excluding records already on the path
+		builder.append(" UNION ALL SELECT c.").append(identifierColumn).append(", c.").append(referencedColumn);
+		builder.append(", d.depth + 1, CONCAT(d.path, c.").append(identifierColumn).append(", '/')");
+		builder.append(" FROM ").append(table).append(" c INNER JOIN Descendant d ON c.").append(referenceColumn);
+		builder.append(" = d.").append(referencedColumn);
+		builder.append(" WHERE POSITION(CONCAT('/', c.").append(identifierColumn).append(", '/') IN d.path) = 0 AND d.depth < ?)");
+		// the records themselves, each at the smallest depth at which it was reached
+		builder.append(" SELECT ").append(selectList(selectColumns, "t.")).append(" FROM ").append(table).append(" t INNER JOIN Descendant d ON t.").append(identifierColumn);
+		builder.append(" = d.").append(identifierColumn);
+		builder.append(" GROUP BY t.").append(identifierColumn);
+		builder.append(" ORDER BY MIN(d.depth), t.").append(SEQUENCE_NUMBER);
+		return builder.toString();
+	}
+
+	/**
+	 * Creates a SELECT statement which retrieves a page of records ordered by sequence number.
+	 * The parameters are the sequence number after which to start, and the maximum number of records.
+	 */
+	public static String createSelectPageQueryTemplate(final Class<?> entityClass) {
+		final StringBuilder builder = new StringBuilder("SELECT * FROM ");
+		builder.append(entityClass.getSimpleName());
+		builder.append(" WHERE ");
+		builder.append(SEQUENCE_NUMBER);
+		builder.append(" > ? ORDER BY ");
+		builder.append(SEQUENCE_NUMBER);
+		builder.append(" LIMIT ?");
+		return builder.toString();
+	}
+
 	/**
 	 * Creates an UPDATE statement template
 	 *
@@ -49,6 +189,66 @@ public final class SqlQueryTemplates {
 		return builder.toString();
 	}
 
+	/**
+	 * Creates an UPDATE statement template which also assigns the record a new sequence number,
+	 * so that the update appears in the change feed of the table
+	 *
+	 * @param entityClass
+	 * @param columnNames array of column names, with the last one being used for the WHERE clause
+	 *  and all preceding ones being used in the SET clause
+	 */
+	public static String createSequencedUpdateStatementTemplate(final Class<?> entityClass, final String[] columnNames) {
+		final String update = createUpdateStatementTemplate(entityClass, columnNames);
+		final int whereIndex = update.lastIndexOf(" WHERE ");
+		return update.substring(0, whereIndex) + "," + SEQUENCE_NUMBER + "=DEFAULT" + update.substring(whereIndex);
+	}
+
+	/**
+	 * Creates an UPDATE statement template which also assigns the record a new sequence number, where the dialect allows it
+	 * (see {@link SqlDialect#isReassigningSequenceNumbers()}); otherwise the record keeps its sequence number
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param columnNames array of column names, with the last one being used for the WHERE clause
+	 *  and all preceding ones being used in the SET clause
+	 */
+	public static String createSequencedUpdateStatementTemplate(final SqlDialect dialect, final Class<?> entityClass,
+			final String[] columnNames) {
+		if (dialect.isReassigningSequenceNumbers()) {
+			return createSequencedUpdateStatementTemplate(entityClass, columnNames);
+		}
+		return createUpdateStatementTemplate(entityClass, columnNames);
+	}
+
+	/**
+	 * Creates an UPDATE statement template which sets only some of the columns, and assigns the record
+	 * a new sequence number as by {@link #createSequencedUpdateStatementTemplate(Class, String[])}
+	 *
+	 * @param entityClass
+	 * @param columnNames array of column names, with the last one being used for the WHERE clause
+	 * @param columnMask the columns to set, where bit i selects columnNames[i]; must select at least one column
+	 *  other than the last
+	 */
+	public static String createSequencedUpdateStatementTemplate(final Class<?> entityClass, final String[] columnNames,
+			final long columnMask) {
+		return createSequencedUpdateStatementTemplate(entityClass, selectColumns(columnNames, columnMask));
+	}
+
+	/**
+	 * Creates an UPDATE statement template which sets only some of the columns, as by
+	 * {@link #createSequencedUpdateStatementTemplate(Class, String[], long)}, for the provided dialect
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param columnNames array of column names, with the last one being used for the WHERE clause
+	 * @param columnMask the columns to set, where bit i selects columnNames[i]; must select at least one column
+	 *  other than the last
+	 */
+	public static String createSequencedUpdateStatementTemplate(final SqlDialect dialect, final Class<?> entityClass,
+			final String[] columnNames, final long columnMask) {
+		return createSequencedUpdateStatementTemplate(dialect, entityClass, selectColumns(columnNames, columnMask));
+	}
+
 	/**
 	 * Creates an INSERT statement template
 	 *
@@ -73,4 +273,62 @@ public final class SqlQueryTemplates {
 		return builder.toString();
 	}
 
+	/**
+	 * Creates an INSERT statement template which inserts several records, listing the parameters of
+	 * {@link #createInsertStatementTemplate(Class, String[])} for each record in turn
+	 *
+	 * @param entityClass
+	 * @param columnNames
+	 * @param rowCount the number of records
+	 */
+	public static String createMultiRowInsertStatementTemplate(final Class<?> entityClass, final String[] columnNames, final int rowCount) {
+		if (rowCount < 1) {
+			throw new IllegalArgumentException("Row count must be positive: " + rowCount);
+		}
+		final String row = "(" + String.join(",", Collections.nCopies(columnNames.length, "?")) + ")";
+		final StringBuilder builder = new StringBuilder("INSERT INTO ");
+		builder.append(entityClass.getSimpleName());
+		builder.append(" (");
+		builder.append(String.join(",", columnNames));
+		builder.append(") VALUES ");
+		builder.append(String.join(",", Collections.nCopies(rowCount, row)));
+		return builder.toString();
+	}
+
+	/**
+	 * Creates a statement template which inserts the record, or updates it if a record with the same key exists.
+	 * Where the database allows it, updated records are assigned a new sequence number, as by
+	 * {@link #createSequencedUpdateStatementTemplate(SqlDialect, Class, String[])}.
+	 *
+	 * The parameters are those of {@link #createInsertStatementTemplate(Class, String[])}, in the same order.
+	 *
+	 * @param dialect
+	 * @param entityClass
+	 * @param columnNames array of column names, with the last one being the key
+	 */
+	public static String createUpsertStatementTemplate(final SqlDialect dialect, final Class<?> entityClass, final String[] columnNames) {
+		return dialect.createUpsertStatement(entityClass, columnNames);
+	}
+
+	private static String[] selectColumns(final String[] columnNames, final long columnMask) {
+		final int keyIndex = columnNames.length - 1;
+		final List<String> selectedColumns = new ArrayList<>();
+		for (int i = 0; i < keyIndex; i++) {
+			if ((columnMask & (1L << i)) != 0) {
+				selectedColumns.add(columnNames[i]);
+			}
+		}
+		if (selectedColumns.isEmpty()) {
+			throw new IllegalArgumentException("No columns selected by mask: " + columnMask);
+		}
+		selectedColumns.add(columnNames[keyIndex]);
+		return selectedColumns.toArray(new String[selectedColumns.size()]);
+	}
+
+	private static String selectList(final String[] selectColumns, final String qualifier) {
+		if (selectColumns == null) {
+			return qualifier + "*";
+		}
+		return Arrays.stream(selectColumns).map(column -> qualifier + column).collect(Collectors.joining(", "));
+	}
 }
@@ -0,0 +1,20 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+/**
+ * Canonicalizes strings read from the database, so that equal values can share a single instance
+ */
+@FunctionalInterface
+public interface StringPool {
+
+	/**
+	 * Pool which returns every value unchanged
+	 */
+	StringPool NONE = value -> value;
+
+	/**
+	 * Returns the canonical instance equal to the provided value (which may be null)
+	 *
+	 * @param value
+	 */
+	String canonicalize(String value);
+}
@@ -0,0 +1,251 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.s23m.cell.persistence.dao.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link QueryRunner} which logs the statements taking at least a given threshold to execute,
+ * and which can be passed to any of the JDBC DAOs in place of a plain QueryRunner.
+ *
+ * Slow statements are logged at WARN level with their SQL template, elapsed time, row count and a sample
+ * of their bind parameters. When TRACE is enabled, every statement is logged in the same form.
+ * The values of redacted columns (by default, Agent.password) are never logged.
+ *
+ * Queries whose result sets are streamed (by scanAll, streamByContainer and the large column readers) are executed
+ * on a connection of the data source rather than by the QueryRunner, and are traced when executed, with a row count
+ * of {@link #UNKNOWN_ROWS}.
+ */
+public class TracingQueryRunner extends QueryRunner {
+
+	/**
+	 * The columns whose values are masked by default
+	 */
+	public static final Set<String> DEFAULT_REDACTED_COLUMNS = Collections.singleton("Agent.password");
+
+	/**
+	 * The maximum number of bind parameters logged for a statement, or for the first row of a batch
+	 */
+	public static final int MAXIMUM_LOGGED_PARAMETERS = 10;
+
+	/**
+	 * The row count reported for a query whose result set is streamed, since its rows are read after it is traced
+	 */
+	public static final int UNKNOWN_ROWS = -1;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TracingQueryRunner.class);
+
+	private final long thresholdNanos;
+
+	private final BindParameters bindParameters;
+
+	private final AtomicLong slowStatementCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataSource
+	 * @param thresholdMillis the minimum execution time of the statements which are logged
+	 */
+	public TracingQueryRunner(final DataSource dataSource, final long thresholdMillis) {
+		this(dataSource, thresholdMillis, DEFAULT_REDACTED_COLUMNS);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataSource
+	 * @param thresholdMillis the minimum execution time of the statements which are logged
+	 * @param redactedColumns qualified names of the columns whose values are masked, e.g. "Agent.password"
+	 */
+	public TracingQueryRunner(final DataSource dataSource, final long thresholdMillis, final Collection<String> redactedColumns) {
+		super(dataSource);
+		if (thresholdMillis < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative: " + thresholdMillis);
+		}
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.bindParameters = new BindParameters(redactedColumns, MAXIMUM_LOGGED_PARAMETERS);
+	}
+
+	@Override
+	public <T> T query(final String sql, final ResultSetHandler<T> rsh, final Object... params) throws SQLException {
+		final long start = System.nanoTime();
+		final T result = super.query(sql, rsh, params);
+		traceQuery(sql, params, start, result);
+		return result;
+	}
+
+	@Override
+	public <T> T query(final String sql, final ResultSetHandler<T> rsh) throws SQLException {
+		return query(sql, rsh, (Object[]) null);
+	}
+
+	@Override
+	public <T> T query(final Connection conn, final String sql, final ResultSetHandler<T> rsh, final Object... params) throws SQLException {
+		final long start = System.nanoTime();
+		final T result = super.query(conn, sql, rsh, params);
+		traceQuery(sql, params, start, result);
+		return result;
+	}
+
+	@Override
+	public <T> T query(final Connection conn, final String sql, final ResultSetHandler<T> rsh) throws SQLException {
+		return query(conn, sql, rsh, (Object[]) null);
+	}
+
+	@Override
+	public int update(final String sql, final Object... params) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = super.update(sql, params);
+		trace(sql, System.nanoTime() - start, rows, params, 1);
+		return rows;
+	}
+
+	@Override
+	public int update(final String sql, final Object param) throws SQLException {
+		return update(sql, new Object[] {param});
+	}
+
+	@Override
+	public int update(final String sql) throws SQLException {
+		return update(sql, (Object[]) null);
+	}
+
+	@Override
+	public int update(final Connection conn, final String sql, final Object... params) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = super.update(conn, sql, params);
+		trace(sql, System.nanoTime() - start, rows, params, 1);
+		return rows;
+	}
+
+	@Override
+	public int update(final Connection conn, final String sql, final Object param) throws SQLException {
+		return update(conn, sql, new Object[] {param});
+	}
+
+	@Override
+	public int update(final Connection conn, final String sql) throws SQLException {
+		return update(conn, sql, (Object[]) null);
+	}
+
+	@Override
+	public int[] batch(final String sql, final Object[][] params) throws SQLException {
+		final long start = System.nanoTime();
+		final int[] counts = super.batch(sql, params);
+		traceBatch(sql, params, start, counts);
+		return counts;
+	}
+
+	@Override
+	public int[] batch(final Connection conn, final String sql, final Object[][] params) throws SQLException {
+		final long start = System.nanoTime();
+		final int[] counts = super.batch(conn, sql, params);
+		traceBatch(sql, params, start, counts);
+		return counts;
+	}
+
+	/**
+	 * Returns the number of statements which have exceeded the threshold
+	 */
+	public long getSlowStatementCount() {
+		return slowStatementCount.get();
+	}
+
+	public long getThresholdMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+	}
+
+	/**
+	 * Reports a statement which has exceeded the threshold, by default by logging it at WARN level
+	 *
+	 * @param sql the statement template
+	 * @param elapsedNanos
+	 * @param rows the number of rows retrieved or modified, or {@link #UNKNOWN_ROWS}
+	 * @param parameters the description of the bind parameters, with redacted values masked
+	 */
+	protected void slowStatement(final String sql, final long elapsedNanos, final int rows, final String parameters) {
+		LOGGER.warn("Slow statement ({} ms, {} rows): {} parameters: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, sql, parameters);
+	}
+
+	/**
+	 * Traces a query executed on a connection of the query runner's data source, so that its result set can be streamed.
+	 * Nothing is traced unless the query runner is a TracingQueryRunner.
+	 *
+	 * @param queryRunner
+	 * @param sql
+	 * @param params
+	 * @param start the value of {@link System#nanoTime()} before the query was executed
+	 */
+	static void traceStreamed(final QueryRunner queryRunner, final String sql, final Object[] params, final long start) {
+		if (queryRunner instanceof TracingQueryRunner) {
+			((TracingQueryRunner) queryRunner).trace(sql, System.nanoTime() - start, UNKNOWN_ROWS, params, 1);
+		}
+	}
+
+	private void traceQuery(final String sql, final Object[] params, final long start, final Object result) {
+		final long elapsedNanos = System.nanoTime() - start;
+		if (elapsedNanos >= thresholdNanos || LOGGER.isTraceEnabled()) {
+			trace(sql, elapsedNanos, rowCount(result), params, 1);
+		}
+	}
+
+	private void traceBatch(final String sql, final Object[][] params, final long start, final int[] counts) {
+		final long elapsedNanos = System.nanoTime() - start;
+		if (elapsedNanos >= thresholdNanos || LOGGER.isTraceEnabled()) {
+			int rows = 0;
+			for (final int count : counts) {
+				// drivers may report Statement.SUCCESS_NO_INFO for rewritten batches
+				rows += count >= 0 ? count : 1;
+			}
+			trace(sql, elapsedNanos, rows, params.length == 0 ? null : params[0], params.length);
+		}
+	}
+
+	private void trace(final String sql, final long elapsedNanos, final int rows, final Object[] params, final int batchLength) {
+		final boolean slow = elapsedNanos >= thresholdNanos;
+		if (!slow && !LOGGER.isTraceEnabled()) {
+			return;
+		}
+
+		String parameters = bindParameters.describe(sql, params);
+		if (batchLength > 1) {
+			parameters += " (first of " + batchLength + " rows)";
+		}
+		if (slow) {
+			slowStatementCount.incrementAndGet();
+			slowStatement(sql, elapsedNanos, rows, parameters);
+		} else {
+			LOGGER.trace("Statement ({} us, {} rows): {} parameters: {}", TimeUnit.NANOSECONDS.toMicros(elapsedNanos), rows, sql, parameters);
+		}
+	}
+
+	private static int rowCount(final Object result) {
+		if (result == null) {
+			return 0;
+		}
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof Map) {
+			return ((Map<?, ?>) result).size();
+		}
+		if (result instanceof Page) {
+			return ((Page<?>) result).getEntities().size();
+		}
+		return 1;
+	}
+}
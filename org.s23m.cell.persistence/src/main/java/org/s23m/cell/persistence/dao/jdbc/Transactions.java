@@ -0,0 +1,48 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs work against a single connection within a transaction
+ */
+public final class Transactions {
+
+	private Transactions() {
+	}
+
+	/**
+	 * Obtains a connection from the data source and passes it to the provided work, committing
+	 * if the work completes normally and rolling back if it throws anything, including an {@link Error}.
+	 * The auto-commit mode of the connection is restored once the transaction has ended, since restoring it
+	 * during a transaction would commit the pending work. If the rollback fails, the connection is closed
+	 * without restoring it, and the rollback failure is suppressed by the original one.
+	 *
+	 * @param dataSource
+	 * @param work
+	 */
+	public static void execute(final DataSource dataSource, final Consumer<Connection> work) {
+		try (Connection connection = dataSource.getConnection()) {
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				work.accept(connection);
+				connection.commit();
+			} catch (final Throwable e) {
+				try {
+					connection.rollback();
+					connection.setAutoCommit(autoCommit);
+				} catch (final SQLException rollbackFailure) {
+					e.addSuppressed(rollbackFailure);
+				}
+				throw e;
+			}
+			connection.setAutoCommit(autoCommit);
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not complete transaction", e);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Compact representation of a UUID key as two primitive longs, which is cheaper to hash,
+ * compare and store than its 36 character string form.
+ *
+ * Used by {@link KeyEncoding} to convert keys at the JDBC boundary. The model classes keep their String keys,
+ * since {@link KeyEncoding#STRING} accepts keys which are not UUIDs.
+ */
+public final class UuidKey implements Comparable<UuidKey> {
+
+	/**
+	 * The length of the binary form
+	 */
+	public static final int BYTE_LENGTH = 16;
+
+	private final long mostSignificantBits;
+
+	private final long leastSignificantBits;
+
+	/**
+	 * Constructor
+	 *
+	 * @param mostSignificantBits
+	 * @param leastSignificantBits
+	 */
+	public UuidKey(final long mostSignificantBits, final long leastSignificantBits) {
+		this.mostSignificantBits = mostSignificantBits;
+		this.leastSignificantBits = leastSignificantBits;
+	}
+
+	/**
+	 * Parses the standard 36 character string form
+	 *
+	 * @param uuid
+	 */
+	public static UuidKey fromString(final String uuid) {
+		final UUID parsed = UUID.fromString(uuid);
+		return new UuidKey(parsed.getMostSignificantBits(), parsed.getLeastSignificantBits());
+	}
+
+	/**
+	 * Creates a key from its big-endian binary form
+	 *
+	 * @param bytes
+	 */
+	public static UuidKey fromBytes(final byte[] bytes) {
+		if (bytes.length != BYTE_LENGTH) {
+			throw new IllegalArgumentException("Binary UUID must be " + BYTE_LENGTH + " bytes long, but was " + bytes.length);
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		return new UuidKey(buffer.getLong(), buffer.getLong());
+	}
+
+	public long getMostSignificantBits() {
+		return mostSignificantBits;
+	}
+
+	public long getLeastSignificantBits() {
+		return leastSignificantBits;
+	}
+
+	/**
+	 * Returns the big-endian binary form, suitable for a BINARY(16) column
+	 */
+	public byte[] toBytes() {
+		return ByteBuffer.allocate(BYTE_LENGTH)
+				.putLong(mostSignificantBits)
+				.putLong(leastSignificantBits)
+				.array();
+	}
+
+	public UUID toUUID() {
+		return new UUID(mostSignificantBits, leastSignificantBits);
+	}
+
+	@Override
+	public int compareTo(final UuidKey other) {
+		final int result = Long.compare(mostSignificantBits, other.mostSignificantBits);
+		return result != 0 ? result : Long.compare(leastSignificantBits, other.leastSignificantBits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(mostSignificantBits ^ leastSignificantBits);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final UuidKey other = (UuidKey) obj;
+		return mostSignificantBits == other.mostSignificantBits && leastSignificantBits == other.leastSignificantBits;
+	}
+
+	/**
+	 * Returns the standard 36 character string form
+	 */
+	@Override
+	public String toString() {
+		return toUUID().toString();
+	}
+}
@@ -0,0 +1,41 @@
+package org.s23m.cell.persistence.dao.jdbc;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * {@link StringPool} which only retains values while they are referenced elsewhere,
+ * so it does not grow beyond the set of values currently held in memory
+ */
+public final class WeakStringPool implements StringPool {
+
+	private final Map<String, WeakReference<String>> values = new WeakHashMap<>();
+
+	@Override
+	public String canonicalize(final String value) {
+		if (value == null) {
+			return null;
+		}
+		synchronized (values) {
+			final WeakReference<String> reference = values.get(value);
+			if (reference != null) {
+				final String canonical = reference.get();
+				if (canonical != null) {
+					return canonical;
+				}
+			}
+			values.put(value, new WeakReference<>(value));
+			return value;
+		}
+	}
+
+	/**
+	 * Returns the number of values currently pooled
+	 */
+	public int size() {
+		synchronized (values) {
+			return values.size();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.s23m.cell.persistence.dao.metrics;
+
+/**
+ * Receives a measurement for every DAO operation performed
+ */
+@FunctionalInterface
+public interface DaoMetrics {
+
+	/**
+	 * Metrics which discard every measurement
+	 */
+	DaoMetrics NONE = (entityClass, operation, rows, elapsedNanos, failed) -> {
+	};
+
+	/**
+	 * Records an operation
+	 *
+	 * @param entityClass the entity type of the table operated on
+	 * @param operation
+	 * @param rows the number of rows retrieved or written, which is 0 if the operation failed
+	 * @param elapsedNanos
+	 * @param failed whether the operation threw an exception
+	 */
+	void record(Class<?> entityClass, DaoOperation operation, int rows, long elapsedNanos, boolean failed);
+}
@@ -0,0 +1,117 @@
+package org.s23m.cell.persistence.dao.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DaoMetrics} which aggregates measurements in memory, per entity type and operation,
+ * so that the current state can be inspected (e.g. logged periodically) using {@link #snapshot()}.
+ *
+ * Instances are thread-safe, and recording does not block.
+ */
+public final class DaoMetricsRegistry implements DaoMetrics {
+
+	private final Map<Key, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+	@Override
+	public void record(final Class<?> entityClass, final DaoOperation operation, final int rows, final long elapsedNanos,
+			final boolean failed) {
+		final OperationMetrics operationMetrics = metrics.computeIfAbsent(new Key(entityClass.getSimpleName(), operation),
+				key -> new OperationMetrics());
+		operationMetrics.record(rows, elapsedNanos, failed);
+	}
+
+	/**
+	 * Returns the metrics of every operation performed so far, ordered by entity name and operation
+	 */
+	public List<OperationSnapshot> snapshot() {
+		final List<OperationSnapshot> result = new ArrayList<>();
+		for (final Map.Entry<Key, OperationMetrics> entry : metrics.entrySet()) {
+			result.add(entry.getValue().snapshot(entry.getKey()));
+		}
+		result.sort(Comparator.comparing(OperationSnapshot::getEntityName).thenComparing(OperationSnapshot::getOperation));
+		return result;
+	}
+
+	/**
+	 * Discards all measurements
+	 */
+	public void reset() {
+		metrics.clear();
+	}
+
+	private static final class Key {
+
+		private final String entityName;
+
+		private final DaoOperation operation;
+
+		Key(final String entityName, final DaoOperation operation) {
+			this.entityName = entityName;
+			this.operation = operation;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(entityName, operation);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return entityName.equals(other.entityName) && operation == other.operation;
+		}
+	}
+
+	private static final class OperationMetrics {
+
+		private final LongAdder callCount = new LongAdder();
+
+		private final LongAdder errorCount = new LongAdder();
+
+		private final LongAdder rowCount = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		void record(final int rows, final long elapsedNanos, final boolean failed) {
+			callCount.increment();
+			if (failed) {
+				errorCount.increment();
+			}
+			rowCount.add(rows);
+			totalNanos.add(elapsedNanos);
+			maxNanos.accumulate(elapsedNanos);
+			histogram.record(elapsedNanos);
+		}
+
+		OperationSnapshot snapshot(final Key key) {
+			final long calls = callCount.sum();
+			final long meanNanos = calls == 0 ? 0 : totalNanos.sum() / calls;
+			final long maxValue = maxNanos.get();
+			return new OperationSnapshot(key.entityName, key.operation, calls, errorCount.sum(), rowCount.sum(),
+					toMicros(meanNanos),
+					toMicros(Math.min(histogram.getValueAtPercentile(50.0), maxValue)),
+					toMicros(Math.min(histogram.getValueAtPercentile(90.0), maxValue)),
+					toMicros(Math.min(histogram.getValueAtPercentile(99.0), maxValue)),
+					toMicros(maxValue));
+		}
+
+		private static long toMicros(final long nanos) {
+			return TimeUnit.NANOSECONDS.toMicros(nanos);
+		}
+	}
+}
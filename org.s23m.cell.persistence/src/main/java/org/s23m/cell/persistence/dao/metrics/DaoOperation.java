@@ -0,0 +1,62 @@
+package org.s23m.cell.persistence.dao.metrics;
+
+/**
+ * The kinds of DAO operation for which metrics are recorded
+ */
+public enum DaoOperation {
+
+	/**
+	 * Retrieval of a single row by primary key
+	 */
+	GET,
+
+	/**
+	 * Retrieval of many rows by primary key
+	 */
+	GET_ALL,
+
+	/**
+	 * Retrieval of rows by other columns, e.g. traversal queries
+	 */
+	FIND,
+
+	/**
+	 * Retrieval of a page of rows in sequence number order
+	 */
+	GET_PAGE,
+
+	/**
+	 * Retrieval of the changes following a sequence number, from a change feed
+	 */
+	POLL,
+
+	/**
+	 * Retrieval of rows as a stream, e.g. a full table scan, recorded when the stream is closed
+	 * with the rows consumed by then
+	 */
+	SCAN,
+
+	INSERT,
+
+	UPDATE,
+
+	/**
+	 * Insertion of a row, or update of the existing row with the same key
+	 */
+	UPSERT,
+
+	/**
+	 * Insertion of many rows using batched statements
+	 */
+	INSERT_BATCH,
+
+	/**
+	 * Update of many rows using batched statements
+	 */
+	UPDATE_BATCH,
+
+	/**
+	 * Upsert of many rows using batched statements
+	 */
+	UPSERT_BATCH
+}
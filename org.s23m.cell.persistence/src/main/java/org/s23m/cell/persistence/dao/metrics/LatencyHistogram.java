@@ -0,0 +1,71 @@
+package org.s23m.cell.persistence.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, using logarithmic buckets each divided into
+ * {@value #SUB_BUCKET_COUNT} linear sub-buckets (as in HdrHistogram), so that percentiles are reported
+ * with a relative error of at most 1/{@value #SUB_BUCKET_COUNT} across the whole range of values, in constant space.
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// enough buckets for every non-negative long
+	private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	void record(final long value) {
+		counts.incrementAndGet(indexOf(Math.max(0L, value)));
+	}
+
+	/**
+	 * Returns the highest value equivalent to the value at the given percentile, or 0 if nothing has been recorded
+	 *
+	 * @param percentile between 0 and 100
+	 */
+	long getValueAtPercentile(final double percentile) {
+		long total = 0;
+		final long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0L;
+		}
+
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative += snapshot[i];
+			if (cumulative >= rank) {
+				return highestEquivalentValue(i);
+			}
+		}
+		return highestEquivalentValue(BUCKET_COUNT - 1);
+	}
+
+	static int indexOf(final long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long highestEquivalentValue(final int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		final int shift = index / SUB_BUCKET_COUNT - 1;
+		final long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+		final long next = (subBucket + 1) << shift;
+		// the top sub-bucket of the last bucket would overflow
+		return next < 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
@@ -0,0 +1,104 @@
+package org.s23m.cell.persistence.dao.metrics;
+
+import java.util.StringJoiner;
+
+/**
+ * Point-in-time metrics of one kind of operation on one table. Latencies are in microseconds.
+ */
+public final class OperationSnapshot {
+
+	private final String entityName;
+
+	private final DaoOperation operation;
+
+	private final long callCount;
+
+	private final long errorCount;
+
+	private final long rowCount;
+
+	private final long meanMicros;
+
+	private final long p50Micros;
+
+	private final long p90Micros;
+
+	private final long p99Micros;
+
+	private final long maxMicros;
+
+	OperationSnapshot(final String entityName, final DaoOperation operation, final long callCount, final long errorCount,
+			final long rowCount, final long meanMicros, final long p50Micros, final long p90Micros, final long p99Micros,
+			final long maxMicros) {
+		this.entityName = entityName;
+		this.operation = operation;
+		this.callCount = callCount;
+		this.errorCount = errorCount;
+		this.rowCount = rowCount;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p90Micros = p90Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	/**
+	 * Returns the simple name of the entity class, which is also the table name
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
+
+	public DaoOperation getOperation() {
+		return operation;
+	}
+
+	public long getCallCount() {
+		return callCount;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Returns the total number of rows retrieved or written
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public long getMeanMicros() {
+		return meanMicros;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public long getP90Micros() {
+		return p90Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return new StringJoiner(", ", entityName + "." + operation + "[", "]")
+				.add("calls = " + callCount)
+				.add("errors = " + errorCount)
+				.add("rows = " + rowCount)
+				.add("mean = " + meanMicros + "us")
+				.add("p50 = " + p50Micros + "us")
+				.add("p90 = " + p90Micros + "us")
+				.add("p99 = " + p99Micros + "us")
+				.add("max = " + maxMicros + "us")
+				.toString();
+	}
+}
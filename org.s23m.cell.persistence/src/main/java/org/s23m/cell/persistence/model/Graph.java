@@ -40,7 +40,7 @@ public final class Graph {
 	/**
 	 * The content of this graph as XML.
 	 */
-	private final String contentAsXml;
+	private final LargeValue contentAsXml;
 
 	/**
 	 * Constructor
@@ -74,6 +74,11 @@ public final class Graph {
 	 */
 	public Graph(final String urr, final String uuid, final String category, final String container, final String isAbstractValue,
 			final ProperClass properClass, final String maxCardinalityValueInContainer, final String contentAsXml) {
+		this(urr, uuid, category, container, isAbstractValue, properClass, maxCardinalityValueInContainer, LargeValue.of(contentAsXml));
+	}
+
+	private Graph(final String urr, final String uuid, final String category, final String container, final String isAbstractValue,
+			final ProperClass properClass, final String maxCardinalityValueInContainer, final LargeValue contentAsXml) {
 		this.urr = Objects.requireNonNull(urr, "urr must not be null");
 		this.uuid = Objects.requireNonNull(uuid, "uuid must not be null");
 		this.category = Objects.requireNonNull(category, "category must not be null");
@@ -81,7 +86,25 @@ public final class Graph {
 		this.isAbstractValue = Objects.requireNonNull(isAbstractValue, "isAbstractValue must not be null");
 		this.properClass = Objects.requireNonNull(properClass, "properClass must not be null");
 		this.maxCardinalityValueInContainer = maxCardinalityValueInContainer;
-		this.contentAsXml = contentAsXml;
+		this.contentAsXml = Objects.requireNonNull(contentAsXml, "contentAsXml must not be null");
+	}
+
+	/**
+	 * Creates a Graph whose content may be loaded when first accessed
+	 *
+	 * @param urr
+	 * @param uuid
+	 * @param category
+	 * @param container
+	 * @param isAbstractValue
+	 * @param properClass
+	 * @param maxCardinalityValueInContainer
+	 * @param contentAsXml
+	 */
+	public static Graph withContentAsXmlValue(final String urr, final String uuid, final String category, final String container,
+			final String isAbstractValue, final ProperClass properClass, final String maxCardinalityValueInContainer,
+			final LargeValue contentAsXml) {
+		return new Graph(urr, uuid, category, container, isAbstractValue, properClass, maxCardinalityValueInContainer, contentAsXml);
 	}
 
 	public String getUrr() {
@@ -113,6 +136,13 @@ public final class Graph {
 	}
 
 	public String getContentAsXml() {
+		return contentAsXml.get();
+	}
+
+	/**
+	 * Returns the contentAsXml, which may not yet be loaded
+	 */
+	public LargeValue getContentAsXmlValue() {
 		return contentAsXml;
 	}
 
@@ -134,7 +164,6 @@ public final class Graph {
 
 		result = prime * result
 				+ ((maxCardinalityValueInContainer == null) ? 0 : maxCardinalityValueInContainer.hashCode());
-		result = prime * result + ((contentAsXml == null) ? 0 : contentAsXml.hashCode());
 
 		return result;
 	}
@@ -182,11 +211,7 @@ public final class Graph {
 		} else if (!maxCardinalityValueInContainer.equals(other.maxCardinalityValueInContainer)) {
 			return false;
 		}
-		if (contentAsXml == null) {
-			if (other.contentAsXml != null) {
-				return false;
-			}
-		} else if (!contentAsXml.equals(other.contentAsXml)) {
+		if (!Objects.equals(getContentAsXml(), other.getContentAsXml())) {
 			return false;
 		}
 
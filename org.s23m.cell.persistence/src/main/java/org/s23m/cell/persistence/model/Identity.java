@@ -19,7 +19,7 @@ public final class Identity {
 	private final String pluralCodeName;
 
 	// TODO change to byte[] ?
-	private final String payload;
+	private final LargeValue payload;
 
 	/**
 	 * Constructor
@@ -32,7 +32,7 @@ public final class Identity {
 		this.pluralName = Objects.requireNonNull(identity.pluralName(), "pluralName must not be null");
 		this.codeName = identity.codeName();
 		this.pluralCodeName = identity.pluralCodeName();
-		this.payload = identity.payload();
+		this.payload = LargeValue.of(identity.payload());
 	}
 
 
@@ -48,12 +48,32 @@ public final class Identity {
 	 */
 	public Identity(final String uuid, final String name, final String pluralName, final String codeName, final String pluralCodeName,
 			final String payload) {
+		this(uuid, name, pluralName, codeName, pluralCodeName, LargeValue.of(payload));
+	}
+
+	private Identity(final String uuid, final String name, final String pluralName, final String codeName, final String pluralCodeName,
+			final LargeValue payload) {
 		this.uuid = Objects.requireNonNull(uuid, "uuid must not be null");
 		this.name = Objects.requireNonNull(name, "name must not be null");
 		this.pluralName = Objects.requireNonNull(pluralName, "pluralName must not be null");
 		this.codeName = codeName;
 		this.pluralCodeName = pluralCodeName;
-		this.payload = payload;
+		this.payload = Objects.requireNonNull(payload, "payload must not be null");
+	}
+
+	/**
+	 * Creates an Identity whose payload may be loaded when first accessed
+	 *
+	 * @param uuid
+	 * @param name
+	 * @param pluralName
+	 * @param codeName
+	 * @param pluralCodeName
+	 * @param payload
+	 */
+	public static Identity withPayloadValue(final String uuid, final String name, final String pluralName, final String codeName,
+			final String pluralCodeName, final LargeValue payload) {
+		return new Identity(uuid, name, pluralName, codeName, pluralCodeName, payload);
 	}
 
 	public String getUuid() {
@@ -77,6 +97,13 @@ public final class Identity {
 	}
 
 	public String getPayload() {
+		return payload.get();
+	}
+
+	/**
+	 * Returns the payload, which may not yet be loaded
+	 */
+	public LargeValue getPayloadValue() {
 		return payload;
 	}
 
@@ -94,7 +121,6 @@ public final class Identity {
 		// optional fields
 
 		result = prime * result + ((codeName == null) ? 0 : codeName.hashCode());
-		result = prime * result + ((payload == null) ? 0 : payload.hashCode());
 		result = prime * result + ((pluralCodeName == null) ? 0 : pluralCodeName.hashCode());
 		return result;
 	}
@@ -140,11 +166,7 @@ public final class Identity {
 		} else if (!pluralCodeName.equals(other.pluralCodeName)) {
 			return false;
 		}
-		if (payload == null) {
-			if (other.payload != null) {
-				return false;
-			}
-		} else if (!payload.equals(other.payload)) {
+		if (!Objects.equals(getPayload(), other.getPayload())) {
 			return false;
 		}
 
@@ -0,0 +1,95 @@
+package org.s23m.cell.persistence.model;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A potentially large, nullable text value, such as {@link Graph#getContentAsXml()} or {@link Identity#getPayload()},
+ * which is either held in memory or loaded on first access.
+ *
+ * A deferred value is loaded at most once; concurrent first accesses wait for the same load.
+ * It reflects the row at the time it is loaded rather than the time its entity was retrieved.
+ * Very large values can instead be read incrementally using {@link #openReader()}, without being held in memory.
+ */
+public final class LargeValue {
+
+	private static final LargeValue NULL = new LargeValue(null, null, null);
+
+	private volatile String value;
+
+	private volatile Supplier<String> loader;
+
+	private final Supplier<Reader> opener;
+
+	private LargeValue(final String value, final Supplier<String> loader, final Supplier<Reader> opener) {
+		this.value = value;
+		this.loader = loader;
+		this.opener = opener;
+	}
+
+	/**
+	 * Returns a value which is already loaded
+	 *
+	 * @param value
+	 */
+	public static LargeValue of(final String value) {
+		return value == null ? NULL : new LargeValue(value, null, null);
+	}
+
+	/**
+	 * Returns a value which is loaded when first accessed
+	 *
+	 * @param loader retrieves the whole value
+	 * @param opener opens a reader over the value, which returns null if the value is null
+	 */
+	public static LargeValue deferred(final Supplier<String> loader, final Supplier<Reader> opener) {
+		return new LargeValue(null, Objects.requireNonNull(loader, "loader must not be null"),
+				Objects.requireNonNull(opener, "opener must not be null"));
+	}
+
+	/**
+	 * Returns the value, loading it first if necessary
+	 */
+	public String get() {
+		if (loader != null) {
+			synchronized (this) {
+				final Supplier<String> pending = loader;
+				if (pending != null) {
+					value = pending.get();
+					loader = null;
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns whether the value is held in memory
+	 */
+	public boolean isLoaded() {
+		return loader == null;
+	}
+
+	/**
+	 * Opens a reader over the value, which must be closed by the caller. If the value is not yet loaded,
+	 * it is streamed from the database, holding a connection until the reader is closed, and is not retained.
+	 *
+	 * @return the reader, or null if the value is null
+	 */
+	public Reader openReader() {
+		if (isLoaded()) {
+			return value == null ? null : new StringReader(value);
+		}
+		return opener.get();
+	}
+
+	/**
+	 * Returns the value if it is loaded, without loading it
+	 */
+	@Override
+	public String toString() {
+		return isLoaded() ? value : "(not loaded)";
+	}
+}
@@ -1,4 +1,6 @@
 -- DDL which should execute correctly against PostgreSQL, MySQL, H2
+-- SchemaScripts replaces the varchar(36) key and reference types and the TEXT large column types
+-- with those of the configured KeyEncoding and LargeColumnCodec, e.g. BINARY(16) and BLOB.
 
 CREATE TABLE IF NOT EXISTS Identity (
   uuid varchar(36) NOT NULL,
@@ -0,0 +1,15 @@
+-- Secondary indexes for lookups by foreign key and by agent contact details, applied after the table DDL.
+-- H2 and MySQL (InnoDB) already index every foreign key column, but PostgreSQL does not,
+-- so without these, navigating containment or edge ends and checking foreign keys on delete scan the table.
+
+CREATE INDEX idx_Graph_container ON Graph (container);
+
+CREATE INDEX idx_Graph_category ON Graph (category);
+
+CREATE INDEX idx_Edge_fromEdgeEnd ON Edge (fromEdgeEnd);
+
+CREATE INDEX idx_Edge_toEdgeEnd ON Edge (toEdgeEnd);
+
+CREATE INDEX idx_Agent_email ON Agent (email);
+
+CREATE INDEX idx_Agent_alias ON Agent (alias);
@@ -0,0 +1,24 @@
+-- MySQL: add sequence number to all tables, indexed for paging in sequence number order
+-- (MySQL requires an AUTO_INCREMENT column to be indexed in the same statement)
+-- Note: MySQL cannot reassign AUTO_INCREMENT values, so with SqlDialect.MYSQL updated rows keep their sequence number;
+-- the change feed would miss updates, so polling it is refused
+
+ALTER TABLE Identity
+ADD sequenceNumber bigint NOT NULL AUTO_INCREMENT,
+ADD UNIQUE INDEX idx_identity_sequenceNumber (sequenceNumber);
+
+ALTER TABLE Agent
+ADD sequenceNumber bigint NOT NULL AUTO_INCREMENT,
+ADD UNIQUE INDEX idx_agent_sequenceNumber (sequenceNumber);
+
+ALTER TABLE Graph
+ADD sequenceNumber bigint NOT NULL AUTO_INCREMENT,
+ADD UNIQUE INDEX idx_graph_sequenceNumber (sequenceNumber);
+
+ALTER TABLE Arrow
+ADD sequenceNumber bigint NOT NULL AUTO_INCREMENT,
+ADD UNIQUE INDEX idx_arrow_sequenceNumber (sequenceNumber);
+
+ALTER TABLE Edge
+ADD sequenceNumber bigint NOT NULL AUTO_INCREMENT,
+ADD UNIQUE INDEX idx_edge_sequenceNumber (sequenceNumber);
@@ -0,0 +1,26 @@
+-- PostgreSQL: add sequence number to all tables, indexed for paging in sequence number order
+
+ALTER TABLE Identity
+ADD COLUMN IF NOT EXISTS sequenceNumber bigserial;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_identity_sequenceNumber ON Identity (sequenceNumber);
+
+ALTER TABLE Agent
+ADD COLUMN IF NOT EXISTS sequenceNumber bigserial;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_agent_sequenceNumber ON Agent (sequenceNumber);
+
+ALTER TABLE Graph
+ADD COLUMN IF NOT EXISTS sequenceNumber bigserial;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_graph_sequenceNumber ON Graph (sequenceNumber);
+
+ALTER TABLE Arrow
+ADD COLUMN IF NOT EXISTS sequenceNumber bigserial;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_arrow_sequenceNumber ON Arrow (sequenceNumber);
+
+ALTER TABLE Edge
+ADD COLUMN IF NOT EXISTS sequenceNumber bigserial;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_edge_sequenceNumber ON Edge (sequenceNumber);
@@ -0,0 +1,118 @@
+package org.s23m.cell.persistence.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.jdbc.dao.AbstractJdbcTest;
+import org.s23m.cell.persistence.model.Identity;
+
+public class AsyncWriterTest extends AbstractJdbcTest {
+
+	@Test
+	public void testWritesArePerformed() throws Exception {
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		try (AsyncWriter<List<Identity>> writer = new AsyncWriter<>(getIdentityDao()::insertAll, 3, 4, "test-writer")) {
+			for (int i = 0; i < 20; i++) {
+				futures.add(writer.submit(Arrays.asList(createIdentity(i + "a"), createIdentity(i + "b"))));
+			}
+		}
+
+		for (final CompletableFuture<Void> future : futures) {
+			assertTrue(future.isDone());
+			future.get();
+		}
+		assertEquals(40L, getIdentityDao().scanAll().count());
+	}
+
+	@Test
+	public void testWritesWithEqualKeysArePerformedInOrder() throws Exception {
+		final Map<Integer, List<Integer>> performed = new ConcurrentHashMap<>();
+		final Map<Integer, List<Integer>> submitted = new HashMap<>();
+		try (AsyncWriter<int[]> writer = new AsyncWriter<>(value -> {
+			performed.computeIfAbsent(value[0], key -> Collections.synchronizedList(new ArrayList<>())).add(value[1]);
+		}, value -> value[0], 4, 8, "test-writer")) {
+			for (int i = 0; i < 200; i++) {
+				final int key = i % 5;
+				submitted.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+				writer.submit(new int[] { key, i });
+			}
+		}
+		assertEquals(submitted, performed);
+	}
+
+	@Test
+	public void testFailureCompletesFutureExceptionally() throws Exception {
+		try (AsyncWriter<List<Identity>> writer = new AsyncWriter<>(getIdentityDao()::insertAll, 1, 4, "test-writer")) {
+			writer.submit(Arrays.asList(createIdentity("1"))).get();
+			writer.submit(Arrays.asList(createIdentity("1"))).get();
+			fail("Duplicate insert should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof RuntimeException);
+		}
+	}
+
+	@Test
+	public void testFullQueueRejectsAfterTimeout() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		try (AsyncWriter<String> writer = new AsyncWriter<>(value -> {
+			started.countDown();
+			await(release);
+		}, 1, 1, "test-writer")) {
+			final CompletableFuture<Void> first = writer.submit("first");
+			started.await();
+			final CompletableFuture<Void> second = writer.submit("second");
+			assertEquals(1, writer.getQueuedCount());
+
+			final CompletableFuture<Void> third = writer.submit("third", 10, TimeUnit.MILLISECONDS);
+			assertTrue(third.isCompletedExceptionally());
+			assertRejected(third);
+
+			release.countDown();
+			first.get();
+			second.get();
+		}
+	}
+
+	@Test
+	public void testSubmitAfterClose() {
+		final AsyncWriter<String> writer = new AsyncWriter<>(value -> {}, 1, 1, "test-writer");
+		writer.close();
+		assertRejected(writer.submit("value"));
+	}
+
+	private static void assertRejected(final CompletableFuture<Void> future) {
+		try {
+			future.get();
+			fail("Write should be rejected");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
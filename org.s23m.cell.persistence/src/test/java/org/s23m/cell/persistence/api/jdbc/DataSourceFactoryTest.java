@@ -0,0 +1,74 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.LookupExecutor;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+public class DataSourceFactoryTest {
+
+	@Test
+	public void testH2DataSource() throws SQLException {
+		try (HikariDataSource dataSource = DataSourceFactory.create("jdbc:h2:mem:DataSourceFactoryTest;LOCK_TIMEOUT=500", "sa", "", 2)) {
+			assertEquals(2, dataSource.getMaximumPoolSize());
+			assertEquals("jdbc:h2:mem:DataSourceFactoryTest;LOCK_TIMEOUT=500;QUERY_CACHE_SIZE=64;DB_CLOSE_DELAY=-1", dataSource.getJdbcUrl());
+
+			final PoolMetrics metrics = DataSourceFactory.getMetrics(dataSource);
+			for (int i = 0; i < 3; i++) {
+				try (Connection connection = dataSource.getConnection();
+						Statement statement = connection.createStatement();
+						ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+					assertTrue(resultSet.next());
+				}
+			}
+
+			assertEquals(3L, metrics.getAcquireCount());
+			assertTrue(metrics.getMaxAcquireMicros() >= metrics.getMeanAcquireMicros());
+			assertTrue(metrics.getTotalConnections() <= 2);
+			assertEquals(0, metrics.getWaitingThreads());
+			assertEquals(0L, metrics.getTimeoutCount());
+
+			try (LookupExecutor executor = DataSourceFactory.createLookupExecutor(dataSource)) {
+				assertEquals(2, executor.getMaxConcurrency());
+			}
+		}
+	}
+
+	@Test
+	public void testMySqlConfiguration() {
+		final HikariConfig config = DataSourceFactory.createConfig("jdbc:mysql://localhost/s23m", "user", "secret", 4);
+		assertEquals(4, config.getMaximumPoolSize());
+		assertEquals("jdbc:mysql://localhost/s23m", config.getJdbcUrl());
+		assertEquals("true", config.getDataSourceProperties().getProperty("cachePrepStmts"));
+		assertEquals("true", config.getDataSourceProperties().getProperty("useServerPrepStmts"));
+		assertEquals("true", config.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+	}
+
+	@Test
+	public void testPostgreSqlConfiguration() {
+		final HikariConfig config = DataSourceFactory.createConfig("jdbc:postgresql://localhost/s23m", "user", "secret", 4);
+		assertEquals("jdbc:postgresql://localhost/s23m", config.getJdbcUrl());
+		assertEquals("true", config.getDataSourceProperties().getProperty("reWriteBatchedInserts"));
+		assertNull(config.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+	}
+
+	@Test
+	public void testDefaultPoolSize() {
+		assertEquals(Runtime.getRuntime().availableProcessors() * 2 + 1, DataSourceFactory.getDefaultPoolSize());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoolSize() {
+		DataSourceFactory.createConfig("jdbc:h2:mem:test", "sa", "", 0);
+	}
+}
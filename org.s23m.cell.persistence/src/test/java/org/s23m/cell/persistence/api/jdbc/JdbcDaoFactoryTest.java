@@ -0,0 +1,39 @@
+package org.s23m.cell.persistence.api.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.SchemaScripts;
+import org.s23m.cell.persistence.model.Identity;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+public class JdbcDaoFactoryTest {
+
+	@Test
+	public void testStatementsAreTraced() throws IOException {
+		try (HikariDataSource dataSource = DataSourceFactory.create("jdbc:h2:mem:JdbcDaoFactoryTest", "sa", "", 2)) {
+			final JdbcDaoConfiguration configuration = JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true);
+			SchemaScripts.createSchema(dataSource, configuration);
+			final JdbcDaoFactory factory = new JdbcDaoFactory(dataSource, configuration, 0);
+			assertSame(dataSource, factory.getDataSource());
+			assertEquals(0L, factory.getQueryRunner().getThresholdMillis());
+
+			factory.getIdentityDao().insert(new Identity("1", "name", "pluralName", "codeName", "pluralCodeName", "payload"));
+			assertEquals(1L, factory.getQueryRunner().getSlowStatementCount());
+
+			// lazily loaded and streamed large columns are read using the shared query runner
+			final Identity identity = factory.getIdentityDao().get("1");
+			assertEquals("payload", identity.getPayload());
+			try (Reader reader = factory.getIdentityDao().openPayload("1")) {
+				assertEquals('p', reader.read());
+			}
+			assertEquals(4L, factory.getQueryRunner().getSlowStatementCount());
+		}
+	}
+}
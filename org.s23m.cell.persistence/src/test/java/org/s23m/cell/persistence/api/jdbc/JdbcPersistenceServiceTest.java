@@ -1,21 +1,48 @@
 package org.s23m.cell.persistence.api.jdbc;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
+import org.s23m.cell.Set;
 import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
 import org.s23m.cell.persistence.jdbc.dao.JdbcTestSupport;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
 import org.s23m.cell.persistence.model.Identity;
 import org.s23m.cell.platform.api.AgencyTestFoundationTestCase;
 import org.s23m.cell.platform.testfoundation.AgencyTestFoundation;
 
 public class JdbcPersistenceServiceTest extends AgencyTestFoundationTestCase {
 
+	/**
+	 * The number of semantic identities of each model, which are stored in addition to the identities of its sets
+	 */
+	private static final int ITHANKU_SEMANTIC_IDENTITY_COUNT = 15;
+
+	private static final int ERNST_SEMANTIC_IDENTITY_COUNT = 5;
+
+	/**
+	 * The tables written by the service, with their primary key columns
+	 */
+	private static final String[][] TABLE_KEYS = {
+		{ "Identity", "uuid" },
+		{ "Graph", "urr" },
+		{ "Arrow", "urr" },
+		{ "Edge", "urr" }
+	};
+
 	private final JdbcTestSupport support;
 
 	public JdbcPersistenceServiceTest() {
@@ -33,11 +60,13 @@ public class JdbcPersistenceServiceTest extends AgencyTestFoundationTestCase {
 
 	public void testStoreIThankUInstance() throws SQLException {
 		final JdbcIdentityDao identityDao = support.getIdentityDao();
-		final JdbcPersistenceService service = new JdbcPersistenceService(identityDao);
+		final JdbcPersistenceService service = createService();
 
 		service.store(AgencyTestFoundation.ithanku);
-		final Long identityCount = executeCountQuery("select count(*) from Identity");
-		assertThat(identityCount, is(15L));
+		assertTrue(executeCountQuery("select count(*) from Identity") >= ITHANKU_SEMANTIC_IDENTITY_COUNT);
+		assertTrue(executeCountQuery("select count(*) from Graph") > 0L);
+		assertTrue(executeCountQuery("select count(*) from Arrow") > 0L);
+		assertStored(collect(AgencyTestFoundation.ithanku));
 
 		final Identity giver = identityDao.get("32779ea2-89cf-11df-a4ee-0800200c9a67");
 		assertThat(giver.getName(), is("giver"));
@@ -45,16 +74,127 @@ public class JdbcPersistenceServiceTest extends AgencyTestFoundationTestCase {
 
 	public void testStoreErnstInstance() throws SQLException {
 		final JdbcIdentityDao identityDao = support.getIdentityDao();
-		final JdbcPersistenceService service = new JdbcPersistenceService(identityDao);
+		final JdbcPersistenceService service = createService();
 
 		service.store(AgencyTestFoundation.ernst);
-		final Long identityCount = executeCountQuery("select count(*) from Identity");
-		assertThat(identityCount, is(5L));
+		assertTrue(executeCountQuery("select count(*) from Identity") >= ERNST_SEMANTIC_IDENTITY_COUNT);
+		assertTrue(executeCountQuery("select count(*) from Graph") > 0L);
+		assertTrue(executeCountQuery("select count(*) from Arrow") > 0L);
+		assertStored(collect(AgencyTestFoundation.ernst));
 
 		final Identity giver = identityDao.get("3277c5b8-89cf-11df-a4ee-0800200c9a67");
 		assertThat(giver.getName(), is("ErnstNativeLanguage"));
 	}
 
+	public void testStoreModelsSharingRows() throws SQLException {
+		// the keys stored for each model on its own, read from the tables rather than derived from the models
+		createService().store(AgencyTestFoundation.ithanku);
+		final Map<String, java.util.Set<String>> ithankuKeys = readKeys();
+		recreateTestDatabase();
+		createService().store(AgencyTestFoundation.ernst);
+		final Map<String, java.util.Set<String>> ernstKeys = readKeys();
+		recreateTestDatabase();
+
+		// the models share the kernel identities and graphs, and storing a model again rewrites all of its rows
+		final JdbcPersistenceService service = createService();
+		service.store(AgencyTestFoundation.ithanku);
+		service.store(AgencyTestFoundation.ernst);
+		service.store(AgencyTestFoundation.ithanku);
+
+		assertFalse(intersection(ithankuKeys.get("Identity"), ernstKeys.get("Identity")).isEmpty());
+		final Map<String, java.util.Set<String>> expectedKeys = union(ithankuKeys, ernstKeys);
+		for (final String[] tableKey : TABLE_KEYS) {
+			final String table = tableKey[0];
+			assertEquals(table, expectedKeys.get(table).size(), executeCountQuery("select count(*) from " + table).intValue());
+		}
+		assertEquals(expectedKeys, readKeys());
+		assertStored(collect(AgencyTestFoundation.ithanku, AgencyTestFoundation.ernst));
+	}
+
+	/**
+	 * Returns the rows which represent the provided models, deduplicated by primary key
+	 */
+	private static ModelRows collect(final Set... models) {
+		final ModelRows rows = new ModelRows();
+		for (final Set model : models) {
+			JdbcPersistenceService.collect(model, rows);
+		}
+		return rows;
+	}
+
+	/**
+	 * Checks that exactly the provided rows are stored
+	 */
+	private void assertStored(final ModelRows rows) throws SQLException {
+		assertFalse(rows.getGraphs().isEmpty());
+		assertFalse(rows.getArrows().isEmpty());
+
+		assertEquals(rows.getIdentities().size(), executeCountQuery("select count(*) from Identity").intValue());
+		assertEquals(rows.getGraphs().size(), executeCountQuery("select count(*) from Graph").intValue());
+		assertEquals(rows.getArrows().size(), executeCountQuery("select count(*) from Arrow").intValue());
+		assertEquals(rows.getEdges().size(), executeCountQuery("select count(*) from Edge").intValue());
+
+		for (final Identity identity : rows.getIdentities()) {
+			assertEquals(identity, support.getIdentityDao().get(identity.getUuid()));
+		}
+		for (final Graph graph : rows.getGraphs()) {
+			assertEquals(graph, support.getGraphDao().get(graph.getUrr()));
+		}
+		for (final Arrow arrow : rows.getArrows()) {
+			assertEquals(arrow, support.getArrowDao().get(arrow.getUrr()));
+		}
+		for (final Edge edge : rows.getEdges()) {
+			assertEquals(edge, support.getEdgeDao().get(edge.getUrr()));
+		}
+	}
+
+	/**
+	 * Reads the primary keys stored in each table
+	 */
+	private Map<String, java.util.Set<String>> readKeys() throws SQLException {
+		final Map<String, java.util.Set<String>> keys = new HashMap<>();
+		try (Connection connection = support.getConnection();
+				Statement statement = connection.createStatement()) {
+			for (final String[] tableKey : TABLE_KEYS) {
+				final java.util.Set<String> tableKeys = new HashSet<>();
+				try (ResultSet resultSet = statement.executeQuery("select " + tableKey[1] + " from " + tableKey[0])) {
+					while (resultSet.next()) {
+						tableKeys.add(resultSet.getString(1));
+					}
+				}
+				keys.put(tableKey[0], tableKeys);
+			}
+		}
+		return keys;
+	}
+
+	private static Map<String, java.util.Set<String>> union(final Map<String, java.util.Set<String>> first,
+			final Map<String, java.util.Set<String>> second) {
+		final Map<String, java.util.Set<String>> union = new HashMap<>();
+		for (final String[] tableKey : TABLE_KEYS) {
+			final java.util.Set<String> keys = new HashSet<>(first.get(tableKey[0]));
+			keys.addAll(second.get(tableKey[0]));
+			union.put(tableKey[0], keys);
+		}
+		return union;
+	}
+
+	private static java.util.Set<String> intersection(final java.util.Set<String> first, final java.util.Set<String> second) {
+		final java.util.Set<String> intersection = new HashSet<>(first);
+		intersection.retainAll(second);
+		return intersection;
+	}
+
+	private void recreateTestDatabase() throws SQLException {
+		support.destroyTestDatabase();
+		support.initialiseTestDatabase(getClass().getSimpleName());
+	}
+
+	private JdbcPersistenceService createService() {
+		return new JdbcPersistenceService(support.getDataSource(), support.getIdentityDao(), support.getGraphDao(),
+				support.getArrowDao(), support.getEdgeDao());
+	}
+
 	private Long executeCountQuery(final String sql) throws SQLException {
 		final Connection connection = support.getConnection();
 		final Statement statement = connection.createStatement();
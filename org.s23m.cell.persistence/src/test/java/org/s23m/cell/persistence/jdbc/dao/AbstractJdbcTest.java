@@ -3,6 +3,9 @@ package org.s23m.cell.persistence.jdbc.dao;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.QueryRunner;
 import org.junit.After;
 import org.junit.Before;
 import org.s23m.cell.persistence.dao.jdbc.JdbcAgentDao;
@@ -29,6 +32,14 @@ public abstract class AbstractJdbcTest {
 		support.destroyTestDatabase();
 	}
 
+	protected DataSource getDataSource() {
+		return support.getDataSource();
+	}
+
+	protected QueryRunner getQueryRunner() {
+		return support.getQueryRunner();
+	}
+
 	protected JdbcGraphDao getGraphDao() {
 		return support.getGraphDao();
 	}
@@ -0,0 +1,146 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createArrow;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createEdge;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.KeyEncoding;
+import org.s23m.cell.persistence.dao.jdbc.LargeColumnCodec;
+import org.s23m.cell.persistence.dao.jdbc.UuidKey;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * Tests the DAOs against tables which store keys as BINARY(16) or native UUID columns
+ */
+public class BinaryKeyEncodingTest {
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	@Before
+	public void setUp() throws SQLException {
+		final JdbcDaoConfiguration configuration = JdbcDaoConfiguration.DEFAULT.withKeyEncoding(KeyEncoding.BINARY);
+		support.initialiseTestDatabase(getClass().getSimpleName(), configuration);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	@Test
+	public void testUuidKeyConversions() {
+		final UUID uuid = UUID.randomUUID();
+		final UuidKey key = UuidKey.fromString(uuid.toString());
+
+		assertEquals(uuid, key.toUUID());
+		assertEquals(uuid.toString(), key.toString());
+		assertEquals(key, UuidKey.fromBytes(key.toBytes()));
+		assertEquals(key.hashCode(), UuidKey.fromBytes(key.toBytes()).hashCode());
+	}
+
+	@Test
+	public void testEdgeInsertionAndRetrieval() throws SQLException {
+		final String uuid = UUID.randomUUID().toString();
+		final Edge edge = createEdge(uuid);
+
+		support.getIdentityDao().insert(createIdentity(uuid));
+		support.getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+		support.getArrowDao().insert(createArrow(uuid, ProperClass.Edge));
+		support.getEdgeDao().insert(edge);
+
+		assertEquals(edge, support.getEdgeDao().get(uuid));
+		assertEquals(UuidKey.BYTE_LENGTH, findKeyLength());
+	}
+
+	@Test
+	public void testBulkRetrievalNormalizesKeys() throws SQLException {
+		final String uuid1 = UUID.randomUUID().toString();
+		final String uuid2 = UUID.randomUUID().toString();
+		support.getIdentityDao().insertAll(Arrays.asList(createIdentity(uuid1), createIdentity(uuid2)));
+
+		final String requested = uuid2.toUpperCase();
+		final Map<String, Identity> retrieved = support.getIdentityDao().getAll(Arrays.asList(uuid1, requested));
+
+		assertEquals(createIdentity(uuid1), retrieved.get(uuid1));
+		assertEquals(createIdentity(uuid2), retrieved.get(requested));
+		assertNull(support.getIdentityDao().get(UUID.randomUUID().toString()));
+	}
+
+	@Test
+	public void testNativeUuidColumns() throws SQLException {
+		final JdbcTestSupport uuidSupport = new JdbcTestSupport();
+		uuidSupport.initialiseTestDatabase(getClass().getSimpleName() + "Uuid", JdbcDaoConfiguration.DEFAULT.withKeyEncoding(KeyEncoding.UUID));
+		try {
+			final String uuid = UUID.randomUUID().toString();
+			final Edge edge = createEdge(uuid);
+			uuidSupport.getIdentityDao().insert(createIdentity(uuid));
+			uuidSupport.getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+			uuidSupport.getArrowDao().insert(createArrow(uuid, ProperClass.Edge));
+			uuidSupport.getEdgeDao().insert(edge);
+
+			assertEquals(edge, uuidSupport.getEdgeDao().get(uuid));
+			final String requested = uuid.toUpperCase();
+			assertEquals(createIdentity(uuid), uuidSupport.getIdentityDao().getAll(Arrays.asList(requested)).get(requested));
+			try (Connection connection = uuidSupport.getConnection();
+					Statement statement = connection.createStatement();
+					ResultSet resultSet = statement.executeQuery("select uuid from Identity")) {
+				resultSet.next();
+				assertEquals(UUID.fromString(uuid), resultSet.getObject(1));
+			}
+		} finally {
+			uuidSupport.destroyTestDatabase();
+		}
+	}
+
+	@Test
+	public void testBinaryKeysWithCompressedContent() throws SQLException {
+		final JdbcDaoConfiguration configuration = JdbcDaoConfiguration.DEFAULT.withKeyEncoding(KeyEncoding.BINARY)
+				.withLargeColumnCodec(LargeColumnCodec.compressed(0));
+		final JdbcTestSupport compressedSupport = new JdbcTestSupport();
+		compressedSupport.initialiseTestDatabase(getClass().getSimpleName() + "Compressed", configuration);
+		try {
+			final String uuid = UUID.randomUUID().toString();
+			compressedSupport.getIdentityDao().insert(createIdentity(uuid));
+			compressedSupport.getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+
+			assertEquals(createIdentity(uuid), compressedSupport.getIdentityDao().get(uuid));
+			assertEquals(createGraph(uuid, ProperClass.Vertex), compressedSupport.getGraphDao().get(uuid));
+			try (Connection connection = compressedSupport.getConnection();
+					Statement statement = connection.createStatement();
+					ResultSet resultSet = statement.executeQuery("select uuid, payload from Identity")) {
+				resultSet.next();
+				assertEquals(UuidKey.BYTE_LENGTH, resultSet.getBytes(1).length);
+				assertEquals(Types.BLOB, resultSet.getMetaData().getColumnType(2));
+			}
+		} finally {
+			compressedSupport.destroyTestDatabase();
+		}
+	}
+
+	private int findKeyLength() throws SQLException {
+		try (Connection connection = support.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("select uuid from Identity")) {
+			resultSet.next();
+			return resultSet.getBytes(1).length;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createAgent;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createArrow;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createEdge;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.BulkLoadReport;
+import org.s23m.cell.persistence.dao.jdbc.BulkLoader;
+import org.s23m.cell.persistence.dao.jdbc.BulkLoader.ConstraintMode;
+import org.s23m.cell.persistence.model.Agent;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+public class BulkLoaderTest extends AbstractJdbcTest {
+
+	private static final int ROW_COUNT = 500;
+
+	@Test
+	public void testLoadInDependencyOrder() throws SQLException {
+		assertLoaded(createLoader(ConstraintMode.CHECKED));
+	}
+
+	@Test
+	public void testLoadWithDeferredConstraints() throws SQLException {
+		assertLoaded(createLoader(ConstraintMode.DEFERRED));
+
+		// constraints are checked again afterwards
+		assertInsertFails(() -> getEdgeDao().insert(createEdge("missing")));
+	}
+
+	@Test
+	public void testFailedLoad() throws SQLException {
+		final BulkLoader loader = createLoader(ConstraintMode.CHECKED);
+		assertInsertFails(() -> loader.load(Collections.<Identity>emptyList(), Collections.<Agent>emptyList(),
+				Arrays.asList(createGraph("1", ProperClass.Vertex)), Collections.<Arrow>emptyList(), Collections.<Edge>emptyList()));
+	}
+
+	private BulkLoader createLoader(final ConstraintMode constraintMode) {
+		return new BulkLoader(getDataSource(), getIdentityDao(), getAgentDao(), getGraphDao(), getArrowDao(), getEdgeDao(), 4,
+				constraintMode);
+	}
+
+	private void assertLoaded(final BulkLoader loader) {
+		final List<Identity> identities = new ArrayList<>();
+		final List<Agent> agents = new ArrayList<>();
+		final List<Graph> graphs = new ArrayList<>();
+		final List<Arrow> arrows = new ArrayList<>();
+		final List<Edge> edges = new ArrayList<>();
+		for (int i = 0; i < ROW_COUNT; i++) {
+			final String uuid = Integer.toString(i);
+			identities.add(createIdentity(uuid));
+			graphs.add(createGraph(uuid, ProperClass.Edge));
+			if (i % 2 == 0) {
+				arrows.add(createArrow(uuid, ProperClass.Edge));
+			}
+			if (i % 4 == 0) {
+				edges.add(createEdge(uuid));
+			}
+			if (i % 10 == 0) {
+				agents.add(createAgent(uuid));
+			}
+		}
+
+		final BulkLoadReport report = loader.load(identities, agents, graphs, arrows, edges);
+
+		assertEquals(ROW_COUNT + ROW_COUNT / 10 + ROW_COUNT + ROW_COUNT / 2 + ROW_COUNT / 4, report.getRowCount());
+		assertEquals(ROW_COUNT, report.getTable(Identity.class).getRowCount());
+		assertEquals(ROW_COUNT / 4, report.getTable(Edge.class).getRowCount());
+		assertEquals(5, report.getTables().size());
+
+		assertEquals(ROW_COUNT, getIdentityDao().scanAll().count());
+		assertEquals(ROW_COUNT / 10, getAgentDao().scanAll().count());
+		assertEquals(ROW_COUNT, getGraphDao().scanAll().count());
+		assertEquals(ROW_COUNT / 2, getArrowDao().scanAll().count());
+		assertEquals(ROW_COUNT / 4, getEdgeDao().scanAll().count());
+		assertEquals(edges.get(1), getEdgeDao().get("4"));
+	}
+
+	private static void assertInsertFails(final Runnable insert) {
+		try {
+			insert.run();
+			fail("Insert violating a foreign key constraint should fail");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.cache.CachingIdentityDao;
+import org.s23m.cell.persistence.model.Identity;
+
+public class CachingIdentityDaoTest extends AbstractJdbcTest {
+
+	@Test
+	public void testRepeatedLookupIsServedFromCache() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 10);
+		dao.insert(createIdentity("1"));
+
+		final Identity first = dao.get("1");
+		final Identity second = dao.get("1");
+
+		assertSame(first, second);
+		assertEquals(1, dao.getMissCount());
+		assertEquals(1, dao.getHitCount());
+	}
+
+	@Test
+	public void testMissingIdentityIsNotCached() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 10);
+
+		assertNull(dao.get("1"));
+		dao.insert(createIdentity("1"));
+		assertEquals(createIdentity("1"), dao.get("1"));
+		assertEquals(2, dao.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIdentityIsEvicted() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 2);
+		dao.insertAll(Arrays.asList(createIdentity("1"), createIdentity("2"), createIdentity("3")));
+
+		dao.get("1");
+		dao.get("2");
+		// "1" becomes the most recently used
+		dao.get("1");
+		dao.get("3");
+
+		assertEquals(2, dao.getSize());
+		assertEquals(1, dao.getEvictionCount());
+
+		// "2" was evicted, "1" was not
+		dao.get("1");
+		assertEquals(2, dao.getHitCount());
+		dao.get("2");
+		assertEquals(4, dao.getMissCount());
+	}
+
+	@Test
+	public void testUpdateInvalidatesCachedIdentity() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 10);
+		final Identity identity = createIdentity("1");
+		dao.insert(identity);
+		dao.get("1");
+
+		final Identity modified = new Identity("1", "changed name", identity.getPluralName(),
+				identity.getCodeName(), identity.getPluralCodeName(), identity.getPayload());
+		dao.update(modified);
+
+		assertEquals(modified, dao.get("1"));
+		assertEquals(2, dao.getMissCount());
+	}
+
+	@Test
+	public void testUpsertInvalidatesCachedIdentity() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 10);
+		final Identity identity = createIdentity("1");
+		dao.upsert(identity);
+		dao.get("1");
+
+		final Identity modified = new Identity("1", "changed name", identity.getPluralName(),
+				identity.getCodeName(), identity.getPluralCodeName(), identity.getPayload());
+		dao.upsertAll(Arrays.asList(modified));
+
+		assertEquals(modified, dao.get("1"));
+		assertEquals(2, dao.getMissCount());
+	}
+
+	@Test
+	public void testBulkLookupCombinesCachedAndLoadedIdentities() throws SQLException {
+		final CachingIdentityDao dao = new CachingIdentityDao(getIdentityDao(), 10);
+		dao.insertAll(Arrays.asList(createIdentity("1"), createIdentity("2"), createIdentity("3")));
+		dao.get("2");
+
+		final Map<String, Identity> retrieved = dao.getAll(Arrays.asList("1", "2", "3", "4"));
+
+		assertEquals(Arrays.asList("1", "2", "3"), Arrays.asList(retrieved.keySet().toArray()));
+		assertEquals(1, dao.getHitCount());
+		assertEquals(4, dao.getMissCount());
+		assertEquals(3, dao.getSize());
+	}
+}
@@ -0,0 +1,86 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.ChangePoller;
+import org.s23m.cell.persistence.model.Identity;
+
+public class ChangePollerTest extends AbstractJdbcTest {
+
+	@Test
+	public void testChangeCommittedOutOfOrder() throws SQLException {
+		final ChangePoller<Identity> poller = new ChangePoller<>(getIdentityDao(), 0L, 1, TimeUnit.MINUTES);
+
+		try (Connection inFlight = getConnection()) {
+			inFlight.setAutoCommit(false);
+			// "1" is allocated a sequence number before "2", but only commits after "2" has been polled
+			getIdentityDao().insertAll(inFlight, Arrays.asList(createIdentity("1")));
+			getIdentityDao().insert(createIdentity("2"));
+
+			final List<Change<Identity>> first = poller.poll(10);
+			assertEquals(Arrays.asList("2"), toUuids(first));
+			assertTrue(poller.getSequenceNumber() < first.get(0).getSequenceNumber());
+
+			inFlight.commit();
+		}
+
+		assertEquals(Arrays.asList("1"), toUuids(poller.poll(10)));
+		getIdentityDao().insert(createIdentity("3"));
+		assertEquals(Arrays.asList("3"), toUuids(poller.poll(10)));
+		assertEquals(Collections.emptyList(), poller.poll(10));
+
+		// the gap is filled, so the low-water mark has caught up with the last change
+		assertEquals(getIdentityDao().pollSince(0L, 10).get(2).getSequenceNumber(), poller.getSequenceNumber());
+	}
+
+	@Test
+	public void testChangesAlreadyReturnedAreSkipped() throws SQLException {
+		final ChangePoller<Identity> poller = new ChangePoller<>(getIdentityDao(), 0L, 1, TimeUnit.MINUTES);
+
+		try (Connection inFlight = getConnection()) {
+			inFlight.setAutoCommit(false);
+			getIdentityDao().insertAll(inFlight, Arrays.asList(createIdentity("1")));
+			getIdentityDao().insertAll(Arrays.asList(createIdentity("2"), createIdentity("3"), createIdentity("4")));
+
+			// polls resume from below the gap, so they read past the changes already returned
+			assertEquals(Arrays.asList("2", "3"), toUuids(poller.poll(2)));
+			assertEquals(Arrays.asList("4"), toUuids(poller.poll(2)));
+			assertEquals(Collections.emptyList(), poller.poll(2));
+			inFlight.rollback();
+		}
+	}
+
+	@Test
+	public void testGapAbandonedAfterTimeout() throws SQLException {
+		final ChangePoller<Identity> poller = new ChangePoller<>(getIdentityDao(), 0L, 0, TimeUnit.MILLISECONDS);
+
+		try (Connection rolledBack = getConnection()) {
+			rolledBack.setAutoCommit(false);
+			getIdentityDao().insertAll(rolledBack, Arrays.asList(createIdentity("1")));
+			getIdentityDao().insert(createIdentity("2"));
+
+			final long sequenceNumber = poller.poll(10).get(0).getSequenceNumber();
+			rolledBack.rollback();
+
+			// the sequence number of the rolled-back insert is never filled, so the gap is abandoned
+			assertEquals(Collections.emptyList(), poller.poll(10));
+			assertEquals(sequenceNumber, poller.getSequenceNumber());
+		}
+	}
+
+	private static List<String> toUuids(final List<Change<Identity>> changes) {
+		return changes.stream().map(change -> change.getEntity().getUuid()).collect(Collectors.toList());
+	}
+}
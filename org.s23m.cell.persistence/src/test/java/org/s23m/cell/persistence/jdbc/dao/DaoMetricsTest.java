@@ -0,0 +1,104 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.metrics.DaoMetricsRegistry;
+import org.s23m.cell.persistence.dao.metrics.DaoOperation;
+import org.s23m.cell.persistence.dao.metrics.OperationSnapshot;
+import org.s23m.cell.persistence.model.Identity;
+
+public class DaoMetricsTest extends AbstractJdbcTest {
+
+	@Test
+	public void testOperationsAreRecorded() throws SQLException {
+		final DaoMetricsRegistry registry = new DaoMetricsRegistry();
+		final JdbcIdentityDao dao = new JdbcIdentityDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withMetrics(registry));
+
+		dao.insertAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+		dao.get("1");
+		dao.get("3");
+		dao.getAll(Arrays.asList("1", "2", "3"));
+		dao.pollSince(0L, 10);
+		try (Stream<Identity> rows = dao.scanAll()) {
+			// only the rows consumed before the stream is closed are counted
+			rows.findFirst();
+		}
+		try {
+			dao.insert(createIdentity("1"));
+			fail("Duplicate insert should fail");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+
+		final List<OperationSnapshot> snapshot = registry.snapshot();
+		assertEquals(6, snapshot.size());
+
+		final OperationSnapshot get = find(snapshot, DaoOperation.GET);
+		assertEquals("Identity", get.getEntityName());
+		assertEquals(2L, get.getCallCount());
+		assertEquals(0L, get.getErrorCount());
+		// only one of the lookups found a row
+		assertEquals(1L, get.getRowCount());
+		assertTrue(get.getP50Micros() <= get.getP99Micros());
+		assertTrue(get.getP99Micros() <= get.getMaxMicros());
+
+		assertEquals(2L, find(snapshot, DaoOperation.GET_ALL).getRowCount());
+		assertEquals(2L, find(snapshot, DaoOperation.INSERT_BATCH).getRowCount());
+		assertEquals(2L, find(snapshot, DaoOperation.POLL).getRowCount());
+
+		final OperationSnapshot scan = find(snapshot, DaoOperation.SCAN);
+		assertEquals(1L, scan.getCallCount());
+		assertEquals(1L, scan.getRowCount());
+
+		final OperationSnapshot insert = find(snapshot, DaoOperation.INSERT);
+		assertEquals(1L, insert.getCallCount());
+		assertEquals(1L, insert.getErrorCount());
+		assertEquals(0L, insert.getRowCount());
+
+		registry.reset();
+		assertTrue(registry.snapshot().isEmpty());
+	}
+
+	@Test
+	public void testPercentiles() {
+		final DaoMetricsRegistry registry = new DaoMetricsRegistry();
+		// 1..1000 microseconds
+		for (int i = 1; i <= 1000; i++) {
+			registry.record(Identity.class, DaoOperation.GET, 1, TimeUnit.MICROSECONDS.toNanos(i), false);
+		}
+
+		final OperationSnapshot snapshot = registry.snapshot().get(0);
+		assertEquals(1000L, snapshot.getCallCount());
+		assertEquals(1000L, snapshot.getMaxMicros());
+		assertEquals(500L, snapshot.getMeanMicros());
+		// buckets have a relative error of at most 1/16
+		assertWithin(500L, snapshot.getP50Micros());
+		assertWithin(900L, snapshot.getP90Micros());
+		assertWithin(990L, snapshot.getP99Micros());
+	}
+
+	private static void assertWithin(final long expected, final long actual) {
+		assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+	}
+
+	private static OperationSnapshot find(final List<OperationSnapshot> snapshot, final DaoOperation operation) {
+		for (final OperationSnapshot operationSnapshot : snapshot) {
+			if (operationSnapshot.getOperation() == operation) {
+				return operationSnapshot;
+			}
+		}
+		throw new AssertionError("No metrics recorded for " + operation);
+	}
+}
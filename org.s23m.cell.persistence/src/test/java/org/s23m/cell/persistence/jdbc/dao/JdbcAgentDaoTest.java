@@ -7,6 +7,8 @@ import static org.s23m.cell.persistence.jdbc.dao.TestData.createAgent;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -31,6 +33,20 @@ public class JdbcAgentDaoTest extends AbstractJdbcTest {
 		assertEquals(agent.hashCode(), retrieved.hashCode());
 	}
 
+	@Test
+	public void testFindByEmailAndAlias() throws SQLException {
+		for (final String uuid : new String[] {"1", "2"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		final Agent bob = createAgent("1");
+		final Agent alice = new Agent("2", "2", "alice@example.com", "secret", null, "Alice", "Jones", "Al");
+		getAgentDao().insertAll(Arrays.asList(bob, alice));
+
+		assertEquals(Collections.singletonList(alice), getAgentDao().findByEmail("alice@example.com"));
+		assertEquals(Collections.singletonList(bob), getAgentDao().findByAlias("Bob"));
+		assertTrue(getAgentDao().findByEmail("carol@example.com").isEmpty());
+	}
+
 	@Test
 	public void testMultipleInsertionAttemptsFail() throws SQLException {
 		final String uuid = UUID.randomUUID().toString();
@@ -8,6 +8,8 @@ import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -36,6 +38,26 @@ public class JdbcArrowDaoTest extends AbstractJdbcTest {
 		assertEquals(arrow.hashCode(), retrieved.hashCode());
 	}
 
+	@Test
+	public void testFindOutgoingAndIncoming() throws SQLException {
+		for (final String uuid : new String[] {"1", "2", "3", "4", "5"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+			getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+		}
+		final Arrow edgeFrom1To2 = new Arrow("3", "3", ProperClass.Edge, "1", "2");
+		final Arrow visibilityFrom1To2 = new Arrow("4", "4", ProperClass.Visibility, "1", "2");
+		final Arrow edgeFrom2To1 = new Arrow("5", "5", ProperClass.Edge, "2", "1");
+		getArrowDao().insertAll(Arrays.asList(edgeFrom1To2, visibilityFrom1To2, edgeFrom2To1));
+
+		assertEquals(Arrays.asList(edgeFrom1To2), getArrowDao().findOutgoing("1", ProperClass.Edge));
+		assertEquals(Arrays.asList(visibilityFrom1To2), getArrowDao().findOutgoing("1", ProperClass.Visibility));
+		assertEquals(Collections.emptyList(), getArrowDao().findOutgoing("1", ProperClass.SuperSetReference));
+
+		assertEquals(Arrays.asList(edgeFrom2To1), getArrowDao().findIncoming("1", ProperClass.Edge));
+		assertEquals(Arrays.asList(edgeFrom1To2), getArrowDao().findIncoming("2", ProperClass.Edge));
+		assertEquals(Collections.emptyList(), getArrowDao().findIncoming("3", ProperClass.Edge));
+	}
+
 	@Test
 	public void testMultipleInsertionAttemptsFail() throws SQLException {
 		final String uuid = UUID.randomUUID().toString();
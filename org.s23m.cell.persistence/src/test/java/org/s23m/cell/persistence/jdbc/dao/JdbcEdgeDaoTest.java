@@ -1,6 +1,8 @@
 package org.s23m.cell.persistence.jdbc.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createArrow;
@@ -9,9 +11,15 @@ import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.UUID;
 
 import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeDao;
+import org.s23m.cell.persistence.dao.jdbc.WeakStringPool;
 import org.s23m.cell.persistence.model.Arrow;
 import org.s23m.cell.persistence.model.Edge;
 import org.s23m.cell.persistence.model.Graph;
@@ -39,6 +47,83 @@ public class JdbcEdgeDaoTest extends AbstractJdbcTest {
 		assertEquals(edge.hashCode(), retrieved.hashCode());
 	}
 
+	@Test
+	public void testBatchInsertionAndRetrieval() throws SQLException {
+		final String uuid1 = "1";
+		final String uuid2 = "2";
+
+		getIdentityDao().insertAll(Arrays.asList(createIdentity(uuid1), createIdentity(uuid2)));
+		getGraphDao().insertAll(Arrays.asList(createGraph(uuid1, ProperClass.Vertex), createGraph(uuid2, ProperClass.Vertex)));
+		getArrowDao().insertAll(Arrays.asList(createArrow(uuid1, ProperClass.Edge), createArrow(uuid2, ProperClass.Edge)));
+
+		final Edge edge1 = createEdge(uuid1);
+		final Edge edge2 = createEdge(uuid2);
+		getEdgeDao().insertAll(Arrays.asList(edge1, edge2));
+
+		assertEquals(edge1, getEdgeDao().get(uuid1));
+		assertEquals(edge2, getEdgeDao().get(uuid2));
+
+		// an empty collection is a no-op
+		getEdgeDao().insertAll(Collections.<Edge>emptyList());
+	}
+
+	@Test
+	public void testUpdateChangedColumns() throws SQLException {
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+		getArrowDao().insert(createArrow("1", ProperClass.Edge));
+		final Edge original = createEdge("1");
+		getEdgeDao().insert(original);
+
+		assertFalse(getEdgeDao().update(original, original));
+
+		final Edge modified = new Edge("1", "2", "1", "1", "1", "1", "1", "1", "1", "1", "1");
+		assertTrue(getEdgeDao().update(original, modified));
+		assertEquals(modified, getEdgeDao().get("1"));
+	}
+
+	@Test
+	public void testFindByEdgeEnd() throws SQLException {
+		for (final String uuid : new String[] {"1", "2", "3", "4"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+			getGraphDao().insert(createGraph(uuid, ProperClass.EdgeEnd));
+		}
+		for (final String uuid : new String[] {"1", "2", "3"}) {
+			getArrowDao().insert(createArrow(uuid, ProperClass.Edge));
+		}
+		final Edge edgeFrom4 = new Edge("1", "1", "1", "1", "1", "1", "1", "1", "1", "4", "2");
+		final Edge edgeTo4 = new Edge("2", "2", "2", "2", "2", "2", "2", "2", "2", "2", "4");
+		// both ends are the same edge end
+		final Edge loop = createEdge("3");
+		getEdgeDao().insertAll(Arrays.asList(edgeFrom4, edgeTo4, loop));
+
+		assertEquals(Arrays.asList(edgeFrom4), getEdgeDao().findByFromEdgeEnd("4"));
+		assertEquals(Arrays.asList(edgeTo4), getEdgeDao().findByToEdgeEnd("4"));
+		assertEquals(new HashSet<>(Arrays.asList(edgeFrom4, edgeTo4)), new HashSet<>(getEdgeDao().findByEdgeEnd("4")));
+		assertEquals(Arrays.asList(loop), getEdgeDao().findByEdgeEnd("3"));
+		assertEquals(Collections.emptyList(), getEdgeDao().findByEdgeEnd("1"));
+	}
+
+	@Test
+	public void testRetrievalWithStringPool() throws SQLException {
+		final String uuid = "1";
+		getIdentityDao().insert(createIdentity(uuid));
+		getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+		getArrowDao().insert(createArrow(uuid, ProperClass.Visibility));
+		getEdgeDao().insert(createEdge(uuid));
+
+		final WeakStringPool pool = new WeakStringPool();
+		final JdbcEdgeDao dao = new JdbcEdgeDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withStringPool(pool));
+		final Edge first = dao.get(uuid);
+		final Edge second = dao.get(uuid);
+
+		assertEquals(createEdge(uuid), first);
+		// all references share a single instance, within and across rows
+		assertSame(first.getUrr(), first.getToEdgeEnd());
+		assertSame(first.getMinCardinalityValueFromEdgeEnd(), second.getIsContainerValueToEdgeEnd());
+		assertEquals(1, pool.size());
+	}
+
 	@Test
 	public void testMultipleInsertionAttemptsFail() throws SQLException {
 		final String uuid = UUID.randomUUID().toString();
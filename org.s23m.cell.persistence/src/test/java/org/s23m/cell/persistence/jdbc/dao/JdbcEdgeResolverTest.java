@@ -0,0 +1,83 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.EdgeResolver;
+import org.s23m.cell.persistence.dao.ResolvedEdge;
+import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeResolver;
+import org.s23m.cell.persistence.dao.jdbc.LookupExecutor;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.ProperClass;
+
+public class JdbcEdgeResolverTest extends AbstractJdbcTest {
+
+	@Test
+	public void testResolveDirectly() throws SQLException {
+		createEdge();
+
+		assertResolved(createResolver(LookupExecutor.DIRECT));
+	}
+
+	@Test
+	public void testResolveWithConcurrentLookups() throws SQLException {
+		createEdge();
+
+		try (LookupExecutor executor = new LookupExecutor(4)) {
+			assertEquals(4, executor.getMaxConcurrency());
+			assertResolved(createResolver(executor));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testJoinRethrowsLookupException() {
+		try (LookupExecutor executor = new LookupExecutor(1)) {
+			final CompletableFuture<Object> lookup = executor.submit(() -> {
+				throw new IllegalStateException("lookup failed");
+			});
+			LookupExecutor.join(lookup);
+		}
+	}
+
+	private EdgeResolver createResolver(final LookupExecutor executor) {
+		return new JdbcEdgeResolver(getIdentityDao(), getGraphDao(), getArrowDao(), getEdgeDao(), executor);
+	}
+
+	private static void assertResolved(final EdgeResolver resolver) {
+		final ResolvedEdge resolved = resolver.resolve("5");
+		assertEquals("5", resolved.getEdge().getUrr());
+		assertEquals("5", resolved.getArrow().getUrr());
+		assertEquals("3", resolved.getFromEdgeEnd().getUrr());
+		assertEquals("4", resolved.getToEdgeEnd().getUrr());
+		assertEquals(new HashSet<>(Arrays.asList("1", "2", "3", "4")), resolved.getGraphs().keySet());
+		assertEquals(new HashSet<>(Arrays.asList("5", "6")), resolved.getIdentities().keySet());
+
+		assertNull(resolver.resolve("7"));
+	}
+
+	/*
+	 * edge 5 connects graphs 1 and 2, with ends 3 and 4, category 5, and all edge end values 6
+	 */
+	private void createEdge() {
+		for (final String uuid : new String[] {"1", "2", "3", "4", "5", "6"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insertAll(Arrays.asList(
+				createGraph("1", ProperClass.Vertex),
+				createGraph("2", ProperClass.Vertex),
+				createGraph("3", ProperClass.EdgeEnd),
+				createGraph("4", ProperClass.EdgeEnd),
+				createGraph("5", ProperClass.Edge)));
+		getArrowDao().insert(new Arrow("5", "5", ProperClass.Edge, "1", "2"));
+		getEdgeDao().insert(new Edge("5", "6", "6", "6", "6", "6", "6", "6", "6", "3", "4"));
+	}
+}
@@ -1,15 +1,27 @@
 package org.s23m.cell.persistence.jdbc.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
 import org.s23m.cell.persistence.model.Graph;
 import org.s23m.cell.persistence.model.Identity;
 import org.s23m.cell.persistence.model.ProperClass;
@@ -30,6 +42,122 @@ public class JdbcGraphDaoTest extends AbstractJdbcTest {
 		assertEquals(graph.hashCode(), retrieved.hashCode());
 	}
 
+	@Test
+	public void testBulkRetrieval() throws SQLException {
+		final String[] uuids = {"1", "2", "3", "4", "5"};
+		for (final String uuid : uuids) {
+			getIdentityDao().insert(createIdentity(uuid));
+			getGraphDao().insert(createGraph(uuid, ProperClass.Vertex));
+		}
+
+		// use a small batch size so that several queries are sent
+		final JdbcGraphDao dao = new JdbcGraphDao(getQueryRunner(), 2);
+		final Map<String, Graph> retrieved = dao.getAll(Arrays.asList("1", "3", "5", "3", "6"));
+
+		assertEquals(3, retrieved.size());
+		assertEquals(createGraph("1", ProperClass.Vertex), retrieved.get("1"));
+		assertEquals(createGraph("3", ProperClass.Vertex), retrieved.get("3"));
+		assertEquals(createGraph("5", ProperClass.Vertex), retrieved.get("5"));
+		assertFalse(retrieved.containsKey("6"));
+	}
+
+	@Test
+	public void testContentAsXmlIsLoadedLazily() throws SQLException {
+		getIdentityDao().insert(createIdentity("1"));
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+		final JdbcGraphDao dao = new JdbcGraphDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true));
+
+		final Graph retrieved = dao.get("1");
+		assertFalse(retrieved.getContentAsXmlValue().isLoaded());
+		assertTrue(retrieved.toString().contains("contentAsXml = (not loaded)"));
+
+		assertEquals("1", retrieved.getContentAsXml());
+		assertTrue(retrieved.getContentAsXmlValue().isLoaded());
+
+		final Graph bulkRetrieved = dao.getAll(Collections.singletonList("1")).get("1");
+		assertFalse(bulkRetrieved.getContentAsXmlValue().isLoaded());
+		assertEquals(createGraph("1", ProperClass.Vertex), bulkRetrieved);
+
+		final Graph subtreeRoot = dao.loadSubtree("1", 0).get(0);
+		assertFalse(subtreeRoot.getContentAsXmlValue().isLoaded());
+		assertEquals("1", subtreeRoot.getContentAsXml());
+
+		// streams retrieve whole rows, so values are not loaded while the stream holds a connection
+		try (Stream<Graph> graphs = dao.streamByContainer("1")) {
+			assertTrue(graphs.allMatch(graph -> graph.getContentAsXmlValue().isLoaded()));
+		}
+	}
+
+	@Test
+	public void testContentAsXmlIsRetrievedEagerly() throws SQLException {
+		getIdentityDao().insert(createIdentity("1"));
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+
+		// large columns are retrieved with the rest of the row by default
+		final Graph retrieved = getGraphDao().get("1");
+		assertTrue(retrieved.getContentAsXmlValue().isLoaded());
+		assertEquals(createGraph("1", ProperClass.Vertex), retrieved);
+
+		// scans always retrieve whole rows
+		try (Stream<Graph> graphs = getGraphDao().scanAll()) {
+			assertTrue(graphs.allMatch(graph -> graph.getContentAsXmlValue().isLoaded()));
+		}
+	}
+
+	@Test
+	public void testOpenContentAsXml() throws SQLException, IOException {
+		final StringBuilder content = new StringBuilder("<graph>");
+		for (int i = 0; i < 10000; i++) {
+			content.append("<vertex id=\"").append(i).append("\"/>");
+		}
+		content.append("</graph>");
+		getIdentityDao().insert(createIdentity("1"));
+		getIdentityDao().insert(createIdentity("2"));
+		getGraphDao().insert(withContainer(createGraph("1", ProperClass.Vertex), "1", content.toString()));
+		getGraphDao().insert(withContainer(createGraph("2", ProperClass.Vertex), "2", null));
+
+		try (Reader reader = getGraphDao().openContentAsXml("1")) {
+			assertEquals(content.toString(), read(reader));
+		}
+		try (Reader reader = getGraphDao().get("1").getContentAsXmlValue().openReader()) {
+			assertEquals(content.toString(), read(reader));
+		}
+		assertNull(getGraphDao().openContentAsXml("2"));
+		assertNull(getGraphDao().get("2").getContentAsXml());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testLoadContentAsXmlOfDeletedGraph() throws SQLException {
+		getIdentityDao().insert(createIdentity("1"));
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+
+		final JdbcGraphDao dao = new JdbcGraphDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true));
+		final Graph retrieved = dao.get("1");
+		getQueryRunner().update("DELETE FROM Graph WHERE urr=?", "1");
+		retrieved.getContentAsXml();
+	}
+
+	@Test
+	public void testStreamByContainer() throws SQLException {
+		final String[] uuids = {"1", "2", "3", "4"};
+		for (final String uuid : uuids) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+		getGraphDao().insert(createGraph("2", ProperClass.Vertex));
+		getGraphDao().insert(new Graph("3", "3", "3", "1", "3", ProperClass.Vertex, "3", "3"));
+		getGraphDao().insert(new Graph("4", "4", "4", "1", "4", ProperClass.Vertex, "4", "4"));
+
+		try (Stream<Graph> graphs = getGraphDao().streamByContainer("1")) {
+			final List<String> urrs = graphs.map(Graph::getUrr).sorted().collect(Collectors.toList());
+			assertEquals(Arrays.asList("1", "3", "4"), urrs);
+		}
+
+		try (Stream<Graph> graphs = getGraphDao().streamByContainer("5")) {
+			assertEquals(0L, graphs.count());
+		}
+	}
+
 	@Test
 	public void testMultipleInsertionAttemptsFail() throws SQLException {
 		final String uuid = UUID.randomUUID().toString();
@@ -74,6 +202,75 @@ public class JdbcGraphDaoTest extends AbstractJdbcTest {
 		assertEquals(uuid2, retrieved2.getContainer());
 	}
 
+	@Test
+	public void testUpdateChangedColumns() throws SQLException {
+		for (final String uuid : new String[] {"1", "2"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+		final Graph original = getGraphDao().get("1");
+		final long sequenceNumber = getGraphDao().pollSince(0L, 10).get(0).getSequenceNumber();
+
+		// unchanged rows are not written, so do not appear in the change feed
+		assertFalse(getGraphDao().update(original, original));
+		assertTrue(getGraphDao().pollSince(sequenceNumber, 10).isEmpty());
+
+		// meanwhile, the content is changed by another writer
+		final Graph newContent = withContainer(original, "1", "<new/>");
+		getGraphDao().update(newContent);
+
+		// only the container is written, so the new content is retained
+		assertTrue(getGraphDao().update(original, withContainer(original, "2", original.getContentAsXml())));
+		assertEquals(withContainer(original, "2", "<new/>"), getGraphDao().get("1"));
+		assertEquals(1, getGraphDao().pollSince(sequenceNumber, 10).size());
+	}
+
+	@Test
+	public void testUpdateAllChangedColumns() throws SQLException {
+		for (final String uuid : new String[] {"1", "2", "3", "4"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insertAll(Arrays.asList(createGraph("1", ProperClass.Vertex), createGraph("2", ProperClass.Vertex),
+				createGraph("3", ProperClass.Vertex)));
+		final Map<String, Graph> originals = getGraphDao().getAll(Arrays.asList("1", "2", "3"));
+
+		final Graph changedContainer = withContainer(originals.get("1"), "4", "1");
+		final Graph changedContent = withContainer(originals.get("2"), "2", "<changed/>");
+		final int written = getGraphDao().updateAll(originals, Arrays.asList(changedContainer, changedContent, originals.get("3")));
+
+		assertEquals(2, written);
+		assertEquals(changedContainer, getGraphDao().get("1"));
+		assertEquals(changedContent, getGraphDao().get("2"));
+		assertEquals(originals.get("3"), getGraphDao().get("3"));
+	}
+
+	@Test
+	public void testUpdateDoesNotLoadUnchangedContent() throws SQLException {
+		for (final String uuid : new String[] {"1", "2"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+		final JdbcGraphDao dao = new JdbcGraphDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true));
+
+		// the same content instance
+		final Graph original = dao.get("1");
+		assertTrue(dao.update(original, withContainerOnly(original, "2")));
+		assertFalse(original.getContentAsXmlValue().isLoaded());
+
+		// content which is loaded on neither side
+		final Graph retrieved = dao.get("1");
+		final Graph current = dao.get("1");
+		assertTrue(dao.update(retrieved, withContainerOnly(current, "1")));
+		assertFalse(retrieved.getContentAsXmlValue().isLoaded());
+		assertFalse(current.getContentAsXmlValue().isLoaded());
+		assertEquals(withContainer(original, "1", "1"), dao.get("1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUpdateWithDifferentOriginal() throws SQLException {
+		getGraphDao().update(createGraph("1", ProperClass.Vertex), createGraph("2", ProperClass.Vertex));
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testAttemptToUpdateNonExistentGraph() throws SQLException {
 		final Graph graph1 = createGraph("1", ProperClass.Vertex);
@@ -106,4 +303,25 @@ public class JdbcGraphDaoTest extends AbstractJdbcTest {
 			assertTrue(message.startsWith(expectedPrefix));
 		}
 	}
+
+	private static String read(final Reader reader) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		final char[] buffer = new char[4096];
+		int count;
+		while ((count = reader.read(buffer)) != -1) {
+			builder.append(buffer, 0, count);
+		}
+		return builder.toString();
+	}
+
+	private static Graph withContainer(final Graph graph, final String container, final String contentAsXml) {
+		return new Graph(graph.getUrr(), graph.getUuid(), graph.getCategory(), container, graph.getIsAbstractValue(),
+				graph.getProperClass(), graph.getMaxCardinalityValueInContainer(), contentAsXml);
+	}
+
+	private static Graph withContainerOnly(final Graph graph, final String container) {
+		// shares the contentAsXml instance, whether or not it is loaded
+		return Graph.withContentAsXmlValue(graph.getUrr(), graph.getUuid(), graph.getCategory(), container, graph.getIsAbstractValue(),
+				graph.getProperClass(), graph.getMaxCardinalityValueInContainer(), graph.getContentAsXmlValue());
+	}
 }
@@ -1,16 +1,35 @@
 package org.s23m.cell.persistence.jdbc.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.ChangePoller;
+import org.s23m.cell.persistence.dao.Page;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
 import org.s23m.cell.persistence.model.Identity;
 
 public class JdbcIdentityDaoTest extends AbstractJdbcTest {
@@ -27,6 +46,173 @@ public class JdbcIdentityDaoTest extends AbstractJdbcTest {
 		assertEquals(identity.hashCode(), retrieved.hashCode());
 	}
 
+	@Test
+	public void testScanAll() throws SQLException {
+		final List<String> uuids = Arrays.asList("1", "2", "3", "4", "5");
+		for (final String uuid : uuids) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+
+		// use a small fetch size so that several round trips are made
+		final JdbcIdentityDao dao = new JdbcIdentityDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withFetchSize(2));
+		try (Stream<Identity> identities = dao.scanAll()) {
+			final List<String> scanned = identities.map(Identity::getUuid).sorted().collect(Collectors.toList());
+			assertEquals(uuids, scanned);
+		}
+
+		// the connection has been released, so the table can still be written to
+		getIdentityDao().insert(createIdentity("6"));
+		try (Stream<Identity> identities = dao.scanAll()) {
+			assertEquals(6L, identities.count());
+		}
+	}
+
+	@Test
+	public void testPaging() throws SQLException {
+		final List<String> uuids = Arrays.asList("5", "4", "3", "2", "1");
+		for (final String uuid : uuids) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+
+		// pages follow insertion order
+		final Page<Identity> page1 = getIdentityDao().getPage(PageCursor.START, 2);
+		assertEquals(Arrays.asList("5", "4"), toUuids(page1.getEntities()));
+		assertFalse(page1.isLast());
+
+		// resume from a token, as a client would
+		final PageCursor resumed = PageCursor.fromToken(page1.getNextCursor().toToken());
+		assertEquals(page1.getNextCursor(), resumed);
+
+		final Page<Identity> page2 = getIdentityDao().getPage(resumed, 2);
+		assertEquals(Arrays.asList("3", "2"), toUuids(page2.getEntities()));
+		assertFalse(page2.isLast());
+
+		final Page<Identity> page3 = getIdentityDao().getPage(page2.getNextCursor(), 2);
+		assertEquals(Arrays.asList("1"), toUuids(page3.getEntities()));
+		assertTrue(page3.isLast());
+
+		// the cursor of the last page picks up rows inserted later
+		final Page<Identity> empty = getIdentityDao().getPage(page3.getNextCursor(), 2);
+		assertTrue(empty.getEntities().isEmpty());
+		assertTrue(empty.isLast());
+		assertEquals(page3.getNextCursor(), empty.getNextCursor());
+
+		getIdentityDao().insert(createIdentity("6"));
+		final Page<Identity> page4 = getIdentityDao().getPage(page3.getNextCursor(), 2);
+		assertEquals(Arrays.asList("6"), toUuids(page4.getEntities()));
+		assertTrue(page4.isLast());
+	}
+
+	@Test
+	public void testChangeFeed() throws SQLException {
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2"), createIdentity("3")));
+
+		final List<Change<Identity>> inserted = getIdentityDao().pollSince(0L, 10);
+		assertEquals(Arrays.asList("1", "2", "3"), toUuids(inserted));
+		final long lastApplied = inserted.get(2).getSequenceNumber();
+		assertTrue(getIdentityDao().pollSince(lastApplied, 10).isEmpty());
+
+		// updates are assigned new sequence numbers, whether made individually or in batches
+		assertTrue(getIdentityDao().isReassigningSequenceNumbers());
+		final Identity modified = new Identity("1", "changed name", "pluralName", "codeName", "pluralCodeName", "payload");
+		getIdentityDao().update(modified);
+		getIdentityDao().updateAll(Arrays.asList(createIdentity("3")));
+
+		final List<Change<Identity>> updated = getIdentityDao().pollSince(lastApplied, 10);
+		assertEquals(Arrays.asList("1", "3"), toUuids(updated));
+		assertEquals(modified, updated.get(0).getEntity());
+		assertTrue(updated.get(0).getSequenceNumber() > lastApplied);
+
+		// the maximum is respected
+		assertEquals(Arrays.asList("2"), toUuids(getIdentityDao().pollSince(0L, 1)));
+	}
+
+	@Test
+	public void testChangeFeedRefusedWithoutReassignedSequenceNumbers() {
+		// the MySQL dialect cannot reassign sequence numbers on update, so polling would miss updates
+		final JdbcIdentityDao dao = new JdbcIdentityDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withDialect(SqlDialect.MYSQL));
+		assertFalse(dao.isReassigningSequenceNumbers());
+		try {
+			dao.pollSince(0L, 10);
+			fail("Polling should be refused");
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			new ChangePoller<>(dao, 0L, 1, TimeUnit.MINUTES);
+			fail("Polling should be refused");
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testUpsert() throws SQLException {
+		final Identity original = createIdentity("1");
+		getIdentityDao().upsert(original);
+		assertEquals(original, getIdentityDao().get("1"));
+		final long inserted = getIdentityDao().pollSince(0L, 10).get(0).getSequenceNumber();
+
+		// the existing row is updated, and appears in the change feed again
+		final Identity modified = new Identity("1", "changed name", "pluralName", "codeName", "pluralCodeName", "payload");
+		getIdentityDao().upsert(modified);
+		assertEquals(modified, getIdentityDao().get("1"));
+
+		final List<Change<Identity>> changes = getIdentityDao().pollSince(inserted, 10);
+		assertEquals(Arrays.asList("1"), toUuids(changes));
+		assertEquals(modified, changes.get(0).getEntity());
+	}
+
+	@Test
+	public void testUpsertAll() throws SQLException {
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+
+		final Identity modified = new Identity("2", "changed name", "pluralName", "codeName", "pluralCodeName", "payload");
+		getIdentityDao().upsertAll(Arrays.asList(modified, createIdentity("3")));
+
+		assertEquals(createIdentity("1"), getIdentityDao().get("1"));
+		assertEquals(modified, getIdentityDao().get("2"));
+		assertEquals(createIdentity("3"), getIdentityDao().get("3"));
+		assertEquals(3L, getIdentityDao().scanAll().count());
+	}
+
+	@Test
+	public void testPayloadIsLoadedLazily() throws SQLException {
+		getIdentityDao().insert(createIdentity("1"));
+
+		final JdbcIdentityDao lazyDao = new JdbcIdentityDao(getQueryRunner(), JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true));
+		final Identity retrieved = lazyDao.get("1");
+		assertFalse(retrieved.getPayloadValue().isLoaded());
+
+		// the payload reflects the row when it is first accessed
+		getIdentityDao().update(new Identity("1", "name", "pluralName", "codeName", "pluralCodeName", "changed payload"));
+		assertEquals("changed payload", retrieved.getPayload());
+		assertTrue(retrieved.getPayloadValue().isLoaded());
+
+		// large columns are retrieved with the rest of the row by default
+		assertTrue(getIdentityDao().get("1").getPayloadValue().isLoaded());
+		assertTrue(getIdentityDao().getAll(Arrays.asList("1")).get("1").getPayloadValue().isLoaded());
+	}
+
+	@Test
+	public void testOpenPayload() throws SQLException, IOException {
+		getIdentityDao().insert(createIdentity("1"));
+		getIdentityDao().insert(new Identity("2", "name", "pluralName", "codeName", "pluralCodeName", null));
+
+		try (Reader reader = getIdentityDao().openPayload("1")) {
+			final char[] buffer = new char[16];
+			assertEquals("payload", new String(buffer, 0, reader.read(buffer)));
+			assertEquals(-1, reader.read(buffer));
+		}
+		assertNull(getIdentityDao().openPayload("2"));
+		assertNull(getIdentityDao().get("2").getPayloadValue().openReader());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPageCursorToken() {
+		PageCursor.fromToken("not a token!");
+	}
+
 	@Test
 	public void testMultipleInsertionAttemptsFail() throws SQLException {
 		final String uuid = UUID.randomUUID().toString();
@@ -63,6 +249,67 @@ public class JdbcIdentityDaoTest extends AbstractJdbcTest {
 		assertEquals(modified.getName(), retrieved2.getName());
 	}
 
+	@Test
+	public void testBatchInsertionAndRetrieval() throws SQLException {
+		// use a small batch size so that several batches are sent
+		final JdbcIdentityDao dao = new JdbcIdentityDao(getQueryRunner(), 2);
+
+		final List<Identity> identities = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			identities.add(createIdentity(UUID.randomUUID().toString()));
+		}
+		dao.insertAll(identities);
+
+		for (final Identity identity : identities) {
+			assertEquals(identity, dao.get(identity.getUuid()));
+		}
+
+		final List<String> uuids = identities.stream().map(Identity::getUuid).collect(Collectors.toList());
+		assertEquals(uuids, new ArrayList<>(dao.getAll(uuids).keySet()));
+	}
+
+	@Test
+	public void testBatchUpdate() throws SQLException {
+		final Identity identity1 = createIdentity("1");
+		final Identity identity2 = createIdentity("2");
+		getIdentityDao().insertAll(Arrays.asList(identity1, identity2));
+
+		final Identity modified1 = new Identity("1", "changed name 1", identity1.getPluralName(),
+				identity1.getCodeName(), identity1.getPluralCodeName(), identity1.getPayload());
+		final Identity modified2 = new Identity("2", "changed name 2", identity2.getPluralName(),
+				identity2.getCodeName(), identity2.getPluralCodeName(), identity2.getPayload());
+		getIdentityDao().updateAll(Arrays.asList(modified1, modified2));
+
+		assertEquals(modified1, getIdentityDao().get("1"));
+		assertEquals(modified2, getIdentityDao().get("2"));
+	}
+
+	@Test
+	public void testBatchInsertionWithinTransaction() throws SQLException {
+		final Identity identity1 = createIdentity("1");
+		final Identity identity2 = createIdentity("2");
+
+		final Connection connection = getConnection();
+		connection.setAutoCommit(false);
+		getIdentityDao().insertAll(connection, Arrays.asList(identity1, identity2));
+		connection.rollback();
+
+		assertNull(getIdentityDao().get("1"));
+
+		getIdentityDao().insertAll(connection, Arrays.asList(identity1, identity2));
+		connection.commit();
+		connection.close();
+
+		assertEquals(identity1, getIdentityDao().get("1"));
+		assertEquals(identity2, getIdentityDao().get("2"));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testAttemptToBatchUpdateNonExistentIdentity() throws SQLException {
+		getIdentityDao().insert(createIdentity("1"));
+		getIdentityDao().updateAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testAttemptToUpdateNonExistentIdentity() throws SQLException {
 		final Identity identity1 = createIdentity("1");
@@ -85,4 +332,12 @@ public class JdbcIdentityDaoTest extends AbstractJdbcTest {
 			assertEquals("Identity name is invalid (exceeds length limit of 100)", e.getMessage());
 		}
 	}
+
+	private static List<String> toUuids(final List<Identity> identities) {
+		return identities.stream().map(Identity::getUuid).collect(Collectors.toList());
+	}
+
+	private static List<String> toUuids(final Collection<Change<Identity>> changes) {
+		return changes.stream().map(change -> change.getEntity().getUuid()).collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,111 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createAgent;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createArrow;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createEdge;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.PersistenceSession;
+import org.s23m.cell.persistence.dao.jdbc.JdbcPersistenceSession;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+public class JdbcPersistenceSessionTest extends AbstractJdbcTest {
+
+	@Test
+	public void testFlushRespectsForeignKeyOrder() throws SQLException {
+		final String uuid = "1";
+		final PersistenceSession session = createSession();
+
+		// schedule in reverse dependency order
+		final Edge edge = createEdge(uuid);
+		session.insert(edge);
+		session.insert(createArrow(uuid, ProperClass.Edge));
+		session.insert(createGraph(uuid, ProperClass.Vertex));
+		session.insert(createAgent(uuid));
+		session.insert(createIdentity(uuid));
+		assertEquals(5, session.getPendingCount());
+
+		session.flush();
+		assertEquals(0, session.getPendingCount());
+
+		assertEquals(edge, getEdgeDao().get(uuid));
+		assertEquals(createAgent(uuid), getAgentDao().get(uuid));
+	}
+
+	@Test
+	public void testRepeatedUpdatesAreCoalesced() throws SQLException {
+		final PersistenceSession session = createSession();
+		session.insert(createIdentity("1"));
+		session.insert(createIdentity("2"));
+		session.insert(createIdentity("3"));
+		session.insert(createGraph("1", ProperClass.Vertex));
+		session.flush();
+
+		final Graph graph = getGraphDao().get("1");
+		session.update(withContainer(graph, "2"));
+		session.update(withContainer(graph, "3"));
+		assertEquals(1, session.getPendingCount());
+
+		session.flush();
+		assertEquals("3", getGraphDao().get("1").getContainer());
+	}
+
+	@Test
+	public void testUpdateOfPendingInsertIsInserted() throws SQLException {
+		final PersistenceSession session = createSession();
+		final Identity identity = createIdentity("1");
+		final Identity modified = new Identity("1", "changed name", identity.getPluralName(),
+				identity.getCodeName(), identity.getPluralCodeName(), identity.getPayload());
+
+		session.insert(identity);
+		session.update(modified);
+		assertEquals(1, session.getPendingCount());
+
+		session.flush();
+		assertEquals(modified, getIdentityDao().get("1"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDuplicateInsertIsRejected() {
+		final PersistenceSession session = createSession();
+		session.insert(createIdentity("1"));
+		session.insert(createIdentity("1"));
+	}
+
+	@Test
+	public void testFailedFlushWritesNothing() throws SQLException {
+		final PersistenceSession session = createSession();
+		session.insert(createIdentity("1"));
+		// violates the foreign key constraints, as identity "2" does not exist
+		session.insert(createGraph("2", ProperClass.Vertex));
+
+		try {
+			session.flush();
+			fail("Foreign key violation should have thrown an exception");
+		} catch (final RuntimeException e) {
+			// expected
+		}
+
+		assertNull(getIdentityDao().get("1"));
+		assertEquals(2, session.getPendingCount());
+	}
+
+	private PersistenceSession createSession() {
+		return new JdbcPersistenceSession(getDataSource(), getIdentityDao(), getGraphDao(), getArrowDao(), getEdgeDao(), getAgentDao());
+	}
+
+	private static Graph withContainer(final Graph graph, final String container) {
+		return new Graph(graph.getUrr(), graph.getUuid(), graph.getCategory(), container, graph.getIsAbstractValue(),
+				graph.getProperClass(), graph.getMaxCardinalityValueInContainer(), graph.getContentAsXml());
+	}
+}
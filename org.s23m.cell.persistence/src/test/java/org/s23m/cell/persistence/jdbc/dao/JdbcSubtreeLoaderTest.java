@@ -0,0 +1,120 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.Subtree;
+import org.s23m.cell.persistence.dao.SubtreeLoader;
+import org.s23m.cell.persistence.dao.jdbc.JdbcSubtreeLoader;
+import org.s23m.cell.persistence.dao.jdbc.LookupExecutor;
+import org.s23m.cell.persistence.model.Arrow;
+import org.s23m.cell.persistence.model.Edge;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.ProperClass;
+
+public class JdbcSubtreeLoaderTest extends AbstractJdbcTest {
+
+	@Test
+	public void testLoadSubtreeOfGraphs() throws SQLException {
+		createTree();
+
+		assertEquals(Arrays.asList("1", "2", "6", "3", "4"), toUrrs(getGraphDao().loadSubtree("1", 10)));
+		assertEquals(Arrays.asList("1", "2", "6"), toUrrs(getGraphDao().loadSubtree("1", 1)));
+		assertEquals(Arrays.asList("1"), toUrrs(getGraphDao().loadSubtree("1", 0)));
+		assertEquals(Arrays.asList("3", "4"), toUrrs(getGraphDao().loadSubtree("3", 10)));
+		assertTrue(getGraphDao().loadSubtree("8", 10).isEmpty());
+	}
+
+	@Test
+	public void testLoadSubtreeWithCycle() throws SQLException {
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+		// each graph contains the other
+		getGraphDao().insertAll(Arrays.asList(createContainedGraph("1", "2", ProperClass.Vertex),
+				createContainedGraph("2", "1", ProperClass.Vertex)));
+
+		assertEquals(Arrays.asList("1", "2"), toUrrs(getGraphDao().loadSubtree("1", 100)));
+		assertEquals(Arrays.asList("2", "1"), toUrrs(getGraphDao().loadSubtree("2", 100)));
+	}
+
+	@Test
+	public void testLoadSubtreeWithSharedUuid() throws SQLException {
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2"), createIdentity("3")));
+		// "1" and "2" have the same UUID, so "3" is reached from both of them
+		getGraphDao().insertAll(Arrays.asList(createContainedGraph("1", "1", ProperClass.Vertex),
+				new Graph("2", "1", "2", "1", "2", ProperClass.Vertex, "2", "2"),
+				createContainedGraph("3", "1", ProperClass.Vertex)));
+
+		assertEquals(Arrays.asList("1", "2", "3"), toUrrs(getGraphDao().loadSubtree("1", 10)));
+	}
+
+	@Test
+	public void testLoadSubtreeWithAssociatedRows() throws SQLException {
+		createTree();
+
+		assertSubtree(new JdbcSubtreeLoader(getIdentityDao(), getGraphDao(), getArrowDao(), getEdgeDao()));
+	}
+
+	@Test
+	public void testLoadSubtreeWithConcurrentLookups() throws SQLException {
+		createTree();
+
+		try (LookupExecutor executor = new LookupExecutor(4)) {
+			assertSubtree(new JdbcSubtreeLoader(getIdentityDao(), getGraphDao(), getArrowDao(), getEdgeDao(), executor));
+		}
+	}
+
+	private static void assertSubtree(final SubtreeLoader loader) {
+		final Subtree subtree = loader.load("1", 10);
+
+		assertEquals("1", subtree.getRoot().getUrr());
+		assertEquals(Arrays.asList("1", "2", "6", "3", "4"), new ArrayList<>(subtree.getGraphs().keySet()));
+		assertEquals(new HashSet<>(Arrays.asList("6")), subtree.getArrows().keySet());
+		assertEquals(new HashSet<>(Arrays.asList("6")), subtree.getEdges().keySet());
+		// identity 7 is only referred to by the edge, and graph 5 lies outside the subtree
+		assertEquals(new HashSet<>(Arrays.asList("1", "2", "3", "4", "6", "7")), subtree.getIdentities().keySet());
+
+		final Subtree missing = loader.load("8", 10);
+		assertNull(missing.getRoot());
+		assertTrue(missing.getIdentities().isEmpty());
+	}
+
+	/*
+	 * 1 contains 2 and edge 6 (between 2 and 3), 2 contains 3, 3 contains 4, and 5 contains itself
+	 */
+	private void createTree() {
+		for (final String uuid : new String[] {"1", "2", "3", "4", "5", "6", "7"}) {
+			getIdentityDao().insert(createIdentity(uuid));
+		}
+		getGraphDao().insertAll(Arrays.asList(
+				createGraph("1", ProperClass.Vertex),
+				createContainedGraph("2", "1", ProperClass.Vertex),
+				createContainedGraph("3", "2", ProperClass.Vertex),
+				createContainedGraph("4", "3", ProperClass.Vertex),
+				createGraph("5", ProperClass.Vertex),
+				createContainedGraph("6", "1", ProperClass.Edge)));
+		getArrowDao().insert(new Arrow("6", "6", ProperClass.Edge, "2", "3"));
+		getEdgeDao().insert(new Edge("6", "7", "7", "7", "7", "7", "7", "7", "7", "2", "3"));
+	}
+
+	private static Graph createContainedGraph(final String uuid, final String container, final ProperClass properClass) {
+		return new Graph(uuid, uuid, uuid, container, uuid, properClass, uuid, uuid);
+	}
+
+	private static List<String> toUrrs(final List<Graph> graphs) {
+		final List<String> result = new ArrayList<>();
+		for (final Graph graph : graphs) {
+			result.add(graph.getUrr());
+		}
+		return result;
+	}
+}
@@ -1,19 +1,20 @@
 package org.s23m.cell.persistence.jdbc.dao;
 
-import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Scanner;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.dbutils.QueryRunner;
+import org.s23m.cell.persistence.api.jdbc.JdbcDaoFactory;
 import org.s23m.cell.persistence.dao.jdbc.JdbcAgentDao;
 import org.s23m.cell.persistence.dao.jdbc.JdbcArrowDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
 import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeDao;
 import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
 import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.SchemaScripts;
 import org.s23m.cell.persistence.model.Agent;
 import org.s23m.cell.persistence.model.Arrow;
 import org.s23m.cell.persistence.model.Edge;
@@ -31,34 +32,33 @@ public class JdbcTestSupport {
 
 	private HikariDataSource dataSource;
 
-	private QueryRunner queryRunner;
-
-	private JdbcGraphDao graphDao;
-
-	private JdbcIdentityDao identityDao;
-
-	private JdbcArrowDao arrowDao;
-
-	private JdbcEdgeDao edgeDao;
+	/**
+	 * Statements slower than this are logged
+	 */
+	private static final long SLOW_STATEMENT_THRESHOLD_MILLIS = 1000;
 
-	private JdbcAgentDao agentDao;
+	private JdbcDaoFactory daoFactory;
 
 	public void initialiseTestDatabase(final String databaseName) throws SQLException {
+		initialiseTestDatabase(databaseName, JdbcDaoConfiguration.DEFAULT);
+	}
+
+	/**
+	 * Initialises the database using an alternative DAO configuration, whose key encoding and large column codec
+	 * determine the column types of the tables
+	 *
+	 * @param databaseName
+	 * @param configuration
+	 */
+	public void initialiseTestDatabase(final String databaseName, final JdbcDaoConfiguration configuration) throws SQLException {
 		dataSource = JdbcTestSupport.createDatasource(databaseName);
 
 		// clean up any previous state
 		dropTables();
 
-		executeDDL(dataSource, "sql/common_ddl.sql");
-		executeDDL(dataSource, "sql/h2_ddl.sql");
-
-		queryRunner = new QueryRunner(dataSource);
+		SchemaScripts.createSchema(dataSource, configuration);
 
-		graphDao = new JdbcGraphDao(queryRunner);
-		identityDao = new JdbcIdentityDao(queryRunner);
-		arrowDao = new JdbcArrowDao(queryRunner);
-		edgeDao = new JdbcEdgeDao(queryRunner);
-		agentDao = new JdbcAgentDao(queryRunner);
+		daoFactory = new JdbcDaoFactory(dataSource, configuration, SLOW_STATEMENT_THRESHOLD_MILLIS);
 	}
 
 	public void destroyTestDatabase() throws SQLException {
@@ -66,24 +66,32 @@ public class JdbcTestSupport {
 		dataSource.close();
 	}
 
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	public QueryRunner getQueryRunner() {
+		return daoFactory.getQueryRunner();
+	}
+
 	public JdbcGraphDao getGraphDao() {
-		return graphDao;
+		return daoFactory.getGraphDao();
 	}
 
 	public JdbcIdentityDao getIdentityDao() {
-		return identityDao;
+		return daoFactory.getIdentityDao();
 	}
 
 	public JdbcArrowDao getArrowDao() {
-		return arrowDao;
+		return daoFactory.getArrowDao();
 	}
 
 	public JdbcEdgeDao getEdgeDao() {
-		return edgeDao;
+		return daoFactory.getEdgeDao();
 	}
 
 	public JdbcAgentDao getAgentDao() {
-		return agentDao;
+		return daoFactory.getAgentDao();
 	}
 
 	public Connection getConnection() throws SQLException {
@@ -131,26 +139,10 @@ public class JdbcTestSupport {
 		return dataSource;
 	}
 
-	private void executeDDL(final DataSource dataSource, final String resourceLocation) throws SQLException {
-		final InputStream stream = JdbcArrowDaoTest.class.getClassLoader().getResourceAsStream(resourceLocation);
-		final String ddl = readStream(stream);
-		executeSql(dataSource, ddl);
-	}
-
 	private void executeSql(final DataSource dataSource, final String sql) throws SQLException {
 		final Connection connection = dataSource.getConnection();
 		final Statement statement = connection.createStatement();
 		statement.execute(sql);
 		connection.close();
 	}
-
-	private String readStream(final InputStream is) {
-		final Scanner scanner = new Scanner(is);
-		final Scanner s = scanner.useDelimiter("\\A");
-		try {
-			return s.hasNext() ? s.next() : "";
-		} finally {
-			scanner.close();
-		}
-	}
 }
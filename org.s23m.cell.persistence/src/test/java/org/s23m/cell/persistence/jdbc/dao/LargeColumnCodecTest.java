@@ -0,0 +1,178 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.LargeColumnCodec;
+import org.s23m.cell.persistence.dao.jdbc.LargeColumnCompression;
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.Identity;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * Tests the DAOs against tables which store the large columns compressed in BLOB columns
+ */
+public class LargeColumnCodecTest {
+
+	private static final JdbcDaoConfiguration CONFIGURATION = JdbcDaoConfiguration.DEFAULT.withLargeColumnCodec(LargeColumnCodec.COMPRESSED);
+
+	private final JdbcTestSupport support = new JdbcTestSupport();
+
+	@Before
+	public void setUp() throws SQLException {
+		support.initialiseTestDatabase(getClass().getSimpleName(), CONFIGURATION);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		support.destroyTestDatabase();
+	}
+
+	@Test
+	public void testLargeValuesAreCompressed() throws SQLException, IOException {
+		final String content = createContent(1000);
+		final Graph graph = createGraph("1", content);
+		support.getIdentityDao().insert(createIdentity("1"));
+		support.getGraphDao().insert(graph);
+
+		final byte[] stored = findStoredValue("SELECT contentAsXml FROM Graph");
+		assertEquals(1, stored[0]);
+		assertTrue(stored.length < content.length() / 5);
+
+		assertEquals(graph, support.getGraphDao().get("1"));
+		try (Reader reader = support.getGraphDao().openContentAsXml("1")) {
+			assertEquals(content, read(reader));
+		}
+	}
+
+	@Test
+	public void testSmallValuesAreStored() throws SQLException {
+		support.getIdentityDao().insert(createIdentity("1"));
+		support.getIdentityDao().insert(new Identity("2", "name", "pluralName", "codeName", "pluralCodeName", null));
+
+		final byte[] stored = findStoredValue("SELECT payload FROM Identity WHERE uuid='1'");
+		assertEquals(0, stored[0]);
+		assertEquals("payload".length() + 1, stored.length);
+
+		assertEquals(createIdentity("1"), support.getIdentityDao().get("1"));
+		assertNull(support.getIdentityDao().get("2").getPayload());
+		assertNull(support.getIdentityDao().openPayload("2"));
+	}
+
+	@Test
+	public void testMigrateTextColumns() throws SQLException, IOException {
+		final JdbcTestSupport textSupport = new JdbcTestSupport();
+		textSupport.initialiseTestDatabase(getClass().getSimpleName() + "Text");
+		try {
+			final String content = createContent(500);
+			for (final String uuid : new String[] {"1", "2", "3"}) {
+				textSupport.getIdentityDao().insert(createIdentity(uuid));
+				textSupport.getGraphDao().insert(createGraph(uuid, content + uuid));
+			}
+			textSupport.getIdentityDao().update(new Identity("3", "name", "pluralName", "codeName", "pluralCodeName", null));
+
+			final LargeColumnCompression compression = new LargeColumnCompression(textSupport.getDataSource(), SqlDialect.H2,
+					LargeColumnCodec.COMPRESSED, 2);
+			assertEquals(5L, compression.migrate());
+
+			final JdbcIdentityDao identityDao = new JdbcIdentityDao(textSupport.getQueryRunner(), CONFIGURATION);
+			final JdbcGraphDao graphDao = new JdbcGraphDao(textSupport.getQueryRunner(), CONFIGURATION);
+			assertEquals(createIdentity("1"), identityDao.get("1"));
+			assertNull(identityDao.get("3").getPayload());
+			assertEquals(createGraph("2", content + "2"), graphDao.get("2"));
+			try (Reader reader = graphDao.openContentAsXml("3")) {
+				assertEquals(content + "3", read(reader));
+			}
+
+			// converted columns are skipped
+			assertEquals(0L, compression.migrate());
+		} finally {
+			textSupport.destroyTestDatabase();
+		}
+	}
+
+	@Test
+	public void testMigrationResumesAfterColumnIsDropped() throws SQLException {
+		final JdbcTestSupport textSupport = new JdbcTestSupport();
+		textSupport.initialiseTestDatabase(getClass().getSimpleName() + "Resumed");
+		try {
+			final String content = createContent(500);
+			textSupport.getIdentityDao().insert(createIdentity("1"));
+			textSupport.getGraphDao().insert(createGraph("1", content));
+			final LargeColumnCompression compression = new LargeColumnCompression(textSupport.getDataSource(), SqlDialect.H2,
+					LargeColumnCodec.COMPRESSED, 2);
+			assertEquals(2L, compression.migrate());
+
+			// recreate the state of a run interrupted after dropping each TEXT column, before renaming its replacement
+			for (final String[] column : new String[][] {{"Identity", "payload"}, {"Graph", "contentAsXml"}}) {
+				final String table = column[0];
+				final String converted = column[1] + "Compressed";
+				textSupport.getQueryRunner().update("ALTER TABLE " + table + " ADD COLUMN " + converted + " BLOB");
+				textSupport.getQueryRunner().update("UPDATE " + table + " SET " + converted + "=" + column[1]);
+				textSupport.getQueryRunner().update("ALTER TABLE " + table + " DROP COLUMN " + column[1]);
+			}
+
+			assertEquals(0L, compression.migrate());
+			final JdbcIdentityDao identityDao = new JdbcIdentityDao(textSupport.getQueryRunner(), CONFIGURATION);
+			final JdbcGraphDao graphDao = new JdbcGraphDao(textSupport.getQueryRunner(), CONFIGURATION);
+			assertEquals(createIdentity("1"), identityDao.get("1"));
+			assertEquals(createGraph("1", content), graphDao.get("1"));
+		} finally {
+			textSupport.destroyTestDatabase();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMigrationRequiresCompressedCodec() {
+		new LargeColumnCompression(support.getDataSource(), SqlDialect.H2, LargeColumnCodec.TEXT, 100);
+	}
+
+	private static Graph createGraph(final String uuid, final String contentAsXml) {
+		final Graph graph = TestData.createGraph(uuid, ProperClass.Vertex);
+		return new Graph(graph.getUrr(), graph.getUuid(), graph.getCategory(), graph.getContainer(), graph.getIsAbstractValue(),
+				graph.getProperClass(), graph.getMaxCardinalityValueInContainer(), contentAsXml);
+	}
+
+	private static String createContent(final int vertexCount) {
+		final StringBuilder content = new StringBuilder("<graph>");
+		for (int i = 0; i < vertexCount; i++) {
+			content.append("<vertex id=\"").append(i).append("\"/>");
+		}
+		return content.append("</graph>").toString();
+	}
+
+	private byte[] findStoredValue(final String query) throws SQLException {
+		try (Connection connection = support.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(query)) {
+			resultSet.next();
+			return resultSet.getBytes(1);
+		}
+	}
+
+	private static String read(final Reader reader) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		final char[] buffer = new char[4096];
+		int count;
+		while ((count = reader.read(buffer)) != -1) {
+			builder.append(buffer, 0, count);
+		}
+		return builder.toString();
+	}
+}
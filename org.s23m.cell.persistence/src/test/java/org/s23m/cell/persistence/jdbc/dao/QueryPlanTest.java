@@ -0,0 +1,320 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createAgent;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createArrow;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createEdge;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.PageCursor;
+import org.s23m.cell.persistence.dao.jdbc.JdbcAgentDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcArrowDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcEdgeDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.ProperClass;
+
+/**
+ * Records the statements issued by each DAO method, and checks using EXPLAIN that every selective one
+ * (i.e. with a WHERE clause) looks rows up using the intended index.
+ *
+ * H2 indexes every foreign key, so the foreign key constraints are dropped first, together with their indexes.
+ * As on PostgreSQL, which does not index foreign keys, only the primary keys, the sequence number indexes and
+ * the indexes of sql/index_ddl.sql remain.
+ */
+public class QueryPlanTest extends AbstractJdbcTest {
+
+	private static final String PRIMARY_KEY = "PRIMARY_KEY_";
+
+	private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(IDENTITY|AGENT|GRAPH|ARROW|EDGE)\\.tableScan");
+
+	private static final Pattern MERGE_KEY = Pattern.compile("^MERGE INTO (\\w+) .* KEY \\((\\w+)\\)");
+
+	private static final String KEY = "1";
+
+	private final List<String> statements = new ArrayList<>();
+
+	private JdbcIdentityDao identityDao;
+
+	private JdbcAgentDao agentDao;
+
+	private JdbcGraphDao graphDao;
+
+	private JdbcArrowDao arrowDao;
+
+	private JdbcEdgeDao edgeDao;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		dropForeignKeys();
+
+		// large columns are loaded lazily, so that the statements which load them are issued too
+		final QueryRunner queryRunner = new QueryRunner(recording(getDataSource()));
+		final JdbcDaoConfiguration configuration = JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true);
+		identityDao = new JdbcIdentityDao(queryRunner, configuration);
+		agentDao = new JdbcAgentDao(queryRunner, configuration);
+		graphDao = new JdbcGraphDao(queryRunner, configuration);
+		arrowDao = new JdbcArrowDao(queryRunner, configuration);
+		edgeDao = new JdbcEdgeDao(queryRunner, configuration);
+
+		identityDao.insert(createIdentity(KEY));
+		agentDao.insert(createAgent(KEY));
+		graphDao.insert(createGraph(KEY, ProperClass.Vertex));
+		arrowDao.insert(createArrow(KEY, ProperClass.Edge));
+		edgeDao.insert(createEdge(KEY));
+	}
+
+	@Test
+	public void testLookupsByKeyUsePrimaryKeys() {
+		assertUses(PRIMARY_KEY, () -> identityDao.get(KEY));
+		assertUses(PRIMARY_KEY, () -> identityDao.getAll(Arrays.asList(KEY, "2")));
+		assertUses(PRIMARY_KEY, () -> identityDao.get(KEY).getPayload());
+		assertUses(PRIMARY_KEY, () -> close(identityDao.openPayload(KEY)));
+		assertUses(PRIMARY_KEY, () -> agentDao.get(KEY));
+		assertUses(PRIMARY_KEY, () -> agentDao.getAll(Arrays.asList(KEY, "2")));
+		assertUses(PRIMARY_KEY, () -> graphDao.get(KEY));
+		assertUses(PRIMARY_KEY, () -> graphDao.getAll(Arrays.asList(KEY, "2")));
+		assertUses(PRIMARY_KEY, () -> graphDao.get(KEY).getContentAsXml());
+		assertUses(PRIMARY_KEY, () -> close(graphDao.openContentAsXml(KEY)));
+		assertUses(PRIMARY_KEY, () -> arrowDao.get(KEY));
+		assertUses(PRIMARY_KEY, () -> arrowDao.getAll(Arrays.asList(KEY, "2")));
+		assertUses(PRIMARY_KEY, () -> edgeDao.get(KEY));
+		assertUses(PRIMARY_KEY, () -> edgeDao.getAll(Arrays.asList(KEY, "2")));
+	}
+
+	@Test
+	public void testUpdatesUsePrimaryKeys() {
+		assertUses(PRIMARY_KEY, () -> identityDao.update(createIdentity(KEY)));
+		assertUses(PRIMARY_KEY, () -> identityDao.updateAll(Arrays.asList(createIdentity(KEY))));
+		assertUses(PRIMARY_KEY, () -> agentDao.update(createAgent(KEY)));
+		assertUses(PRIMARY_KEY, () -> agentDao.updateAll(Arrays.asList(createAgent(KEY))));
+		assertUses(PRIMARY_KEY, () -> graphDao.update(createGraph(KEY, ProperClass.Vertex)));
+		assertUses(PRIMARY_KEY, () -> graphDao.update(createGraph(KEY, ProperClass.Vertex), createGraph(KEY, ProperClass.Edge)));
+		assertUses(PRIMARY_KEY, () -> graphDao.updateAll(Arrays.asList(createGraph(KEY, ProperClass.Vertex))));
+		assertUses(PRIMARY_KEY, () -> arrowDao.update(createArrow(KEY, ProperClass.Edge)));
+		assertUses(PRIMARY_KEY, () -> arrowDao.updateAll(Arrays.asList(createArrow(KEY, ProperClass.Edge))));
+		assertUses(PRIMARY_KEY, () -> edgeDao.update(createEdge(KEY)));
+		assertUses(PRIMARY_KEY, () -> edgeDao.updateAll(Arrays.asList(createEdge(KEY))));
+	}
+
+	@Test
+	public void testUpsertsMergeOnPrimaryKeys() throws SQLException {
+		assertMergesOnPrimaryKey(() -> identityDao.upsert(createIdentity(KEY)));
+		assertMergesOnPrimaryKey(() -> identityDao.upsertAll(Arrays.asList(createIdentity(KEY), createIdentity("2"))));
+		assertMergesOnPrimaryKey(() -> agentDao.upsert(createAgent(KEY)));
+		assertMergesOnPrimaryKey(() -> agentDao.upsertAll(Arrays.asList(createAgent(KEY))));
+		assertMergesOnPrimaryKey(() -> graphDao.upsert(createGraph(KEY, ProperClass.Vertex)));
+		assertMergesOnPrimaryKey(() -> graphDao.upsertAll(Arrays.asList(createGraph(KEY, ProperClass.Vertex))));
+		assertMergesOnPrimaryKey(() -> arrowDao.upsert(createArrow(KEY, ProperClass.Edge)));
+		assertMergesOnPrimaryKey(() -> arrowDao.upsertAll(Arrays.asList(createArrow(KEY, ProperClass.Edge))));
+		assertMergesOnPrimaryKey(() -> edgeDao.upsert(createEdge(KEY)));
+		assertMergesOnPrimaryKey(() -> edgeDao.upsertAll(Arrays.asList(createEdge(KEY))));
+	}
+
+	@Test
+	public void testPagesAndChangesUseSequenceNumberIndexes() {
+		assertUses("IDX_IDENTITY_SEQUENCENUMBER", () -> identityDao.getPage(PageCursor.START, 10));
+		assertUses("IDX_IDENTITY_SEQUENCENUMBER", () -> identityDao.pollSince(0L, 10));
+		assertUses("IDX_AGENT_SEQUENCENUMBER", () -> agentDao.getPage(PageCursor.START, 10));
+		assertUses("IDX_AGENT_SEQUENCENUMBER", () -> agentDao.pollSince(0L, 10));
+		assertUses("IDX_GRAPH_SEQUENCENUMBER", () -> graphDao.getPage(PageCursor.START, 10));
+		assertUses("IDX_GRAPH_SEQUENCENUMBER", () -> graphDao.pollSince(0L, 10));
+		assertUses("IDX_ARROW_SEQUENCENUMBER", () -> arrowDao.getPage(PageCursor.START, 10));
+		assertUses("IDX_ARROW_SEQUENCENUMBER", () -> arrowDao.pollSince(0L, 10));
+		assertUses("IDX_EDGE_SEQUENCENUMBER", () -> edgeDao.getPage(PageCursor.START, 10));
+		assertUses("IDX_EDGE_SEQUENCENUMBER", () -> edgeDao.pollSince(0L, 10));
+	}
+
+	@Test
+	public void testNavigationUsesSecondaryIndexes() {
+		assertUses("IDX_GRAPH_CONTAINER", () -> {
+			try (Stream<Graph> graphs = graphDao.streamByContainer(KEY)) {
+				graphs.count();
+			}
+		});
+		// the arrow indexes are defined along with the tables
+		assertUses("IDX_GRAPH_FROM_TO_PROPERCLASS_CATEGORY", () -> arrowDao.findOutgoing(KEY, ProperClass.Edge));
+		assertUses("IDX_GRAPH_TO_PROPERCLASS_CATEGORY", () -> arrowDao.findIncoming(KEY, ProperClass.Edge));
+		assertUses("IDX_EDGE_FROMEDGEEND", () -> edgeDao.findByFromEdgeEnd(KEY));
+		assertUses("IDX_EDGE_TOEDGEEND", () -> edgeDao.findByToEdgeEnd(KEY));
+
+		// each branch of the union uses the index of its own column
+		final String plan = explain(record(() -> edgeDao.findByEdgeEnd(KEY)).get(0));
+		assertTrue(plan, plan.contains("PUBLIC.IDX_EDGE_FROMEDGEEND"));
+		assertTrue(plan, plan.contains("PUBLIC.IDX_EDGE_TOEDGEEND"));
+		assertNoTableScan(plan);
+	}
+
+	@Test
+	public void testAgentContactLookupsUseSecondaryIndexes() {
+		assertUses("IDX_AGENT_EMAIL", () -> agentDao.findByEmail("bob@example.com"));
+		assertUses("IDX_AGENT_ALIAS", () -> agentDao.findByAlias("Bob"));
+	}
+
+	@Test
+	public void testSubtreeUsesPrimaryKeyAndContainerIndex() {
+		final String plan = explain(record(() -> graphDao.loadSubtree(KEY, 5)).get(0));
+		assertTrue(plan, plan.contains("PUBLIC." + PRIMARY_KEY));
+		assertTrue(plan, plan.contains("PUBLIC.IDX_GRAPH_CONTAINER"));
+		assertNoTableScan(plan);
+	}
+
+	/**
+	 * Checks that the call issues at least one statement, and that each of its selective statements looks rows up
+	 * using the index whose name starts with the given prefix
+	 */
+	private void assertUses(final String index, final Runnable call) {
+		final List<String> recorded = record(call);
+		int explained = 0;
+		for (final String sql : recorded) {
+			if (sql.contains(" WHERE ")) {
+				final String plan = explain(sql);
+				assertTrue("Expected " + index + " to be used for " + sql + ":\n" + plan, plan.contains("/* PUBLIC." + index));
+				assertNoTableScan(plan);
+				explained++;
+			}
+		}
+		assertTrue("No selective statement was issued, only " + recorded, explained > 0);
+	}
+
+	/**
+	 * Checks that the call issues only MERGE statements, whose existing rows are found by primary key
+	 */
+	private void assertMergesOnPrimaryKey(final Runnable call) throws SQLException {
+		final List<String> recorded = record(call);
+		assertFalse(recorded.isEmpty());
+		for (final String sql : recorded) {
+			final Matcher matcher = MERGE_KEY.matcher(sql);
+			assertTrue(sql, matcher.find());
+			assertEquals(sql, getPrimaryKeyColumn(matcher.group(1)), matcher.group(2).toUpperCase(Locale.ROOT));
+		}
+	}
+
+	private static void assertNoTableScan(final String plan) {
+		final Matcher matcher = TABLE_SCAN.matcher(plan);
+		if (matcher.find()) {
+			fail("Full scan of " + matcher.group(1) + " planned:\n" + plan);
+		}
+	}
+
+	/**
+	 * Returns the statements prepared by the call
+	 */
+	private List<String> record(final Runnable call) {
+		statements.clear();
+		call.run();
+		return new ArrayList<>(statements);
+	}
+
+	private String explain(final String sql) {
+		try (Connection connection = getConnection();
+				PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			// the values do not affect the choice of index; H2 converts them to the required types
+			final int parameterCount = statement.getParameterMetaData().getParameterCount();
+			for (int i = 1; i <= parameterCount; i++) {
+				statement.setObject(i, "1");
+			}
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getString(1);
+			}
+		} catch (final SQLException e) {
+			throw new RuntimeException("Could not explain " + sql, e);
+		}
+	}
+
+	private String getPrimaryKeyColumn(final String table) throws SQLException {
+		try (Connection connection = getConnection();
+				ResultSet resultSet = connection.getMetaData().getPrimaryKeys(null, null, table.toUpperCase(Locale.ROOT))) {
+			assertTrue(resultSet.next());
+			return resultSet.getString("COLUMN_NAME");
+		}
+	}
+
+	private void dropForeignKeys() throws SQLException {
+		final List<String[]> foreignKeys = new ArrayList<>();
+		try (Connection connection = getConnection();
+				Statement statement = connection.createStatement()) {
+			try (ResultSet resultSet = statement.executeQuery("SELECT TABLE_NAME, CONSTRAINT_NAME FROM INFORMATION_SCHEMA.CONSTRAINTS"
+					+ " WHERE CONSTRAINT_TYPE = 'REFERENTIAL'")) {
+				while (resultSet.next()) {
+					foreignKeys.add(new String[] {resultSet.getString(1), resultSet.getString(2)});
+				}
+			}
+			for (final String[] foreignKey : foreignKeys) {
+				statement.execute("ALTER TABLE " + foreignKey[0] + " DROP CONSTRAINT " + foreignKey[1]);
+			}
+		}
+		assertFalse(foreignKeys.isEmpty());
+	}
+
+	private static void close(final Reader reader) {
+		try {
+			reader.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Wraps the data source so that the SQL of every prepared statement is recorded
+	 */
+	private DataSource recording(final DataSource dataSource) {
+		return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+			final Object result = invoke(dataSource, method, args);
+			if (method.getName().equals("getConnection")) {
+				final Connection connection = (Connection) result;
+				return proxy(Connection.class, connection, (connectionProxy, connectionMethod, connectionArgs) -> {
+					if (connectionMethod.getName().equals("prepareStatement")) {
+						statements.add((String) connectionArgs[0]);
+					}
+					return invoke(connection, connectionMethod, connectionArgs);
+				});
+			}
+			return result;
+		});
+	}
+
+	private static <T> T proxy(final Class<T> type, final T target, final InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+	}
+
+	private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.Change;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
+import org.s23m.cell.persistence.model.Identity;
+
+public class SqlDialectTest extends AbstractJdbcTest {
+
+	@Test
+	public void testDetection() {
+		assertEquals(SqlDialect.H2, SqlDialect.fromJdbcUrl("jdbc:h2:mem:test"));
+		assertEquals(SqlDialect.MYSQL, SqlDialect.fromJdbcUrl("jdbc:mysql://localhost/s23m"));
+		assertEquals(SqlDialect.POSTGRESQL, SqlDialect.fromJdbcUrl("jdbc:postgresql://localhost/s23m"));
+		assertNull(SqlDialect.fromJdbcUrl("jdbc:derby:s23m"));
+
+		assertEquals(SqlDialect.MYSQL, SqlDialect.fromProductName("MySQL"));
+		assertEquals(SqlDialect.POSTGRESQL, SqlDialect.fromProductName("PostgreSQL"));
+		assertNull(SqlDialect.fromProductName("Apache Derby"));
+	}
+
+	@Test
+	public void testQuoteIdentifier() throws SQLException {
+		assertEquals("`sequenceNumber`", SqlDialect.MYSQL.quoteIdentifier("sequenceNumber"));
+		assertEquals("\"sequencenumber\"", SqlDialect.POSTGRESQL.quoteIdentifier("sequenceNumber"));
+		assertEquals("\"a\"\"b\"", SqlDialect.POSTGRESQL.quoteIdentifier("a\"b"));
+
+		// quoted identifiers refer to the columns created by the unquoted schema scripts
+		getIdentityDao().insert(createIdentity("1"));
+		final SqlDialect dialect = SqlDialect.H2;
+		final String sql = "SELECT " + dialect.quoteIdentifier("pluralName") + " FROM " + dialect.quoteIdentifier("Identity");
+		assertEquals("pluralName", getQueryRunner().query(sql, resultSet -> resultSet.next() ? resultSet.getString(1) : null));
+	}
+
+	@Test
+	public void testInsertAllUsesMultiRowStatements() throws SQLException {
+		final List<String> statements = new ArrayList<>();
+		final QueryRunner recordingQueryRunner = new QueryRunner(getDataSource()) {
+			@Override
+			public int update(final String sql, final Object... params) throws SQLException {
+				statements.add(sql);
+				return super.update(sql, params);
+			}
+		};
+		final JdbcIdentityDao dao = new JdbcIdentityDao(recordingQueryRunner, JdbcDaoConfiguration.DEFAULT.withBatchSize(4));
+
+		final List<Identity> identities = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			identities.add(createIdentity(Integer.toString(i)));
+		}
+		dao.insertAll(identities);
+
+		// 7 rows are sent as statements of 4, 2 and 1 rows
+		assertEquals(3, statements.size());
+		assertTrue(statements.get(0).endsWith("VALUES (?,?,?,?,?,?),(?,?,?,?,?,?),(?,?,?,?,?,?),(?,?,?,?,?,?)"));
+		assertTrue(statements.get(2).endsWith("VALUES (?,?,?,?,?,?)"));
+
+		// rows are assigned sequence numbers in insertion order
+		final List<Identity> changed = dao.pollSince(0, 10).stream().map(Change::getEntity).collect(Collectors.toList());
+		assertEquals(identities, changed);
+	}
+
+	@Test
+	public void testInsertAllUsesDriverBatchesWhereRewritten() throws SQLException {
+		final List<String> statements = new ArrayList<>();
+		final QueryRunner recordingQueryRunner = new QueryRunner(getDataSource()) {
+			@Override
+			public int[] batch(final Connection connection, final String sql, final Object[][] params) throws SQLException {
+				statements.add(sql);
+				return super.batch(connection, sql, params);
+			}
+		};
+		// the single-row INSERT is common to all dialects, so this runs against H2
+		final JdbcIdentityDao dao = new JdbcIdentityDao(recordingQueryRunner,
+				JdbcDaoConfiguration.DEFAULT.withBatchSize(4).withDialect(SqlDialect.POSTGRESQL));
+
+		final List<Identity> identities = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			identities.add(createIdentity(Integer.toString(i)));
+		}
+		try (Connection connection = getConnection()) {
+			dao.insertAll(connection, identities);
+		}
+
+		assertEquals(2, statements.size());
+		assertFalse(statements.get(0).contains("),("));
+		assertEquals(5L, dao.scanAll().count());
+	}
+}
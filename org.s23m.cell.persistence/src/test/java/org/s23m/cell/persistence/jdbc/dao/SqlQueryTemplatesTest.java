@@ -2,6 +2,7 @@ package org.s23m.cell.persistence.jdbc.dao;
 
 import junit.framework.TestCase;
 
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
 import org.s23m.cell.persistence.dao.jdbc.SqlQueryTemplates;
 import org.s23m.cell.persistence.model.Identity;
 
@@ -12,15 +13,93 @@ public class SqlQueryTemplatesTest extends TestCase {
 		assertEquals("SELECT * FROM Identity WHERE pk=?", identitySelect);
 	}
 
+	public void testCreateSelectByIdsQueryTemplate() {
+		final String identitySelect = SqlQueryTemplates.createSelectByIdsQueryTemplate(Identity.class, "pk", 3);
+		assertEquals("SELECT * FROM Identity WHERE pk IN (?,?,?)", identitySelect);
+	}
+
+	public void testCreateSelectByColumnsQueryTemplate() {
+		final String identitySelect = SqlQueryTemplates.createSelectByColumnsQueryTemplate(Identity.class, "a", "b");
+		assertEquals("SELECT * FROM Identity WHERE a=? AND b=?", identitySelect);
+	}
+
+	public void testCreateSelectSubtreeQueryTemplate() {
+		final String identitySelect = SqlQueryTemplates.createSelectSubtreeQueryTemplate(SqlDialect.H2, Identity.class, "pk", "id", "parent");
+		assertEquals("WITH RECURSIVE Descendant(pk, id, depth, path) AS ("
+				+ "SELECT pk, id, 0, CAST(CONCAT('/', pk, '/') AS VARCHAR) FROM Identity WHERE pk=? "
+				+ "UNION ALL SELECT c.pk, c.id, d.depth + 1, CONCAT(d.path, c.pk, '/') FROM Identity c INNER JOIN Descendant d ON c.parent = d.id "
+				+ "WHERE POSITION(CONCAT('/', c.pk, '/') IN d.path) = 0 AND d.depth < ?) "
+				+ "SELECT t.* FROM Identity t INNER JOIN Descendant d ON t.pk = d.pk GROUP BY t.pk "
+				+ "ORDER BY MIN(d.depth), t.sequenceNumber", identitySelect);
+
+		// the path is cast to the type of the values appended to it
+		assertTrue(SqlQueryTemplates.createSelectSubtreeQueryTemplate(SqlDialect.POSTGRESQL, Identity.class, "pk", "id", "parent")
+				.contains("CAST(CONCAT('/', pk, '/') AS TEXT)"));
+	}
+
+	public void testCreateProjectedSelectQueryTemplates() {
+		final String[] columns = {"a", "pk"};
+		assertEquals("SELECT a, pk FROM Identity WHERE pk=?", SqlQueryTemplates.createSelectByIdQueryTemplate(Identity.class, columns, "pk"));
+		assertEquals("SELECT a, pk FROM Identity WHERE pk IN (?,?)",
+				SqlQueryTemplates.createSelectByIdsQueryTemplate(Identity.class, columns, "pk", 2));
+		assertTrue(SqlQueryTemplates.createSelectSubtreeQueryTemplate(SqlDialect.H2, Identity.class, columns, "pk", "id", "parent")
+				.contains(" SELECT t.a, t.pk FROM Identity t "));
+	}
+
+	public void testCreateSelectPageQueryTemplate() {
+		final String identitySelect = SqlQueryTemplates.createSelectPageQueryTemplate(Identity.class);
+		assertEquals("SELECT * FROM Identity WHERE sequenceNumber > ? ORDER BY sequenceNumber LIMIT ?", identitySelect);
+	}
+
 	public void testCreateUpdateStatementTemplate() {
 		final String[] columnNames = {"a", "b", "c"};
 		final String identityUpdate = SqlQueryTemplates.createUpdateStatementTemplate(Identity.class, columnNames);
 		assertEquals("UPDATE Identity SET a=?,b=? WHERE c=?", identityUpdate);
 	}
 
+	public void testCreateSequencedUpdateStatementTemplate() {
+		final String[] columnNames = {"a", "b", "c"};
+		final String identityUpdate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(Identity.class, columnNames);
+		assertEquals("UPDATE Identity SET a=?,b=?,sequenceNumber=DEFAULT WHERE c=?", identityUpdate);
+	}
+
+	public void testCreateDialectUpdateStatementTemplates() {
+		final String[] columnNames = {"a", "b", "c"};
+		assertEquals("UPDATE Identity SET a=?,b=?,sequenceNumber=DEFAULT WHERE c=?",
+				SqlQueryTemplates.createSequencedUpdateStatementTemplate(SqlDialect.POSTGRESQL, Identity.class, columnNames));
+		assertEquals("UPDATE Identity SET a=?,b=? WHERE c=?",
+				SqlQueryTemplates.createSequencedUpdateStatementTemplate(SqlDialect.MYSQL, Identity.class, columnNames));
+		assertEquals("UPDATE Identity SET b=? WHERE c=?",
+				SqlQueryTemplates.createSequencedUpdateStatementTemplate(SqlDialect.MYSQL, Identity.class, columnNames, 0b10));
+	}
+
+	public void testCreateUpsertStatementTemplate() {
+		final String[] columnNames = {"a", "b", "c"};
+		assertEquals("MERGE INTO Identity (a,b,c,sequenceNumber) KEY (c) VALUES (?,?,?,DEFAULT)",
+				SqlQueryTemplates.createUpsertStatementTemplate(SqlDialect.H2, Identity.class, columnNames));
+		assertEquals("INSERT INTO Identity (a,b,c) VALUES (?,?,?) ON DUPLICATE KEY UPDATE a=VALUES(a),b=VALUES(b)",
+				SqlQueryTemplates.createUpsertStatementTemplate(SqlDialect.MYSQL, Identity.class, columnNames));
+		assertEquals("INSERT INTO Identity (a,b,c) VALUES (?,?,?) ON CONFLICT (c) DO UPDATE SET a=EXCLUDED.a,b=EXCLUDED.b,sequenceNumber=DEFAULT",
+				SqlQueryTemplates.createUpsertStatementTemplate(SqlDialect.POSTGRESQL, Identity.class, columnNames));
+	}
+
+	public void testCreateSequencedPartialUpdateStatementTemplate() {
+		final String[] columnNames = {"a", "b", "c", "d"};
+		final String identityUpdate = SqlQueryTemplates.createSequencedUpdateStatementTemplate(Identity.class, columnNames, 0b101);
+		assertEquals("UPDATE Identity SET a=?,c=?,sequenceNumber=DEFAULT WHERE d=?", identityUpdate);
+	}
+
 	public void testCreateInsertStatementTemplate() {
 		final String[] columnNames = {"a", "b", "c"};
 		final String identityInsert = SqlQueryTemplates.createInsertStatementTemplate(Identity.class, columnNames);
 		assertEquals("INSERT INTO Identity (a,b,c) VALUES (?,?,?)", identityInsert);
 	}
+
+	public void testCreateMultiRowInsertStatementTemplate() {
+		final String[] columnNames = {"a", "b", "c"};
+		assertEquals("INSERT INTO Identity (a,b,c) VALUES (?,?,?)",
+				SqlQueryTemplates.createMultiRowInsertStatementTemplate(Identity.class, columnNames, 1));
+		assertEquals("INSERT INTO Identity (a,b,c) VALUES (?,?,?),(?,?,?),(?,?,?)",
+				SqlQueryTemplates.createMultiRowInsertStatementTemplate(Identity.class, columnNames, 3));
+	}
 }
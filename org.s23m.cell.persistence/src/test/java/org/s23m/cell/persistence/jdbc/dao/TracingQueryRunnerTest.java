@@ -0,0 +1,169 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createAgent;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createGraph;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.JdbcAgentDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcDaoConfiguration;
+import org.s23m.cell.persistence.dao.jdbc.JdbcGraphDao;
+import org.s23m.cell.persistence.dao.jdbc.JdbcIdentityDao;
+import org.s23m.cell.persistence.dao.jdbc.SqlDialect;
+import org.s23m.cell.persistence.dao.jdbc.TracingQueryRunner;
+import org.s23m.cell.persistence.model.Graph;
+import org.s23m.cell.persistence.model.ProperClass;
+
+public class TracingQueryRunnerTest extends AbstractJdbcTest {
+
+	@Test
+	public void testSlowStatementsAreReported() throws SQLException {
+		final RecordingQueryRunner queryRunner = new RecordingQueryRunner(getDataSource(), 0);
+		// a dialect whose inserts are sent as JDBC batches
+		final JdbcIdentityDao identityDao = new JdbcIdentityDao(queryRunner, JdbcDaoConfiguration.DEFAULT.withDialect(SqlDialect.POSTGRESQL));
+
+		identityDao.insertAll(Arrays.asList(createIdentity("1"), createIdentity("2"), createIdentity("3")));
+		identityDao.get("2");
+		identityDao.getAll(Arrays.asList("1", "2", "4"));
+
+		assertEquals(3, queryRunner.statements.size());
+		assertEquals(3L, queryRunner.getSlowStatementCount());
+
+		final SlowStatement batch = queryRunner.statements.get(0);
+		assertTrue(batch.sql.startsWith("INSERT INTO Identity ("));
+		assertEquals(3, batch.rows);
+		assertTrue(batch.parameters, batch.parameters.startsWith("[name='name', pluralName='pluralName'"));
+		assertTrue(batch.parameters, batch.parameters.endsWith("(first of 3 rows)"));
+
+		final SlowStatement get = queryRunner.statements.get(1);
+		assertEquals("SELECT * FROM Identity WHERE uuid=?", get.sql);
+		assertEquals(1, get.rows);
+		assertEquals("[uuid='2']", get.parameters);
+
+		final SlowStatement getAll = queryRunner.statements.get(2);
+		assertEquals(2, getAll.rows);
+		assertEquals("[uuid='1', uuid='2', uuid='4']", getAll.parameters);
+	}
+
+	@Test
+	public void testPasswordIsRedacted() throws SQLException {
+		final RecordingQueryRunner queryRunner = new RecordingQueryRunner(getDataSource(), 0);
+		final JdbcAgentDao agentDao = new JdbcAgentDao(queryRunner);
+		getIdentityDao().insert(createIdentity("1"));
+
+		agentDao.insert(createAgent("1"));
+		agentDao.update(createAgent("1"));
+
+		assertEquals(2, queryRunner.statements.size());
+		for (final SlowStatement statement : queryRunner.statements) {
+			assertTrue(statement.parameters, statement.parameters.contains("password=<redacted>"));
+			assertTrue(statement.parameters, statement.parameters.contains("email='bob@example.com'"));
+			assertFalse(statement.parameters, statement.parameters.contains("secret"));
+		}
+	}
+
+	@Test
+	public void testPasswordIsRedactedInMultiRowInserts() throws SQLException {
+		final RecordingQueryRunner queryRunner = new RecordingQueryRunner(getDataSource(), 0);
+		final JdbcAgentDao agentDao = new JdbcAgentDao(queryRunner);
+		getIdentityDao().insertAll(Arrays.asList(createIdentity("1"), createIdentity("2")));
+
+		agentDao.insertAll(Arrays.asList(createAgent("1"), createAgent("2")));
+
+		assertEquals(1, queryRunner.statements.size());
+		final SlowStatement insert = queryRunner.statements.get(0);
+		assertEquals(2, insert.rows);
+		// the parameters of the second row are named after their columns too
+		assertTrue(insert.parameters, insert.parameters.contains("password=<redacted>, mobile='0211231234'"));
+		assertTrue(insert.parameters, insert.parameters.contains("urr='1', uuid='2', email='bob@example.com'"));
+		assertFalse(insert.parameters, insert.parameters.contains("secret"));
+	}
+
+	@Test
+	public void testStreamedQueriesAreReported() throws SQLException, IOException {
+		final RecordingQueryRunner queryRunner = new RecordingQueryRunner(getDataSource(), 0);
+		final JdbcDaoConfiguration configuration = JdbcDaoConfiguration.DEFAULT.withLazyLargeColumns(true);
+		final JdbcIdentityDao identityDao = new JdbcIdentityDao(queryRunner, configuration);
+		final JdbcGraphDao graphDao = new JdbcGraphDao(queryRunner, configuration);
+		getIdentityDao().insert(createIdentity("1"));
+		getGraphDao().insert(createGraph("1", ProperClass.Vertex));
+
+		try (Stream<Graph> graphs = graphDao.streamByContainer("1")) {
+			assertEquals(1L, graphs.count());
+		}
+		try (Reader reader = identityDao.openPayload("1")) {
+			reader.read();
+		}
+		assertEquals("payload", identityDao.get("1").getPayload());
+
+		assertEquals(4, queryRunner.statements.size());
+		final SlowStatement stream = queryRunner.statements.get(0);
+		assertTrue(stream.sql, stream.sql.endsWith(" FROM Graph WHERE container=?"));
+		assertEquals(TracingQueryRunner.UNKNOWN_ROWS, stream.rows);
+		assertEquals("[container='1']", stream.parameters);
+
+		final SlowStatement open = queryRunner.statements.get(1);
+		assertEquals("SELECT payload FROM Identity WHERE uuid=?", open.sql);
+		assertEquals(TracingQueryRunner.UNKNOWN_ROWS, open.rows);
+
+		// the payload is loaded by a separate query when first accessed
+		assertEquals("SELECT payload FROM Identity WHERE uuid=?", queryRunner.statements.get(3).sql);
+		assertEquals(1, queryRunner.statements.get(3).rows);
+	}
+
+	@Test
+	public void testFastStatementsAreNotReported() throws SQLException {
+		final RecordingQueryRunner queryRunner = new RecordingQueryRunner(getDataSource(), 60000);
+		new JdbcIdentityDao(queryRunner).insert(createIdentity("1"));
+
+		assertTrue(queryRunner.statements.isEmpty());
+		assertEquals(0L, queryRunner.getSlowStatementCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeThreshold() {
+		new TracingQueryRunner(getDataSource(), -1);
+	}
+
+	private static final class SlowStatement {
+
+		final String sql;
+
+		final int rows;
+
+		final String parameters;
+
+		SlowStatement(final String sql, final int rows, final String parameters) {
+			this.sql = sql;
+			this.rows = rows;
+			this.parameters = parameters;
+		}
+	}
+
+	private static final class RecordingQueryRunner extends TracingQueryRunner {
+
+		final List<SlowStatement> statements = new ArrayList<>();
+
+		RecordingQueryRunner(final DataSource dataSource, final long thresholdMillis) {
+			super(dataSource, thresholdMillis);
+		}
+
+		@Override
+		protected void slowStatement(final String sql, final long elapsedNanos, final int rows, final String parameters) {
+			statements.add(new SlowStatement(sql, rows, parameters));
+		}
+	}
+}
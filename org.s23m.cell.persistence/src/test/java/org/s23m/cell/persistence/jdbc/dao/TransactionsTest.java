@@ -0,0 +1,49 @@
+package org.s23m.cell.persistence.jdbc.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.s23m.cell.persistence.jdbc.dao.TestData.createIdentity;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.s23m.cell.persistence.dao.jdbc.Transactions;
+
+public class TransactionsTest extends AbstractJdbcTest {
+
+	@Test
+	public void testCommit() throws SQLException {
+		Transactions.execute(getDataSource(), connection -> getIdentityDao().insertAll(connection, Arrays.asList(createIdentity("1"))));
+		assertEquals(1L, getIdentityDao().scanAll().count());
+	}
+
+	@Test
+	public void testRollbackOnException() throws SQLException {
+		try {
+			Transactions.execute(getDataSource(), connection -> {
+				getIdentityDao().insertAll(connection, Arrays.asList(createIdentity("1")));
+				throw new IllegalStateException("failed");
+			});
+			fail("The exception should have been rethrown");
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+		assertEquals(0L, getIdentityDao().scanAll().count());
+	}
+
+	@Test
+	public void testRollbackOnError() throws SQLException {
+		try {
+			Transactions.execute(getDataSource(), connection -> {
+				getIdentityDao().insertAll(connection, Arrays.asList(createIdentity("1")));
+				throw new OutOfMemoryError("failed");
+			});
+			fail("The error should have been rethrown");
+		} catch (final OutOfMemoryError e) {
+			// expected
+		}
+		// restoring auto-commit before rolling back would have committed the row
+		assertEquals(0L, getIdentityDao().scanAll().count());
+	}
+}